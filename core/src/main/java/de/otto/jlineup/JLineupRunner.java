@@ -29,17 +29,33 @@ public class JLineupRunner {
 
     private final JobConfig jobConfig;
     private final RunStepConfig runStepConfig;
+    private final BrowserUtils browserUtils;
 
     public JLineupRunner(JobConfig jobConfig, RunStepConfig runStepConfig) throws ValidationError {
+        this(jobConfig, runStepConfig, new BrowserUtils());
+    }
+
+    /**
+     * @param browserUtils creates the browsers of this run, e.g. a {@link de.otto.jlineup.browser.WebDriverPool} to
+     *                     lease them from a pool
+     */
+    public JLineupRunner(JobConfig jobConfig, RunStepConfig runStepConfig, BrowserUtils browserUtils) throws ValidationError {
         this.jobConfig = jobConfig;
         this.runStepConfig = runStepConfig;
+        this.browserUtils = browserUtils;
         validateConfig();
     }
 
     public boolean run() {
+        //The image service owns the comparison threads, they must not outlive the run
+        try (ImageService imageService = new ImageService(jobConfig.compareThreads)) {
+            return run(imageService);
+        }
+    }
+
+    private boolean run(ImageService imageService) {
 
         final FileService fileService = new FileService(runStepConfig, jobConfig);
-        final ImageService imageService = new ImageService();
         final HTMLReportWriter htmlReportWriter = new HTMLReportWriter(fileService);
 
         //Make sure the working dir exists
@@ -57,11 +73,20 @@ public class JLineupRunner {
         MDC.put(REPORT_LOG_NAME_KEY, getFullPathToLogFile(runStepConfig));
         LOG.info("JLineup run started for step '{}'", runStepConfig.getStep());
 
+        //Compares every after screenshot as soon as it's written, if configured
+        ScreenshotsComparator capturingScreenshotsComparator = null;
+        if (runStepConfig.getStep() == RunStep.after && jobConfig.compareWhileCapturing) {
+            capturingScreenshotsComparator = new ScreenshotsComparator(runStepConfig, jobConfig, fileService, imageService);
+            fileService.addScreenshotWrittenListener(capturingScreenshotsComparator::compareWrittenScreenshot);
+        }
+
         if (runStepConfig.getStep() == RunStep.before || runStepConfig.getStep() == RunStep.after|| runStepConfig.getStep() == RunStep.after_only) {
-            BrowserUtils browserUtils = new BrowserUtils();
             try (Browser browser = new Browser(runStepConfig, jobConfig, fileService, browserUtils)) {
                 browser.runSetupAndTakeScreenshots();
             } catch (Exception e) {
+                if (capturingScreenshotsComparator != null) {
+                    capturingScreenshotsComparator.close();
+                }
                 throw new RuntimeException(e);
             }
 
@@ -79,7 +104,7 @@ public class JLineupRunner {
 
         try {
             if (runStepConfig.getStep() == RunStep.after || runStepConfig.getStep() == RunStep.compare) {
-                ScreenshotsComparator screenshotsComparator = new ScreenshotsComparator(runStepConfig, jobConfig, fileService, imageService);
+                ScreenshotsComparator screenshotsComparator = capturingScreenshotsComparator != null ? capturingScreenshotsComparator : new ScreenshotsComparator(runStepConfig, jobConfig, fileService, imageService);
                 final Map<String, List<ScreenshotComparisonResult>> comparisonResults = screenshotsComparator.compare();
 
                 final ReportGenerator reportGenerator = new ReportGenerator(fileService);
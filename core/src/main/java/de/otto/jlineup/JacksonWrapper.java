@@ -1,20 +1,23 @@
 package de.otto.jlineup;
 
 import de.otto.jlineup.config.JobConfig;
+import de.otto.jlineup.file.ContextTiming;
 import de.otto.jlineup.file.FileTracker;
+import de.otto.jlineup.file.FileTrackerEvent;
 import tools.jackson.core.JacksonException;
 import tools.jackson.core.json.JsonReadFeature;
+import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.DeserializationFeature;
 import tools.jackson.databind.MapperFeature;
 import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.PropertyNamingStrategies;
-import tools.jackson.databind.PropertyNamingStrategy;
 import tools.jackson.databind.json.JsonMapper;
 import tools.jackson.dataformat.yaml.YAMLMapper;
 import tools.jackson.dataformat.yaml.YAMLWriteFeature;
 
 import java.io.File;
 import java.io.Reader;
+import java.util.Map;
 
 import static tools.jackson.databind.MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS;
 import static tools.jackson.databind.SerializationFeature.INDENT_OUTPUT;
@@ -83,17 +86,20 @@ public class JacksonWrapper {
         }
     }
 
-    public static String serializeObject(Object object, ConfigFormat format) {
+    /**
+     * Serializes without indentation, so the object fits in one line of a JSON lines file.
+     */
+    public static String serializeObjectToLine(Object object) {
         try {
-            return mapperForFormat(format).writeValueAsString(object);
+            return jsonMapper().writer().without(INDENT_OUTPUT).writeValueAsString(object);
         } catch (JacksonException e) {
             throw new RuntimeException("There is a problem while writing the " + object.getClass().getCanonicalName() + " with Jackson.", e);
         }
     }
 
-    public static String serializeObjectWithPropertyNamingStrategy(Object object, PropertyNamingStrategy propertyNamingStrategy) {
+    public static String serializeObject(Object object, ConfigFormat format) {
         try {
-            return jsonMapper().rebuild().propertyNamingStrategy(propertyNamingStrategy).build().writeValueAsString(object);
+            return mapperForFormat(format).writeValueAsString(object);
         } catch (JacksonException e) {
             throw new RuntimeException("There is a problem while writing the " + object.getClass().getCanonicalName() + " with Jackson.", e);
         }
@@ -119,4 +125,20 @@ public class JacksonWrapper {
         }
     }
 
+    public static FileTrackerEvent readFileTrackerEvent(String line) {
+        try {
+            return jsonMapper().readValue(line, FileTrackerEvent.class);
+        } catch (JacksonException e) {
+            throw new RuntimeException("Could not read FileTracker journal line.", e);
+        }
+    }
+
+    public static Map<String, ContextTiming> readContextTimingsFile(File file) {
+        try {
+            return jsonMapper().readValue(file, new TypeReference<Map<String, ContextTiming>>() {});
+        } catch (JacksonException e) {
+            throw new RuntimeException("Could not read context timings file.", e);
+        }
+    }
+
 }
@@ -8,15 +8,16 @@ import de.otto.jlineup.RunStepConfig;
 import de.otto.jlineup.Utils;
 import de.otto.jlineup.config.Cookie;
 import de.otto.jlineup.config.DeviceConfig;
+import de.otto.jlineup.config.HttpCheckConfig;
 import de.otto.jlineup.config.JobConfig;
 import de.otto.jlineup.config.RunStep;
 import de.otto.jlineup.file.FileService;
 import de.otto.jlineup.file.FileUtils;
-import de.otto.jlineup.image.ImageService;
 import org.graalvm.nativeimage.ImageInfo;
 import org.openqa.selenium.Dimension;
 import org.openqa.selenium.Point;
 import org.openqa.selenium.*;
+import org.openqa.selenium.chromium.HasCdp;
 import org.openqa.selenium.logging.LogEntries;
 import org.openqa.selenium.logging.LogEntry;
 import org.openqa.selenium.logging.LogType;
@@ -27,16 +28,24 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.*;
@@ -46,7 +55,9 @@ import java.util.stream.Collectors;
 import static de.otto.jlineup.JLineupRunner.LOGFILE_NAME;
 import static de.otto.jlineup.JLineupRunner.REPORT_LOG_NAME_KEY;
 import static de.otto.jlineup.browser.BrowserUtils.RANDOM_FOLDER_PLACEHOLDER;
+import static de.otto.jlineup.browser.BrowserUtils.blocksRequests;
 import static de.otto.jlineup.browser.BrowserUtils.buildUrl;
+import static de.otto.jlineup.browser.BrowserUtils.urlPatterns;
 import static de.otto.jlineup.config.JobConfig.DEFAULT_SCROLL_DISTANCE_FACTOR;
 import static java.lang.invoke.MethodHandles.lookup;
 import static java.util.stream.Collectors.groupingBy;
@@ -55,8 +66,14 @@ public class Browser implements AutoCloseable {
 
     private final static Logger LOG = LoggerFactory.getLogger(lookup().lookupClass());
 
-    public static final int THREAD_POOL_SUBMIT_SHUFFLE_TIME_IN_MS = 233;
-    public static final int DEFAULT_SLEEP_AFTER_SCROLL_MILLIS = 50;
+    static final int SCROLL_AND_MEASURE_TIMEOUT_MILLIS = 100;
+    //Chrome can't render textures higher than 16384 pixels, so full page captures are taken in slices below that
+    static final int MAX_CAPTURE_SLICE_HEIGHT_PIXELS = 8192;
+    static final long MAX_QUIET_PAGE_WAIT_CHUNK_MILLIS = 10000;
+    static final long MIN_ANIMATION_POLL_INTERVAL_MILLIS = 25;
+    //Requests blocked through Network.setBlockedURLs fail with this reason in the network events of the performance log
+    static final String BLOCKED_BY_DEVTOOLS_MARKER = "\"blockedReason\":\"inspector\"";
+    static final long MAX_ANIMATION_POLL_INTERVAL_MILLIS = 400;
     public static final int DEFAULT_IMPLICIT_WAIT_TIME_IN_SECONDS = 60;
     public static final String JLINEUP_SLEEP_JS_OPENER = "jlineup.sleep";
 
@@ -116,11 +133,34 @@ public class Browser implements AutoCloseable {
     static final String JS_HIDE_IMAGES_CALL = "document.querySelectorAll(\"img\").forEach(img => img.style.visibility=\"hidden\");";
     static final String JS_DOCUMENT_HEIGHT_CALL = "return Math.max( document.body.scrollHeight, document.body.offsetHeight, document.documentElement.clientHeight, document.documentElement.scrollHeight, document.documentElement.offsetHeight );";
 
-    static final String JS_CLIENT_VIEWPORT_HEIGHT_CALL = "return window.innerHeight";
+    //Scrolls, waits until two frames are rendered (or the timeout is over if frames are throttled) and measures the page
+    static final String JS_SCROLL_AND_MEASURE_CALL = "var done = arguments[arguments.length - 1]; var measured = false;" +
+            "function measure() { if (measured) { return; } measured = true;" +
+            " done([Math.round(window.scrollY), Math.max( document.body.scrollHeight, document.body.offsetHeight, document.documentElement.clientHeight, document.documentElement.scrollHeight, document.documentElement.offsetHeight ), window.innerWidth, window.innerHeight, window.devicePixelRatio]); }" +
+            "window.scrollTo(0, arguments[0]);" +
+            "requestAnimationFrame(function() { requestAnimationFrame(measure); });" +
+            "setTimeout(measure, " + SCROLL_AND_MEASURE_TIMEOUT_MILLIS + ");";
+    //Counts running fetch and XHR requests and remembers the last request, loaded resource or DOM mutation
+    static final String JS_INSTALL_QUIET_PAGE_OBSERVER_CALL = "if (!window.jlineupQuietPage) {" +
+            " var q = window.jlineupQuietPage = { running: 0, last: Date.now() }; var touch = function() { q.last = Date.now(); };" +
+            " new MutationObserver(touch).observe(document, { childList: true, subtree: true, attributes: true, characterData: true });" +
+            " if (window.PerformanceObserver) { try { new PerformanceObserver(touch).observe({ type: 'resource' }); } catch (e) {} }" +
+            " if (window.fetch) { var originalFetch = window.fetch; window.fetch = function() { q.running++; touch();" +
+            " return originalFetch.apply(this, arguments).finally(function() { q.running--; touch(); }); }; }" +
+            " var originalSend = XMLHttpRequest.prototype.send; XMLHttpRequest.prototype.send = function() { q.running++; touch();" +
+            " this.addEventListener('loadend', function() { q.running--; touch(); }); return originalSend.apply(this, arguments); };" +
+            "}";
+    //Calls back with true as soon as the page was quiet for arguments[0] ms or with false after arguments[1] ms,
+    //observes the page from now on if it navigated since the observer was installed
+    static final String JS_WAIT_FOR_QUIET_PAGE_CALL = JS_INSTALL_QUIET_PAGE_OBSERVER_CALL +
+            " var done = arguments[arguments.length - 1]; var quietTime = arguments[0];" +
+            " var end = Date.now() + arguments[1]; var q = window.jlineupQuietPage;" +
+            " (function check() { var now = Date.now();" +
+            " if (q.running <= 0 && now - q.last >= quietTime) { done(true); }" +
+            " else if (now >= end) { done(false); }" +
+            " else { setTimeout(check, Math.min(50, quietTime)); } })();";
     static final String JS_SET_LOCAL_STORAGE_CALL = "localStorage.setItem('%s','%s')";
     static final String JS_SET_SESSION_STORAGE_CALL = "sessionStorage.setItem('%s','%s')";
-    static final String JS_SCROLL_TO_CALL = "window.scrollTo(0,%d)";
-    static final String JS_SCROLL_TO_TOP_CALL = "window.scrollTo(0, 0);";
     static final String JS_RETURN_DOCUMENT_FONTS_SIZE_CALL = "return document.fonts.size;";
     static final String JS_RETURN_DOCUMENT_FONTS_STATUS_LOADED_CALL = "return document.fonts.status === 'loaded';";
     static final String JS_GET_USER_AGENT_CALL = "return navigator.userAgent;";
@@ -131,7 +171,6 @@ public class Browser implements AutoCloseable {
     static final String JS_CHECK_FOR_ELEMENT_CALL = "return document.querySelector('%s') !== null;";
     static final String JS_INJECT_STYLE_CALL = "var jlineupStyle = document.createElement('style'); jlineupStyle.textContent = arguments[0]; document.head.appendChild(jlineupStyle);";
 
-    static final String JS_GET_DEVICE_PIXEL_RATIO_CALL = "return window.devicePixelRatio;";
     static final String JS_GET_BODY_COLOR_CALL = "return window.getComputedStyle(document.body).getPropertyValue('background-color').match(/\\d+/g);";
 
     private final JobConfig jobConfig;
@@ -145,6 +184,15 @@ public class Browser implements AutoCloseable {
     /* Every thread has its own WebDriver and cache warmup marks, this is manually managed through concurrent maps */
     private final ExecutorService threadPool;
     private final ConcurrentHashMap<String, WebDriver> webDrivers = new ConcurrentHashMap<>();
+    /* The device every thread's WebDriver was launched with and the device it currently emulates, used to reuse drivers */
+    private final ConcurrentHashMap<String, WebDriverDevice> webDriverDevices = new ConcurrentHashMap<>();
+    /* The origins every thread's WebDriver has visited, their storage is cleared before the driver is reused */
+    private final ConcurrentHashMap<String, Set<String>> visitedOrigins = new ConcurrentHashMap<>();
+
+    /* One http client for all setup, cleanup and accessibility check calls, accessibility checks run ahead of the browsers */
+    private final JLineupHttpClient httpClient;
+    private final ExecutorService accessibilityCheckPool;
+    private final ConcurrentHashMap<AccessibilityCheck, Future<?>> accessibilityChecks = new ConcurrentHashMap<>();
 
     private final AtomicBoolean shutdownCalled = new AtomicBoolean(false);
 
@@ -155,6 +203,9 @@ public class Browser implements AutoCloseable {
         this.browserUtils = browserUtils;
         this.threadPool = Utils.createThreadPool(jobConfig.threads, "BrowserThread");
         this.logErrorChecker = new LogErrorChecker();
+        final int httpThreads = Math.max(1, Math.max(jobConfig.threads, jobConfig.parallelSetupCalls));
+        this.httpClient = new JLineupHttpClient(httpThreads);
+        this.accessibilityCheckPool = Executors.newFixedThreadPool(Math.max(1, jobConfig.threads), Utils.createThreadFactory("HttpCheckThread"));
     }
 
     @Override
@@ -166,16 +217,21 @@ public class Browser implements AutoCloseable {
             webDrivers.forEach((threadName, webDriver) -> {
                 LOG.debug("Removing webdriver for thread {} ({})", threadName, webDriver.getClass().getCanonicalName());
                 try {
-                    webDriver.quit();
+                    releaseWebDriver(webDriver, webDriverDevices.get(threadName), visitedOrigins(threadName));
                 } catch (Exception e) {
                     LOG.error("Exception while quitting webdriver: " + e.getMessage(), e);
                 }
             });
             webDrivers.clear();
+            webDriverDevices.clear();
+            visitedOrigins.clear();
             //grepChromedrivers();
         }
         LOG.debug("Closing webdrivers done.");
 
+        accessibilityCheckPool.shutdownNow();
+        httpClient.close();
+
         if (runStepConfig.isCleanupProfile()) {
             LOG.info("Cleaning up profile directory.");
             cleanupProfileDirectory();
@@ -251,15 +307,84 @@ public class Browser implements AutoCloseable {
     }
 
     private void runTestSetupOrCleanup(List<ScreenshotContext> testSetupOrCleanupContexts) throws Exception {
-        JLineupHttpClient jLineupHttpClient = new JLineupHttpClient();
-        for (ScreenshotContext testSetupContext : testSetupOrCleanupContexts) {
-            jLineupHttpClient.callUrl(testSetupContext);
+        if (jobConfig.parallelSetupCalls <= 1 || testSetupOrCleanupContexts.size() == 1) {
+            for (ScreenshotContext testSetupContext : testSetupOrCleanupContexts) {
+                httpClient.callUrl(testSetupContext);
+            }
+            return;
+        }
+        final ExecutorService setupPool = Executors.newFixedThreadPool(Math.min(jobConfig.parallelSetupCalls, testSetupOrCleanupContexts.size()), Utils.createThreadFactory("SetupThread"));
+        try {
+            final List<Future<?>> calls = new ArrayList<>();
+            for (ScreenshotContext testSetupContext : testSetupOrCleanupContexts) {
+                calls.add(setupPool.submit(() -> {
+                    httpClient.callUrl(testSetupContext);
+                    return null;
+                }));
+            }
+            //All calls are awaited, so the first failing one in config order is reported
+            for (Future<?> call : calls) {
+                awaitHttpCall(call);
+            }
+        } finally {
+            setupPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts the accessibility check of a context on the http check threads, so it's usually done when a browser
+     * thread picks up the context. Contexts that only differ in device or browser share one check.
+     */
+    private void startAccessibilityCheck(ScreenshotContext screenshotContext) {
+        if (!needsAccessibilityCheck(screenshotContext)) {
+            return;
+        }
+        accessibilityChecks.computeIfAbsent(AccessibilityCheck.of(screenshotContext), check -> accessibilityCheckPool.submit(() -> {
+            httpClient.checkPageAccessibility(screenshotContext, jobConfig);
+            return null;
+        }));
+    }
+
+    private void awaitAccessibilityCheck(ScreenshotContext screenshotContext) throws Exception {
+        final AccessibilityCheck check = AccessibilityCheck.of(screenshotContext);
+        final Future<?> accessibilityCheck = accessibilityChecks.get(check);
+        if (accessibilityCheck == null) {
+            httpClient.checkPageAccessibility(screenshotContext, jobConfig);
+            return;
+        }
+        try {
+            awaitHttpCall(accessibilityCheck);
+        } catch (Exception e) {
+            //A retry of the context checks again
+            accessibilityChecks.remove(check, accessibilityCheck);
+            throw e;
+        }
+    }
+
+    private boolean needsAccessibilityCheck(ScreenshotContext screenshotContext) {
+        return screenshotContext.urlConfig.httpCheck.isEnabled() || jobConfig.httpCheck.isEnabled();
+    }
+
+    private static void awaitHttpCall(Future<?> call) throws Exception {
+        try {
+            call.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
         }
     }
 
-    void takeScreenshots(final List<ScreenshotContext> screenshotContextList) throws Exception {
+    void takeScreenshots(final List<ScreenshotContext> contexts) throws Exception {
+        //Contexts that took longest in the former run start first, so no long one is left at the end
+        final List<ScreenshotContext> screenshotContextList = BrowserUtils.orderLongestFirst(contexts, fileService.getContextTimings());
         Map<ScreenshotContext, Future<?>> screenshotResults = new HashMap<>();
+        //Only the first browsers start in sync, later contexts start whenever a browser thread becomes free
+        final int rampUpBrowsers = jobConfig.rampUpBrowsers > 0 ? jobConfig.rampUpBrowsers : Math.max(1, jobConfig.threads);
+        int submittedContexts = 0;
 
+        final List<ScreenshotContext> contextsToShoot = new ArrayList<>();
         for (final ScreenshotContext screenshotContext : screenshotContextList) {
             if (runStepConfig.getStep() == RunStep.before && fileService.getFileTracker().isContextAlreadyThere(screenshotContext)) {
                 if (screenshotContext.url.equals(runStepConfig.getRefreshUrl())) {
@@ -270,6 +395,12 @@ public class Browser implements AutoCloseable {
                     continue;
                 }
             }
+            contextsToShoot.add(screenshotContext);
+        }
+        //All accessibility checks start before the first browser, so they run while the browsers launch
+        contextsToShoot.forEach(this::startAccessibilityCheck);
+
+        for (final ScreenshotContext screenshotContext : contextsToShoot) {
             final Future<?> takeScreenshotsResult = threadPool.submit(() -> {
                 //This activates the sifting appender in logback.xml to have a log in the report dir.
                 MDC.put(REPORT_LOG_NAME_KEY, screenshotContext.fullPathOfReportDir + "/" + LOGFILE_NAME);
@@ -290,21 +421,34 @@ public class Browser implements AutoCloseable {
                 }
             });
             screenshotResults.put(screenshotContext, takeScreenshotsResult);
-            //submit screenshots to the browser with a slight delay, so not all instances open up in complete sync
-            Thread.sleep(THREAD_POOL_SUBMIT_SHUFFLE_TIME_IN_MS);
+            //submit the first screenshots to the browser with a slight delay, so not all instances open up in complete sync
+            if (++submittedContexts < rampUpBrowsers && jobConfig.rampUpDelay > 0) {
+                Thread.sleep(jobConfig.rampUpDelay);
+            }
         }
         LOG.debug("All tasks have been sent to browser thread pool. Queuing shutdown.");
         threadPool.shutdown();
+        accessibilityCheckPool.shutdown();
         LOG.debug("Browser thread pool shutdown queued. Doing work and awaiting termination. The global timeout is set to {} seconds.", jobConfig.globalTimeout);
         boolean ranIntoTimeout = !threadPool.awaitTermination(jobConfig.globalTimeout, TimeUnit.SECONDS);
 
         if (ranIntoTimeout) {
+            //Browser threads may still be journaling, the journal is kept and replayed on top of the last snapshot
             LOG.error("Browser thread pool ran into timeout.");
             throw new TimeoutException("Global timeout of " + jobConfig.globalTimeout + " seconds was reached. Set or increase global \"timeout\" variable in config to change default.");
         } else {
             LOG.debug("Browser thread pool terminated successfully.");
         }
 
+        //Screenshots were journaled while they were taken, the file tracker snapshot is written once all browser threads are done
+        fileService.writeFileTrackerData();
+
+        try {
+            fileService.writeContextTimings();
+        } catch (IOException e) {
+            LOG.warn("Could not write context timings: {}", e.getMessage());
+        }
+
         //Get and propagate possible exceptions
         for (Map.Entry<ScreenshotContext, Future<?>> screenshotResult : screenshotResults.entrySet()) {
             try {
@@ -334,6 +478,7 @@ public class Browser implements AutoCloseable {
     }
 
     private final AtomicBoolean printVersion = new AtomicBoolean(true);
+    private final AtomicBoolean warnedAboutRequestBlocking = new AtomicBoolean(false);
     private final Set<String> recordedBrowserVersions = ConcurrentHashMap.newKeySet();
 
     private Browser.Type getEffectiveBrowserType(ScreenshotContext screenshotContext) {
@@ -342,9 +487,10 @@ public class Browser implements AutoCloseable {
 
     private void takeScreenshotsForContext(final ScreenshotContext screenshotContext) throws Exception {
 
-        if (screenshotContext.urlConfig.httpCheck.isEnabled() || jobConfig.httpCheck.isEnabled()) {
-            JLineupHttpClient jLineupHttpClient = new JLineupHttpClient();
-            jLineupHttpClient.checkPageAccessibility(screenshotContext, jobConfig);
+        final long contextStartTime = System.nanoTime();
+
+        if (needsAccessibilityCheck(screenshotContext)) {
+            awaitAccessibilityCheck(screenshotContext);
         }
 
         Browser.Type effectiveBrowserType = getEffectiveBrowserType(screenshotContext);
@@ -392,6 +538,8 @@ public class Browser implements AutoCloseable {
             resizeViewport(localDriver, screenshotContext.deviceConfig.width, screenshotContext.deviceConfig.height);
         }
 
+        blockRequests(localDriver, screenshotContext);
+
         final String url = buildUrl(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.urlConfig.envMapping);
         final String rootUrl = buildUrl(screenshotContext.url, "", screenshotContext.urlConfig.envMapping);
 
@@ -405,7 +553,7 @@ public class Browser implements AutoCloseable {
             //if you set cookies before getting the page once, it will fail
             if (!localDriver.getCurrentUrl().equals(rootUrl)) {
                 LOG.info(String.format("Getting root url: %s to set local and session storage", rootUrl));
-                localDriver.get(rootUrl);
+                browseTo(localDriver, rootUrl);
                 logErrorChecker.checkForErrors(localDriver, jobConfig);
             }
             setLocalStorage(screenshotContext);
@@ -423,7 +571,10 @@ public class Browser implements AutoCloseable {
         //now get the real page
         //Selenium's get() method blocks until the browser/page fires an onload event (files and images referenced in the html have been loaded,
         //but there might be JS calls that load more stuff dynamically afterward).
-        localDriver.get(url);
+        browseTo(localDriver, url);
+        if (jobConfig.adaptiveWaitQuietTime > 0) {
+            ((JavascriptExecutor) localDriver).executeScript(JS_INSTALL_QUIET_PAGE_OBSERVER_CALL);
+        }
 
         waitForSelectors(screenshotContext.urlConfig.waitForSelectors,
                 screenshotContext.urlConfig.waitForSelectorsTimeout,
@@ -431,18 +582,23 @@ public class Browser implements AutoCloseable {
 
         logErrorChecker.checkForErrors(localDriver, jobConfig);
 
-        if (screenshotContext.urlConfig.waitAfterPageLoad > 0) {
-            try {
-                LOG.debug(String.format("Waiting for %f seconds (wait-after-page-load)", screenshotContext.urlConfig.waitAfterPageLoad));
-                Thread.sleep(Math.round(screenshotContext.urlConfig.waitAfterPageLoad * 1000));
-            } catch (InterruptedException e) {
-                LOG.error(e.getMessage(), e);
+        if (jobConfig.adaptiveWaitQuietTime > 0) {
+            //Both waits after page load are upper bounds for one wait for a quiet page
+            waitUntilPageIsQuiet(screenshotContext.urlConfig.waitAfterPageLoad + jobConfig.globalWaitAfterPageLoad, "wait-after-page-load");
+        } else {
+            if (screenshotContext.urlConfig.waitAfterPageLoad > 0) {
+                try {
+                    LOG.debug(String.format("Waiting for %f seconds (wait-after-page-load)", screenshotContext.urlConfig.waitAfterPageLoad));
+                    Thread.sleep(Math.round(screenshotContext.urlConfig.waitAfterPageLoad * 1000));
+                } catch (InterruptedException e) {
+                    LOG.error(e.getMessage(), e);
+                }
             }
-        }
 
-        if (jobConfig.globalWaitAfterPageLoad > 0) {
-            LOG.debug(String.format("Waiting for %f seconds (global wait-after-page-load)", jobConfig.globalWaitAfterPageLoad));
-            Thread.sleep(Math.round(jobConfig.globalWaitAfterPageLoad * 1000));
+            if (jobConfig.globalWaitAfterPageLoad > 0) {
+                LOG.debug(String.format("Waiting for %f seconds (global wait-after-page-load)", jobConfig.globalWaitAfterPageLoad));
+                Thread.sleep(Math.round(jobConfig.globalWaitAfterPageLoad * 1000));
+            }
         }
 
         //Execute custom javascript if existing
@@ -463,11 +619,11 @@ public class Browser implements AutoCloseable {
             wait.until(fontsLoaded);
         }
 
-        Long pageHeight = getPageHeight();
-        int viewportHeight = Math.toIntExact(getViewportHeight());
+        PageMetrics pageMetrics = scrollAndMeasure(0);
+        long pageHeight = pageMetrics.pageHeight();
+        int viewportHeight = Math.toIntExact(pageMetrics.viewportHeight());
 
         LOG.debug("Page height before scrolling: {}", pageHeight);
-        scrollToTop();
 
         boolean hideScrollbars = effectiveBrowserType.isWebkit();
         if (hideScrollbars) {
@@ -476,7 +632,7 @@ public class Browser implements AutoCloseable {
                     "document.documentElement.style.overflow = 'hidden';");
         }
 
-        viewportHeight = validateViewportHeight(viewportHeight);
+        viewportHeight = validateViewportHeight(viewportHeight, pageMetrics.devicePixelRatio());
         LOG.debug("Viewport height of browser window: {}", viewportHeight);
 
         //Calculate scroll distance
@@ -490,47 +646,59 @@ public class Browser implements AutoCloseable {
         // Start with screenshots
         //
 
-        for (int yPosition = 0; yPosition < pageHeight && yPosition <= screenshotContext.urlConfig.maxScrollHeight; yPosition += scrollDistance) {
-            LOG.debug("Scrolling info: yPosition: {}, pageHeight: {}, maxScrollHeight: {}, viewPortHeight: {}", yPosition, pageHeight, screenshotContext.urlConfig.maxScrollHeight, scrollDistance);
-
-            BufferedImage currentScreenshot = takeScreenshot();
-            currentScreenshot = waitForNoAnimation(screenshotContext, currentScreenshot);
-
-            if (scrollDistance == viewportHeight && yPosition + viewportHeight > pageHeight && GlobalOptions.getOption(GlobalOption.JLINEUP_CROP_LAST_SCREENSHOT).equalsIgnoreCase("true")) {
-                LOG.debug("Last screenshot. Will crop image. Page height: {}, yPosition: {}, viewportHeight: {}", pageHeight, yPosition, viewportHeight);
-
-                BufferedImage croppedAndFilledScreenshot = new BufferedImage(currentScreenshot.getWidth(), currentScreenshot.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
-                Graphics2D g = croppedAndFilledScreenshot.createGraphics();
-                g.setColor(getBodyColor());
-                g.fillRect(0, 0, currentScreenshot.getWidth(), currentScreenshot.getHeight());
-                // Draw shifted image
-                g.drawImage(currentScreenshot, 0, -(int)((yPosition + viewportHeight - pageHeight) * getDevicePixelRatio()), null);
-                currentScreenshot = croppedAndFilledScreenshot;
-            }
-
-            fileService.writeScreenshot(screenshotContext,
-                    currentScreenshot, yPosition);
-            LOG.debug("topOfViewport: {}, pageHeight: {}", yPosition, pageHeight);
-            scrollTo(yPosition + scrollDistance);
-            LOG.debug("Scroll by {} done", scrollDistance);
-
-            // Detect if browser actually scrolled — if not, we've reached the bottom
-            if (scrollDistance != viewportHeight) {
-                Long actualScrollPosition = getScrollPosition();
-                if (actualScrollPosition != null && actualScrollPosition <= yPosition) {
-                    LOG.debug("Scroll position did not advance (actual: {}, expected: {}). Reached bottom of page.", actualScrollPosition, yPosition + scrollDistance);
+        long animationSettleMillis = 0;
+        if (jobConfig.fullPageCapture && getWebDriver() instanceof HasCdp cdp) {
+            pageMetrics = scrollThroughPage(screenshotContext, pageMetrics, scrollDistance);
+            pageHeight = pageMetrics.pageHeight();
+            final long settleStartTime = System.currentTimeMillis();
+            waitForNoAnimation(screenshotContext);
+            if (screenshotContext.urlConfig.waitForNoAnimationAfterScroll > 0f) {
+                animationSettleMillis += System.currentTimeMillis() - settleStartTime;
+            }
+            takeFullPageScreenshots(screenshotContext, cdp, pageMetrics, viewportHeight, scrollDistance);
+        } else {
+            for (int yPosition = 0; yPosition < pageHeight && yPosition <= screenshotContext.urlConfig.maxScrollHeight; yPosition += scrollDistance) {
+                LOG.debug("Scrolling info: yPosition: {}, pageHeight: {}, maxScrollHeight: {}, viewPortHeight: {}", yPosition, pageHeight, screenshotContext.urlConfig.maxScrollHeight, scrollDistance);
+
+                final long settleStartTime = System.currentTimeMillis();
+                BufferedImage currentScreenshot = waitForNoAnimation(screenshotContext);
+                if (screenshotContext.urlConfig.waitForNoAnimationAfterScroll > 0f) {
+                    animationSettleMillis += System.currentTimeMillis() - settleStartTime;
+                }
+
+                if (scrollDistance == viewportHeight && yPosition + viewportHeight > pageHeight && GlobalOptions.getOption(GlobalOption.JLINEUP_CROP_LAST_SCREENSHOT).equalsIgnoreCase("true")) {
+                    LOG.debug("Last screenshot. Will crop image. Page height: {}, yPosition: {}, viewportHeight: {}", pageHeight, yPosition, viewportHeight);
+
+                    BufferedImage croppedAndFilledScreenshot = new BufferedImage(currentScreenshot.getWidth(), currentScreenshot.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
+                    Graphics2D g = croppedAndFilledScreenshot.createGraphics();
+                    g.setColor(getBodyColor());
+                    g.fillRect(0, 0, currentScreenshot.getWidth(), currentScreenshot.getHeight());
+                    // Draw shifted image
+                    g.drawImage(currentScreenshot, 0, -(int)((yPosition + viewportHeight - pageHeight) * pageMetrics.devicePixelRatio()), null);
+                    currentScreenshot = croppedAndFilledScreenshot;
+                }
+
+                fileService.writeScreenshot(screenshotContext,
+                        currentScreenshot, yPosition);
+                LOG.debug("topOfViewport: {}, pageHeight: {}", yPosition, pageHeight);
+                pageMetrics = scrollAndMeasure(yPosition + scrollDistance);
+                LOG.debug("Scroll by {} done", scrollDistance);
+
+                // Detect if browser actually scrolled — if not, we've reached the bottom
+                if (scrollDistance != viewportHeight && pageMetrics.scrollY() <= yPosition) {
+                    LOG.debug("Scroll position did not advance (actual: {}, expected: {}). Reached bottom of page.", pageMetrics.scrollY(), yPosition + scrollDistance);
                     break;
                 }
-            }
 
-            if (screenshotContext.urlConfig.waitAfterScroll > 0) {
-                LOG.debug("Waiting for {} seconds (wait after scroll).", screenshotContext.urlConfig.waitAfterScroll);
-                TimeUnit.MILLISECONDS.sleep(Math.round(screenshotContext.urlConfig.waitAfterScroll * 1000));
+                //Refresh to check if page grows during scrolling
+                pageHeight = pageMetrics.pageHeight();
+                if (screenshotContext.urlConfig.waitAfterScroll > 0) {
+                    waitAfterScroll(screenshotContext);
+                    //The page may have grown while waiting
+                    pageHeight = getPageHeight();
+                }
+                LOG.debug("Page height is {}", pageHeight);
             }
-
-            //Refresh to check if page grows during scrolling
-            pageHeight = getPageHeight();
-            LOG.debug("Page height is {}", pageHeight);
         }
 
         if (hideScrollbars) {
@@ -539,6 +707,8 @@ public class Browser implements AutoCloseable {
                     "document.documentElement.style.overflow = '';");
         }
 
+        logBlockedRequests(localDriver);
+
         if (LOG.isDebugEnabled()) {
             try {
                 LogEntries logEntries = localDriver.manage().logs().get(LogType.BROWSER);
@@ -553,13 +723,188 @@ public class Browser implements AutoCloseable {
         //TODO what about this feature?
         //String dom = getDom();
         //fileService.writeHtml(dom, screenshotContext.step);
-        fileService.writeFileTrackerData();
+        fileService.recordContextTiming(screenshotContext, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - contextStartTime), pageHeight, animationSettleMillis);
         fileService.writeFileTrackerDataForScreenshotContextOnly(screenshotContext);
     }
 
-    private int validateViewportHeight(int viewportHeight) throws IOException {
+    private void waitAfterScroll(ScreenshotContext screenshotContext) throws InterruptedException {
+        if (jobConfig.adaptiveWaitQuietTime > 0) {
+            waitUntilPageIsQuiet(screenshotContext.urlConfig.waitAfterScroll, "wait-after-scroll");
+        } else {
+            LOG.debug("Waiting for {} seconds (wait after scroll).", screenshotContext.urlConfig.waitAfterScroll);
+            TimeUnit.MILLISECONDS.sleep(Math.round(screenshotContext.urlConfig.waitAfterScroll * 1000));
+        }
+    }
+
+    /**
+     * Scrolls through the page as far as the scroll loop would, including wait-after-scroll, so content that is only
+     * loaded on scrolling is there when the page is captured without scrolling. Returns the metrics at the top again.
+     */
+    private PageMetrics scrollThroughPage(ScreenshotContext screenshotContext, PageMetrics pageMetrics, int scrollDistance) throws InterruptedException {
+        long pageHeight = pageMetrics.pageHeight();
+        for (int yPosition = scrollDistance; yPosition < pageHeight && yPosition <= screenshotContext.urlConfig.maxScrollHeight; yPosition += scrollDistance) {
+            pageHeight = scrollAndMeasure(yPosition).pageHeight();
+            if (screenshotContext.urlConfig.waitAfterScroll > 0) {
+                waitAfterScroll(screenshotContext);
+                //The page may have grown while waiting
+                pageHeight = getPageHeight();
+            }
+        }
+        LOG.debug("Scrolled through page with height {}", pageHeight);
+        return scrollAndMeasure(0);
+    }
+
+    /**
+     * Captures the page without scrolling through DevTools (Page.captureScreenshot with captureBeyondViewport) in
+     * slices of several viewports and splits them into the same screenshots per yPosition the scroll loop takes.
+     */
+    private void takeFullPageScreenshots(ScreenshotContext screenshotContext, HasCdp cdp, PageMetrics pageMetrics, int viewportHeight, int scrollDistance) throws IOException {
+        final long pageHeight = pageMetrics.pageHeight();
+        final double devicePixelRatio = pageMetrics.devicePixelRatio();
+        final boolean cropLastScreenshot = scrollDistance == viewportHeight && GlobalOptions.getOption(GlobalOption.JLINEUP_CROP_LAST_SCREENSHOT).equalsIgnoreCase("true");
+
+        final List<Integer> yPositions = new ArrayList<>();
+        for (int yPosition = 0; yPosition < pageHeight && yPosition <= screenshotContext.urlConfig.maxScrollHeight; yPosition += scrollDistance) {
+            yPositions.add(yPosition);
+        }
+        final int screenshotsPerSlice = screenshotsPerCaptureSlice(viewportHeight, scrollDistance, devicePixelRatio);
+        LOG.debug("Full page capture of {} screenshots with page height {}, {} screenshots per slice", yPositions.size(), pageHeight, screenshotsPerSlice);
+
+        Color bodyColor = null;
+        for (int from = 0; from < yPositions.size(); from += screenshotsPerSlice) {
+            final List<Integer> sliceYPositions = yPositions.subList(from, Math.min(from + screenshotsPerSlice, yPositions.size()));
+            final long sliceTop = clipTop(sliceYPositions.get(0), pageHeight, viewportHeight, cropLastScreenshot);
+            final long sliceBottom = Math.min(pageHeight, clipTop(sliceYPositions.get(sliceYPositions.size() - 1), pageHeight, viewportHeight, cropLastScreenshot) + viewportHeight);
+            final BufferedImage slice = captureSlice(cdp, pageMetrics.viewportWidth(), sliceTop, sliceBottom - sliceTop);
+
+            for (int yPosition : sliceYPositions) {
+                final int offset = Math.min(slice.getHeight() - 1, (int) Math.round((clipTop(yPosition, pageHeight, viewportHeight, cropLastScreenshot) - sliceTop) * devicePixelRatio));
+                final int screenshotHeight = (int) Math.round(viewportHeight * devicePixelRatio);
+                BufferedImage screenshot = slice.getSubimage(0, offset, slice.getWidth(), Math.min(screenshotHeight, slice.getHeight() - offset));
+                if (screenshot.getHeight() < screenshotHeight) {
+                    LOG.debug("Last screenshot. Will fill image. Page height: {}, yPosition: {}, viewportHeight: {}", pageHeight, yPosition, viewportHeight);
+                    if (bodyColor == null) {
+                        bodyColor = getBodyColor();
+                    }
+                    BufferedImage filledScreenshot = new BufferedImage(screenshot.getWidth(), screenshotHeight, BufferedImage.TYPE_4BYTE_ABGR);
+                    Graphics2D g = filledScreenshot.createGraphics();
+                    g.setColor(bodyColor);
+                    g.fillRect(0, 0, filledScreenshot.getWidth(), filledScreenshot.getHeight());
+                    g.drawImage(screenshot, 0, 0, null);
+                    g.dispose();
+                    screenshot = filledScreenshot;
+                }
+                fileService.writeScreenshot(screenshotContext, screenshot, yPosition);
+            }
+        }
+    }
+
+    //The scroll loop shows the bottom of the page in the last screenshot if it's not cropped, because the browser can't scroll further
+    static long clipTop(int yPosition, long pageHeight, int viewportHeight, boolean cropLastScreenshot) {
+        if (cropLastScreenshot || yPosition + viewportHeight <= pageHeight) {
+            return yPosition;
+        }
+        return Math.max(0, pageHeight - viewportHeight);
+    }
+
+    static int screenshotsPerCaptureSlice(int viewportHeight, int scrollDistance, double devicePixelRatio) {
+        final long maxSliceHeight = Math.round(MAX_CAPTURE_SLICE_HEIGHT_PIXELS / devicePixelRatio);
+        return (int) Math.max(1, (maxSliceHeight - viewportHeight) / scrollDistance + 1);
+    }
+
+    private BufferedImage captureSlice(HasCdp cdp, long width, long top, long height) throws IOException {
+        LOG.debug("Capturing slice from {} with height {}", top, height);
+        Map<String, Object> result = cdp.executeCdpCommand("Page.captureScreenshot", Map.of(
+                "format", "png",
+                "captureBeyondViewport", true,
+                "clip", Map.of("x", 0, "y", top, "width", width, "height", height, "scale", 1)));
+        return decodeScreenshot(Base64.getDecoder().decode((String) result.get("data")));
+    }
+
+    /**
+     * Waits until the page had no running requests and no DOM mutations for the adaptive wait quiet time, but not
+     * longer than the given time in seconds.
+     */
+    void waitUntilPageIsQuiet(float maxWaitSeconds, String waitName) {
+        if (maxWaitSeconds <= 0) {
+            return;
+        }
+        final long beginTime = System.currentTimeMillis();
+        final long deadline = beginTime + Math.round(maxWaitSeconds * 1000);
+        JavascriptExecutor jse = (JavascriptExecutor) getWebDriver();
+        boolean quiet = false;
+        long remaining;
+        while (!quiet && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            //Wait in chunks to stay below the script timeout of the webdriver
+            quiet = Boolean.TRUE.equals(jse.executeAsyncScript(JS_WAIT_FOR_QUIET_PAGE_CALL, jobConfig.adaptiveWaitQuietTime, Math.min(remaining, MAX_QUIET_PAGE_WAIT_CHUNK_MILLIS)));
+        }
+        if (quiet) {
+            LOG.debug("Page was quiet after {} ms ({} is at most {} seconds).", System.currentTimeMillis() - beginTime, waitName, maxWaitSeconds);
+        } else {
+            LOG.debug("Page was not quiet after {} seconds ({}), proceeding anyway.", maxWaitSeconds, waitName);
+        }
+    }
+
+    /**
+     * Blocks requests matching the configured blocked url patterns unless they match an allowed url pattern.
+     * Always sets the patterns if any url blocks requests, because a reused browser keeps the ones of its last context.
+     */
+    void blockRequests(WebDriver driver, ScreenshotContext screenshotContext) {
+        if (!blocksRequests(jobConfig)) {
+            return;
+        }
+        final List<String> blockedUrls = urlPatterns(jobConfig.blockedUrls, screenshotContext.urlConfig.blockedUrls);
+        final List<String> allowedUrls = urlPatterns(jobConfig.allowedUrls, screenshotContext.urlConfig.allowedUrls);
+        if (!(driver instanceof HasCdp cdp)) {
+            if (!blockedUrls.isEmpty() && !warnedAboutRequestBlocking.getAndSet(true)) {
+                LOG.warn("Blocking requests is only supported for Chrome and Chromium, all requests are loaded.");
+            }
+            return;
+        }
+        //Drop network events of the former context, so they aren't counted for this one
+        readPerformanceLog(driver);
+        LOG.debug("Blocking requests to {} except {}", blockedUrls, allowedUrls);
+        cdp.executeCdpCommand("Network.enable", Map.of());
+        final List<Map<String, Object>> urlPatterns = new ArrayList<>();
+        allowedUrls.forEach(pattern -> urlPatterns.add(Map.of("urlPattern", pattern, "block", false)));
+        blockedUrls.forEach(pattern -> urlPatterns.add(Map.of("urlPattern", pattern, "block", true)));
+        try {
+            cdp.executeCdpCommand("Network.setBlockedURLs", Map.of("urlPatterns", urlPatterns));
+        } catch (WebDriverException e) {
+            //Older Chrome versions only know plain block patterns
+            if (!allowedUrls.isEmpty() && !warnedAboutRequestBlocking.getAndSet(true)) {
+                LOG.warn("Browser doesn't support allowed url patterns, only blocked url patterns are applied: {}", e.getMessage());
+            }
+            cdp.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", blockedUrls));
+        }
+    }
+
+    private void logBlockedRequests(WebDriver driver) {
+        if (!blocksRequests(jobConfig) || !(driver instanceof HasCdp)) {
+            return;
+        }
+        final long blockedRequests = countBlockedRequests(readPerformanceLog(driver));
+        LOG.info("Blocked {} request(s).", blockedRequests);
+    }
+
+    static long countBlockedRequests(List<LogEntry> performanceLogEntries) {
+        return performanceLogEntries.stream()
+                .filter(logEntry -> logEntry.getMessage() != null && logEntry.getMessage().contains(BLOCKED_BY_DEVTOOLS_MARKER))
+                .count();
+    }
+
+    private static List<LogEntry> readPerformanceLog(WebDriver driver) {
+        try {
+            return driver.manage().logs().get(LogType.PERFORMANCE).getAll();
+        } catch (Exception e) {
+            LOG.debug("No performance log available, blocked requests can't be counted.");
+            return List.of();
+        }
+    }
+
+    private int validateViewportHeight(int viewportHeight, double devicePixelRatio) throws IOException {
         BufferedImage bufferedImage = takeScreenshot();
-        int realHeight = Math.toIntExact(Math.round(1D * bufferedImage.getHeight() / getDevicePixelRatio()));
+        int realHeight = Math.toIntExact(Math.round(1D * bufferedImage.getHeight() / devicePixelRatio));
 
         if (viewportHeight != realHeight) {
             LOG.warn("Calculated viewport height '{}' differs from screenshot height '{}'! Using screenshot height to proceed.", viewportHeight, realHeight);
@@ -632,7 +977,7 @@ public class Browser implements AutoCloseable {
             urlToSetCookie = (secure ? "https://" : "http://") + urlToSetCookie;
         }
         LOG.debug("Going to {} to set cookies afterwards.", urlToSetCookie);
-        driver.get(urlToSetCookie);
+        browseTo(driver, urlToSetCookie);
         LOG.debug("Opened {}.", urlToSetCookie);
         logErrorChecker.checkForErrors(driver, jobConfig);
 
@@ -647,7 +992,7 @@ public class Browser implements AutoCloseable {
         if (warmupTime > JobConfig.DEFAULT_WARMUP_BROWSER_CACHE_TIME) {
             LOG.info(String.format("Browsing to %s with device config %s for cache warmup", url, screenshotContext.deviceConfig.toString()));
             LOG.debug("Getting url: {}", url);
-            driver.get(url);
+            browseTo(driver, url);
             logErrorChecker.checkForErrors(driver, jobConfig);
             LOG.debug(String.format("First call of %s - waiting %f seconds for cache warmup", url, warmupTime));
             LOG.debug("Sleeping for {} seconds", warmupTime);
@@ -657,28 +1002,58 @@ public class Browser implements AutoCloseable {
     }
 
     private BufferedImage takeScreenshot() throws IOException {
+        return decodeScreenshot(takeEncodedScreenshot());
+    }
+
+    private byte[] takeEncodedScreenshot() {
         LOG.debug("Taking screenshot.");
-        File screenshot = ((TakesScreenshot) getWebDriver()).getScreenshotAs(OutputType.FILE);
-        return ImageIO.read(screenshot);
+        return ((TakesScreenshot) getWebDriver()).getScreenshotAs(OutputType.BYTES);
+    }
+
+    //decodes the PNG in memory, without a temp file from Selenium or the ImageIO file cache
+    static BufferedImage decodeScreenshot(byte[] png) throws IOException {
+        try (ImageInputStream imageInputStream = new MemoryCacheImageInputStream(new ByteArrayInputStream(png))) {
+            BufferedImage image = ImageIO.read(imageInputStream);
+            if (image == null) {
+                throw new IOException("Screenshot of " + png.length + " bytes could not be decoded.");
+            }
+            return image;
+        }
     }
 
-    private BufferedImage waitForNoAnimation(ScreenshotContext screenshotContext, BufferedImage currentScreenshot) throws IOException {
-        File screenshot;
+    /**
+     * Takes screenshots until ten of them were equal to their predecessor or the wait time is over. Screenshots are
+     * compared by their PNG bytes, which are equal for equal pixels, so only the last one is decoded. While the page
+     * is animated, the polling interval grows, so animated pages don't keep the browser busy with screenshots.
+     */
+    BufferedImage waitForNoAnimation(ScreenshotContext screenshotContext) throws IOException, InterruptedException {
+        byte[] currentScreenshot = takeEncodedScreenshot();
         float waitForNoAnimation = screenshotContext.urlConfig.waitForNoAnimationAfterScroll;
         if (waitForNoAnimation > 0f) {
             LOG.debug("Waiting for no animation.");
             final long beginTime = System.currentTimeMillis();
             int sameCounter = 0;
+            long pollInterval = 0;
             while (sameCounter < 10 && !timeIsOver(beginTime, waitForNoAnimation)) {
-                screenshot = ((TakesScreenshot) getWebDriver()).getScreenshotAs(OutputType.FILE);
-                BufferedImage newScreenshot = ImageIO.read(screenshot);
-                if (ImageService.bufferedImagesEqualQuick(newScreenshot, currentScreenshot)) {
+                if (pollInterval > 0) {
+                    Thread.sleep(pollInterval);
+                }
+                byte[] newScreenshot = takeEncodedScreenshot();
+                if (Arrays.equals(newScreenshot, currentScreenshot)) {
                     sameCounter++;
+                    pollInterval = 0;
+                } else {
+                    pollInterval = nextAnimationPollInterval(pollInterval);
                 }
                 currentScreenshot = newScreenshot;
             }
+            LOG.debug("Waited {} ms for no animation.", System.currentTimeMillis() - beginTime);
         }
-        return currentScreenshot;
+        return decodeScreenshot(currentScreenshot);
+    }
+
+    static long nextAnimationPollInterval(long pollInterval) {
+        return Math.min(MAX_ANIMATION_POLL_INTERVAL_MILLIS, Math.max(MIN_ANIMATION_POLL_INTERVAL_MILLIS, pollInterval * 2));
     }
 
     private boolean timeIsOver(long beginTime, float waitForNoAnimation) {
@@ -693,16 +1068,22 @@ public class Browser implements AutoCloseable {
         return (Long) (jse.executeScript(JS_DOCUMENT_HEIGHT_CALL));
     }
 
-    private Long getViewportHeight() {
-        LOG.debug("Getting viewport height.");
+    /**
+     * Scrolls to the given position and measures the page in one round trip to the browser.
+     */
+    PageMetrics scrollAndMeasure(int yPosition) {
+        LOG.debug("Scroll to {} and measure page", yPosition);
         JavascriptExecutor jse = (JavascriptExecutor) getWebDriver();
-        return (Long) (jse.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL));
+        List<?> metrics = (List<?>) jse.executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, yPosition);
+        return new PageMetrics(
+                ((Number) metrics.get(0)).longValue(),
+                ((Number) metrics.get(1)).longValue(),
+                ((Number) metrics.get(2)).longValue(),
+                ((Number) metrics.get(3)).longValue(),
+                ((Number) metrics.get(4)).doubleValue());
     }
 
-    private Double getDevicePixelRatio() {
-        LOG.debug("Getting device pixel ratio.");
-        JavascriptExecutor jse = (JavascriptExecutor) getWebDriver();
-        return ((Number) jse.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).doubleValue();
+    record PageMetrics(long scrollY, long pageHeight, long viewportWidth, long viewportHeight, double devicePixelRatio) {
     }
 
     private String getDom() {
@@ -770,31 +1151,6 @@ public class Browser implements AutoCloseable {
         return new Color(Integer.parseInt(bodyColor.get(0)), Integer.parseInt(bodyColor.get(1)), Integer.parseInt(bodyColor.get(2)));
     }
 
-    void scrollTo(int yPosition) throws InterruptedException {
-        LOG.debug("Scroll to {}", yPosition);
-        JavascriptExecutor jse = (JavascriptExecutor) getWebDriver();
-        jse.executeScript(String.format(JS_SCROLL_TO_CALL, yPosition));
-        //Sleep some milliseconds to give scrolling time before the next screenshot happens
-        Thread.sleep(DEFAULT_SLEEP_AFTER_SCROLL_MILLIS);
-    }
-
-    private Long getScrollPosition() {
-        JavascriptExecutor jse = (JavascriptExecutor) getWebDriver();
-        Object result = jse.executeScript("return Math.round(window.scrollY);");
-        if (result instanceof Number) {
-            return ((Number) result).longValue();
-        }
-        return null;
-    }
-
-    private void scrollToTop() throws InterruptedException {
-        LOG.debug("Scroll to top");
-        JavascriptExecutor jse = (JavascriptExecutor) getWebDriver();
-        jse.executeScript(JS_SCROLL_TO_TOP_CALL);
-        //Sleep some milliseconds to give scrolling time before the next screenshot happens
-        Thread.sleep(50);
-    }
-
     private void setLocalStorage(ScreenshotContext screenshotContext) {
         setLocalStorage(screenshotContext.urlConfig.localStorage);
     }
@@ -888,24 +1244,148 @@ public class Browser implements AutoCloseable {
             String currentThreadName = Thread.currentThread().getName();
             if (webDrivers.containsKey(currentThreadName)) {
                 WebDriver oldDriver = webDrivers.get(currentThreadName);
-                LOG.debug("Removing webdriver for thread {} ({})", currentThreadName, oldDriver.getClass().getCanonicalName());
-                try {
-                    oldDriver.close();
-                } catch (Exception e) {
-                    LOG.debug("Exception while closing webdriver: " + e.getMessage(), e);
+                WebDriverDevice oldDevice = webDriverDevices.get(currentThreadName);
+                if (jobConfig.reuseBrowsers && canSwitchDevice(oldDriver, oldDevice, device, browserType)) {
+                    try {
+                        switchDevice(oldDriver, oldDevice, device, visitedOrigins(currentThreadName));
+                        webDriverDevices.put(currentThreadName, new WebDriverDevice(browserType, oldDevice.launchedWith(), device));
+                        LOG.debug("Reusing webdriver for thread {} with emulated device {} ({})", currentThreadName, device, oldDriver.getClass().getCanonicalName());
+                        return oldDriver;
+                    } catch (Exception e) {
+                        LOG.warn("Could not switch webdriver of thread {} to device {}, launching a new one: {}", currentThreadName, device, e.getMessage());
+                    }
                 }
+                LOG.debug("Removing webdriver for thread {} ({})", currentThreadName, oldDriver.getClass().getCanonicalName());
                 try {
-                    oldDriver.quit();
+                    releaseWebDriver(oldDriver, oldDevice, visitedOrigins(currentThreadName));
                 } catch (Exception e) {
                     LOG.debug("Exception while quitting webdriver: " + e.getMessage(), e);
                 }
             }
             WebDriver driver = createDriverWithEmulatedDevice(device, browserType);
             webDrivers.put(currentThreadName, driver);
+            webDriverDevices.put(currentThreadName, new WebDriverDevice(browserType, device, device));
+            visitedOrigins.remove(currentThreadName);
             return driver;
         }
     }
 
+    private void releaseWebDriver(WebDriver driver, WebDriverDevice device, Set<String> origins) {
+        //A pooled browser is leased by its launch device next time, so it has to emulate that one again
+        if (browserUtils instanceof WebDriverPool && device != null && !device.emulated().equals(device.launchedWith())) {
+            try {
+                switchDevice(driver, device, device.launchedWith(), origins);
+            } catch (Exception e) {
+                LOG.debug("Could not switch webdriver back to its launch device: " + e.getMessage(), e);
+                //A quit browser can't be reset, so the pool drops it
+                try {
+                    driver.quit();
+                } catch (Exception quitException) {
+                    LOG.debug("Exception while quitting webdriver: " + quitException.getMessage(), quitException);
+                }
+            }
+        }
+        browserUtils.releaseWebDriver(driver, origins);
+    }
+
+    /**
+     * A running browser can be switched to another device if it's the same browser type and nothing has to be
+     * changed that can only be set on launch. Chrome and Chromium emulate metrics, touch and user agent via DevTools,
+     * and clear cookies, storage and cache of the last context via DevTools, too. Other browsers can only delete the
+     * cookies of the current domain, so they are never reused - the next context would see the storage of the last one.
+     */
+    static boolean canSwitchDevice(WebDriver driver, WebDriverDevice current, DeviceConfig device, Browser.Type browserType) {
+        if (current == null || current.browserType() != browserType || !(driver instanceof HasCdp)) {
+            return false;
+        }
+        if (device.equals(current.emulated())) {
+            return true;
+        }
+        //Named devices are resolved by chromedriver on launch and emulation of a launch with mobile emulation can't be reset
+        return current.launchedWith().isDesktop()
+                && !device.isSpecificMobile()
+                && (device.userAgent != null || current.launchedWith().userAgent == null);
+    }
+
+    private void switchDevice(WebDriver driver, WebDriverDevice current, DeviceConfig device, Set<String> origins) {
+        if (driver instanceof HasCdp cdp) {
+            clearBrowsingData(driver, cdp, origins, !jobConfig.shareBrowserCache);
+            if (device.isMobile()) {
+                cdp.executeCdpCommand("Emulation.setDeviceMetricsOverride", Map.of(
+                        "width", device.width,
+                        "height", device.height,
+                        "deviceScaleFactor", device.pixelRatio,
+                        "mobile", true));
+            } else if (current.emulated().isMobile()) {
+                cdp.executeCdpCommand("Emulation.clearDeviceMetricsOverride", Map.of());
+            }
+            if (device.touch != current.emulated().touch) {
+                cdp.executeCdpCommand("Emulation.setTouchEmulationEnabled", Map.of("enabled", device.touch));
+            }
+            if (!Objects.equals(device.userAgent, current.emulated().userAgent)) {
+                //An empty user agent removes the override
+                cdp.executeCdpCommand("Emulation.setUserAgentOverride", Map.of("userAgent", device.userAgent != null ? device.userAgent : ""));
+            }
+        } else {
+            //Only reached for pooled drivers, the pool resets them itself
+            driver.manage().deleteAllCookies();
+        }
+        if (device.isDesktop()) {
+            resizeViewport(driver, device.width, device.height);
+        }
+    }
+
+    /**
+     * Removes everything the last context left in the browser: cookies, local and session storage, IndexedDB,
+     * service workers and cache storage of every visited origin and, if requested, the http cache.
+     */
+    static void clearBrowsingData(WebDriver driver, HasCdp cdp, Set<String> origins, boolean clearCache) {
+        rememberOrigin(origins, driver.getCurrentUrl());
+        //Leave the last page first, so it can't write to its storage again after it was cleared
+        driver.get("about:blank");
+        cdp.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+        for (String origin : origins) {
+            LOG.debug("Clearing storage of {}", origin);
+            cdp.executeCdpCommand("Storage.clearDataForOrigin", Map.of("origin", origin, "storageTypes", "all"));
+        }
+        origins.clear();
+        if (clearCache) {
+            cdp.executeCdpCommand("Network.clearBrowserCache", Map.of());
+        }
+    }
+
+    private void browseTo(WebDriver driver, String url) {
+        rememberOrigin(visitedOrigins(Thread.currentThread().getName()), url);
+        driver.get(url);
+    }
+
+    private Set<String> visitedOrigins(String threadName) {
+        return visitedOrigins.computeIfAbsent(threadName, name -> ConcurrentHashMap.newKeySet());
+    }
+
+    private static void rememberOrigin(Set<String> origins, String url) {
+        final String origin = origin(url);
+        if (origin != null) {
+            origins.add(origin);
+        }
+    }
+
+    static String origin(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            final URI uri = new URI(url);
+            if (uri.getScheme() == null || uri.getHost() == null || !uri.getScheme().startsWith("http")) {
+                return null;
+            }
+            return uri.getScheme() + "://" + uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+        } catch (URISyntaxException e) {
+            LOG.debug("Can't determine origin of {}: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
     WebDriver initializeWebDriver(Browser.Type browserType) {
         if (shutdownCalled.get()) return null;
         synchronized (webDrivers) {
@@ -938,6 +1418,17 @@ public class Browser implements AutoCloseable {
         return driver;
     }
 
+    record AccessibilityCheck(String url, List<Cookie> cookies, HttpCheckConfig urlHttpCheck) {
+
+        static AccessibilityCheck of(ScreenshotContext screenshotContext) {
+            return new AccessibilityCheck(buildUrl(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.urlConfig.envMapping),
+                    screenshotContext.cookies, screenshotContext.urlConfig.httpCheck);
+        }
+    }
+
+    record WebDriverDevice(Browser.Type browserType, DeviceConfig launchedWith, DeviceConfig emulated) {
+    }
+
     private WebDriver getWebDriver() {
         synchronized (webDrivers) {
             return webDrivers.get(Thread.currentThread().getName());
@@ -7,6 +7,8 @@ import de.otto.jlineup.config.Cookie;
 import de.otto.jlineup.config.DeviceConfig;
 import de.otto.jlineup.config.JobConfig;
 import de.otto.jlineup.config.UrlConfig;
+import de.otto.jlineup.file.ContextTiming;
+import org.openqa.selenium.HasCapabilities;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
@@ -14,20 +16,31 @@ import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.firefox.FirefoxProfile;
 import org.openqa.selenium.firefox.GeckoDriverService;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
 import org.openqa.selenium.safari.SafariDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 import static de.otto.jlineup.JLineupRunner.LOGFILE_NAME;
 import static de.otto.jlineup.config.DeviceConfig.deviceConfigBuilder;
 import static de.otto.jlineup.config.JobConfig.DEFAULT_PATH;
 import static java.lang.invoke.MethodHandles.lookup;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static java.time.temporal.ChronoUnit.SECONDS;
 
 public class BrowserUtils {
@@ -37,6 +50,21 @@ public class BrowserUtils {
     //See this bug ticket also: https://issues.chromium.org/issues/40039960
     private static final boolean CHROME_DETERMINISTIC_OPTIONS = true;
     public static final String RANDOM_FOLDER_PLACEHOLDER = "{random-folder}";
+    static final String BROWSER_CACHE_DIRECTORY = "browser-cache";
+    private static final String BROWSER_CACHE_LOCK_SUFFIX = ".lock";
+    //Browsers evict the oldest entries of their disk cache beyond this size
+    static final int BROWSER_CACHE_SIZE_MEGABYTES = 256;
+    private static final String DEBUGGER_ADDRESS = "debuggerAddress";
+
+    //A browser cache directory can only be used by one browser at a time, so every browser locks a numbered one.
+    //The lock is a file lock, so browsers of other runs and processes on the same working directory skip it, too.
+    //Locks of this process are tracked here as well, closing a second channel to a locked file would release its lock.
+    private static final Set<Path> LOCKED_BROWSER_CACHE_DIRECTORIES = ConcurrentHashMap.newKeySet();
+    private final Map<WebDriver, BrowserCacheSlot> leasedBrowserCacheSlots = new IdentityHashMap<>();
+
+    //Chrome processes that host isolated browser contexts for several drivers, see contexts-per-browser
+    private final List<SharedChrome> sharedChromes = new ArrayList<>();
+    private final Map<WebDriver, IsolatedContext> isolatedContexts = new IdentityHashMap<>();
 
     public static String buildUrl(String url, String path, final Map<String, String> envMapping) {
         if (envMapping != null && !envMapping.isEmpty()) {
@@ -75,10 +103,41 @@ public class BrowserUtils {
 
     synchronized WebDriver getWebDriverByConfig(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type browserType) {
         Browser.Type effectiveBrowserType = browserType != null ? browserType : jobConfig.browser;
+        if (hostsIsolatedContexts(jobConfig, device, effectiveBrowserType)) {
+            return getIsolatedContext(jobConfig, runStepConfig, device, effectiveBrowserType);
+        }
+        return createWebDriver(jobConfig, runStepConfig, device, effectiveBrowserType);
+    }
+
+    private WebDriver createWebDriver(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type effectiveBrowserType) {
+        final BrowserCacheSlot browserCacheSlot = jobConfig.shareBrowserCache && (effectiveBrowserType.isFirefox() || effectiveBrowserType.isChrome())
+                ? leaseBrowserCacheSlot(runStepConfig, effectiveBrowserType.isFirefox() ? "firefox" : "chrome")
+                : null;
+        final WebDriver driver;
+        try {
+            driver = startBrowser(jobConfig, runStepConfig, device, effectiveBrowserType, browserCacheSlot);
+        } catch (RuntimeException e) {
+            if (browserCacheSlot != null) {
+                browserCacheSlot.release();
+            }
+            throw e;
+        }
+        if (browserCacheSlot != null) {
+            leasedBrowserCacheSlots.put(driver, browserCacheSlot);
+        }
+        return driver;
+    }
+
+    private WebDriver startBrowser(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type effectiveBrowserType, BrowserCacheSlot browserCacheSlot) {
         WebDriver driver;
         if (effectiveBrowserType.isFirefox()) {
             FirefoxOptions options = new FirefoxOptions();
             FirefoxProfile firefoxProfileWithDisabledAnimatedGifs = getFirefoxProfileWithDisabledAnimatedGifs();
+            if (browserCacheSlot != null) {
+                firefoxProfileWithDisabledAnimatedGifs.setPreference("browser.cache.disk.parent_directory", browserCacheSlot.directory().toString());
+                firefoxProfileWithDisabledAnimatedGifs.setPreference("browser.cache.disk.smart_size.enabled", false);
+                firefoxProfileWithDisabledAnimatedGifs.setPreference("browser.cache.disk.capacity", BROWSER_CACHE_SIZE_MEGABYTES * 1024);
+            }
             options.setProfile(firefoxProfileWithDisabledAnimatedGifs);
             options.addArguments(runStepConfig.getFirefoxParameters());
             if (effectiveBrowserType.isHeadless()) {
@@ -169,6 +228,18 @@ public class BrowserUtils {
                 options.setBrowserVersion(chromeVersionOverride);
             }
 
+            if (browserCacheSlot != null) {
+                options.addArguments("--disk-cache-dir=" + browserCacheSlot.directory());
+                options.addArguments("--disk-cache-size=" + BROWSER_CACHE_SIZE_MEGABYTES * 1024 * 1024);
+            }
+
+            if (blocksRequests(jobConfig)) {
+                //Blocked requests are counted from the network events in the performance log
+                LoggingPreferences loggingPreferences = new LoggingPreferences();
+                loggingPreferences.enable(LogType.PERFORMANCE, Level.ALL);
+                options.setCapability(ChromeOptions.LOGGING_PREFS, loggingPreferences);
+            }
+
             LOG.debug("Creating chrome with options: {}", options);
             driver = new ChromeDriver(options);
         } else if (effectiveBrowserType.isChromium()) {
@@ -192,6 +263,202 @@ public class BrowserUtils {
         return driver;
     }
 
+    /**
+     * Called for every driver that was created by {@link #getWebDriverByConfig} when it's not needed anymore.
+     */
+    void releaseWebDriver(WebDriver driver) {
+        final IsolatedContext isolatedContext;
+        synchronized (this) {
+            isolatedContext = isolatedContexts.remove(driver);
+        }
+        if (isolatedContext != null) {
+            closeIsolatedContext(driver, isolatedContext);
+            return;
+        }
+        try {
+            driver.quit();
+        } finally {
+            releaseBrowserCacheSlot(driver);
+        }
+    }
+
+    /**
+     * Called instead of {@link #releaseWebDriver(WebDriver)} by browsers that know which origins the driver visited,
+     * a driver that is kept running has to clear their storage.
+     */
+    void releaseWebDriver(WebDriver driver, Set<String> visitedOrigins) {
+        releaseWebDriver(driver);
+    }
+
+    /**
+     * Isolated contexts are only available for headless Chrome. Mobile devices and user agents are set on launch,
+     * so drivers for them still get a Chrome process of their own.
+     */
+    static boolean hostsIsolatedContexts(JobConfig jobConfig, DeviceConfig device, Browser.Type browserType) {
+        return jobConfig.contextsPerBrowser > 1
+                && browserType.isChrome() && browserType.isHeadless()
+                && device.isDesktop() && device.userAgent == null;
+    }
+
+    /**
+     * Attaches a new driver to a running Chrome process and opens a new browser context with a window of its own in
+     * it. Browser contexts don't share cookies, storage or cache with each other, so every driver behaves like one
+     * with a Chrome process of its own. A Chrome process hosts up to contexts-per-browser of them.
+     */
+    private WebDriver getIsolatedContext(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type browserType) {
+        final List<String> launchParameters = List.copyOf(runStepConfig.getChromeParameters());
+        SharedChrome sharedChrome = sharedChromes.stream()
+                .filter(chrome -> chrome.launchParameters.equals(launchParameters) && chrome.contexts < jobConfig.contextsPerBrowser)
+                .findFirst()
+                .orElse(null);
+        if (sharedChrome == null) {
+            final WebDriver host = launchSharedChrome(jobConfig, runStepConfig, device, browserType);
+            sharedChrome = new SharedChrome(host, debuggerAddress(host), launchParameters);
+            sharedChromes.add(sharedChrome);
+            LOG.debug("Launched chrome for {} isolated contexts at {}", jobConfig.contextsPerBrowser, sharedChrome.debuggerAddress);
+        }
+
+        ChromeOptions options = new ChromeOptions();
+        options.setExperimentalOption(DEBUGGER_ADDRESS, sharedChrome.debuggerAddress);
+        if (blocksRequests(jobConfig)) {
+            LoggingPreferences loggingPreferences = new LoggingPreferences();
+            loggingPreferences.enable(LogType.PERFORMANCE, Level.ALL);
+            options.setCapability(ChromeOptions.LOGGING_PREFS, loggingPreferences);
+        }
+        final ChromeDriver driver = attachToChrome(options);
+        try {
+            //The context is disposed by Chrome, too, if the driver goes away without closing it
+            final String browserContextId = (String) driver.executeCdpCommand("Target.createBrowserContext", Map.of("disposeOnDetach", true)).get("browserContextId");
+            final String targetId = (String) driver.executeCdpCommand("Target.createTarget", Map.of(
+                    "url", "about:blank",
+                    "browserContextId", browserContextId,
+                    "newWindow", true,
+                    "width", device.width,
+                    "height", device.height)).get("targetId");
+            //Window handles are derived from the target id
+            final String windowHandle = driver.getWindowHandles().stream()
+                    .filter(handle -> handle.endsWith(targetId))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Window of isolated browser context " + browserContextId + " not found."));
+            driver.switchTo().window(windowHandle);
+            isolatedContexts.put(driver, new IsolatedContext(sharedChrome, browserContextId, targetId));
+            sharedChrome.contexts++;
+        } catch (RuntimeException e) {
+            driver.quit();
+            if (sharedChrome.contexts == 0) {
+                sharedChromes.remove(sharedChrome);
+                releaseWebDriver(sharedChrome.host);
+            }
+            throw e;
+        }
+
+        driver.manage().timeouts().pageLoadTimeout(Duration.of(jobConfig.pageLoadTimeout, SECONDS));
+        return driver;
+    }
+
+    WebDriver launchSharedChrome(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type browserType) {
+        return createWebDriver(jobConfig, runStepConfig, device, browserType);
+    }
+
+    ChromeDriver attachToChrome(ChromeOptions options) {
+        return new ChromeDriver(options);
+    }
+
+    private void closeIsolatedContext(WebDriver driver, IsolatedContext isolatedContext) {
+        try {
+            ChromeDriver chromeDriver = (ChromeDriver) driver;
+            chromeDriver.executeCdpCommand("Target.closeTarget", Map.of("targetId", isolatedContext.targetId()));
+            chromeDriver.executeCdpCommand("Target.disposeBrowserContext", Map.of("browserContextId", isolatedContext.browserContextId()));
+        } catch (Exception e) {
+            LOG.debug("Could not close isolated browser context {}: {}", isolatedContext.browserContextId(), e.getMessage());
+        } finally {
+            //Quitting a driver that attached to a running Chrome leaves the Chrome process running
+            driver.quit();
+        }
+        final SharedChrome sharedChrome = isolatedContext.sharedChrome();
+        synchronized (this) {
+            if (--sharedChrome.contexts > 0) {
+                return;
+            }
+            sharedChromes.remove(sharedChrome);
+        }
+        LOG.debug("Quitting chrome at {}, it hosts no isolated contexts anymore", sharedChrome.debuggerAddress);
+        releaseWebDriver(sharedChrome.host);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String debuggerAddress(WebDriver driver) {
+        final Map<String, Object> chromeOptions = (Map<String, Object>) ((HasCapabilities) driver).getCapabilities().getCapability(ChromeOptions.CAPABILITY);
+        if (chromeOptions == null || chromeOptions.get(DEBUGGER_ADDRESS) == null) {
+            throw new IllegalStateException("Chrome doesn't report a debugger address, isolated browser contexts are not available.");
+        }
+        return (String) chromeOptions.get(DEBUGGER_ADDRESS);
+    }
+
+    /**
+     * The browser cache lives in the working directory, so the after step loads the assets the before step cached
+     * and the next run reuses them again. Browsers still revalidate them as the http cache headers demand.
+     */
+    static String browserCacheDirectory(RunStepConfig runStepConfig, String browserName, int slot) {
+        return Paths.get(runStepConfig.getWorkingDirectory(), BROWSER_CACHE_DIRECTORY, browserName + "-" + slot).toAbsolutePath().toString();
+    }
+
+    static BrowserCacheSlot leaseBrowserCacheSlot(RunStepConfig runStepConfig, String browserName) {
+        //Lowest slots first, their caches are the warmest ones
+        for (int slot = 0; ; slot++) {
+            final BrowserCacheSlot browserCacheSlot = BrowserCacheSlot.tryLock(Paths.get(browserCacheDirectory(runStepConfig, browserName, slot)));
+            if (browserCacheSlot != null) {
+                return browserCacheSlot;
+            }
+        }
+    }
+
+    private synchronized void releaseBrowserCacheSlot(WebDriver driver) {
+        final BrowserCacheSlot slot = leasedBrowserCacheSlots.remove(driver);
+        if (slot != null) {
+            slot.release();
+        }
+    }
+
+    /**
+     * A browser cache directory, locked through the lock file next to it as long as a browser uses it.
+     */
+    record BrowserCacheSlot(Path directory, FileChannel lockChannel) {
+
+        static BrowserCacheSlot tryLock(Path directory) {
+            if (!LOCKED_BROWSER_CACHE_DIRECTORIES.add(directory)) {
+                return null;
+            }
+            FileChannel lockChannel = null;
+            try {
+                Files.createDirectories(directory);
+                lockChannel = FileChannel.open(directory.resolveSibling(directory.getFileName() + BROWSER_CACHE_LOCK_SUFFIX), CREATE, WRITE);
+                if (lockChannel.tryLock() != null) {
+                    return new BrowserCacheSlot(directory, lockChannel);
+                }
+                LOG.debug("Browser cache directory {} is used by another process", directory);
+                new BrowserCacheSlot(directory, lockChannel).release();
+                return null;
+            } catch (IOException e) {
+                new BrowserCacheSlot(directory, lockChannel).release();
+                throw new UncheckedIOException("Could not lock browser cache directory " + directory, e);
+            }
+        }
+
+        void release() {
+            try {
+                if (lockChannel != null) {
+                    //Closing the channel releases the lock
+                    lockChannel.close();
+                }
+            } catch (IOException e) {
+                LOG.debug("Could not unlock browser cache directory {}: {}", directory, e.getMessage());
+            } finally {
+                LOCKED_BROWSER_CACHE_DIRECTORIES.remove(directory);
+            }
+        }
+    }
+
     private static Map<String, Object> getMobileEmulationPropertiesForChrome(DeviceConfig device) {
         Map<String, Object> mobileEmulation = new HashMap<>();
         if (!device.deviceName.equalsIgnoreCase("MOBILE")) {
@@ -214,6 +481,50 @@ public class BrowserUtils {
         return firefoxProfileHeadless;
     }
 
+    static boolean blocksRequests(JobConfig jobConfig) {
+        return (jobConfig.blockedUrls != null && !jobConfig.blockedUrls.isEmpty())
+                || jobConfig.urls != null && jobConfig.urls.values().stream().anyMatch(urlConfig -> urlConfig.blockedUrls != null && !urlConfig.blockedUrls.isEmpty());
+    }
+
+    /**
+     * Returns the global and the url specific patterns, global ones first.
+     */
+    static List<String> urlPatterns(Set<String> globalPatterns, Set<String> urlPatterns) {
+        final Set<String> patterns = new LinkedHashSet<>();
+        if (globalPatterns != null) {
+            patterns.addAll(globalPatterns);
+        }
+        if (urlPatterns != null) {
+            patterns.addAll(urlPatterns);
+        }
+        return new ArrayList<>(patterns);
+    }
+
+    /**
+     * Orders the contexts by the duration they took in the former run, longest first. Contexts without a recorded
+     * duration are expected to take the average duration. Without any recorded durations, the order stays as it is.
+     */
+    static List<ScreenshotContext> orderLongestFirst(List<ScreenshotContext> screenshotContexts, Map<String, ContextTiming> contextTimings) {
+        if (contextTimings == null || contextTimings.isEmpty()) {
+            return screenshotContexts;
+        }
+        final Map<ScreenshotContext, Long> expectedDurations = new HashMap<>();
+        for (ScreenshotContext screenshotContext : screenshotContexts) {
+            ContextTiming contextTiming = contextTimings.get(screenshotContext.contextHash());
+            if (contextTiming != null) {
+                expectedDurations.put(screenshotContext, contextTiming.durationMillis());
+            }
+        }
+        if (expectedDurations.isEmpty()) {
+            return screenshotContexts;
+        }
+        final long averageDuration = Math.round(expectedDurations.values().stream().mapToLong(Long::longValue).average().orElse(0));
+        List<ScreenshotContext> ordered = new ArrayList<>(screenshotContexts);
+        //Sorting is stable, so contexts with the same duration stay in config order
+        ordered.sort(Comparator.comparingLong((ScreenshotContext screenshotContext) -> expectedDurations.getOrDefault(screenshotContext, averageDuration)).reversed());
+        return ordered;
+    }
+
     public static List<ScreenshotContext> buildScreenshotContextListFromConfigAndState(RunStepConfig runStepConfig, JobConfig jobConfig) {
         List<ScreenshotContext> screenshotContextList = new ArrayList<>();
         Map<String, UrlConfig> urls = jobConfig.urls == null ? Collections.emptyMap() : jobConfig.urls;
@@ -309,4 +620,20 @@ public class BrowserUtils {
         }
         return ret;
     }
-}
\ No newline at end of file
+
+    private static final class SharedChrome {
+        private final WebDriver host;
+        private final String debuggerAddress;
+        private final List<String> launchParameters;
+        private int contexts = 0;
+
+        private SharedChrome(WebDriver host, String debuggerAddress, List<String> launchParameters) {
+            this.host = host;
+            this.debuggerAddress = debuggerAddress;
+            this.launchParameters = launchParameters;
+        }
+    }
+
+    private record IsolatedContext(SharedChrome sharedChrome, String browserContextId, String targetId) {
+    }
+}
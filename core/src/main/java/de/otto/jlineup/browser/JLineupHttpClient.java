@@ -10,112 +10,131 @@ import org.apache.hc.client5.http.cookie.BasicCookieStore;
 import org.apache.hc.client5.http.cookie.CookieStore;
 import org.apache.hc.client5.http.cookie.StandardCookieSpec;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.cookie.BasicClientCookie;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.http.HttpEntity;
-import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static de.otto.jlineup.browser.BrowserUtils.buildUrl;
 import static de.otto.jlineup.config.HttpCheckConfig.DEFAULT_ALLOWED_CODES;
 import static java.lang.invoke.MethodHandles.lookup;
 import static java.net.InetAddress.getByName;
 
-class JLineupHttpClient {
+/**
+ * Calls setup, cleanup and accessibility check urls. One client is shared by all calls of a run, so connections to
+ * the tested hosts are kept alive and reused across calls and threads.
+ */
+class JLineupHttpClient implements AutoCloseable {
 
     private final static Logger LOG = LoggerFactory.getLogger(lookup().lookupClass());
 
-    void callUrl(ScreenshotContext screenshotContext) throws Exception {
-        CookieStore cookieStore = prepareCookieStore(screenshotContext);
-        try (CloseableHttpClient client = HttpClientBuilder.create()
+    private final CloseableHttpClient client;
+    //Cookie domains are derived from the host, the lookup whether a host is local is only done once per host
+    private final Map<String, String> cookieDomains = new ConcurrentHashMap<>();
+
+    JLineupHttpClient(int maxConnectionsPerRoute) {
+        this.client = HttpClientBuilder.create()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnPerRoute(maxConnectionsPerRoute)
+                        .setMaxConnTotal(maxConnectionsPerRoute * 4)
+                        .build())
                 .setDefaultRequestConfig(RequestConfig.custom()
                         .setCookieSpec(StandardCookieSpec.RELAXED).build())
-                .setDefaultCookieStore(cookieStore)
-                .build()) {
-
-            String uri = buildUrl(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.urlConfig.envMapping);
-            final HttpGet request = new HttpGet(uri);
-            LOG.debug("Calling uri {} for setup or cleanup", uri);
-            HttpResponse response = client.execute(request);
-            int statusCode = response.getCode();
-            LOG.debug("Status code was {}", statusCode);
-            if (!DEFAULT_ALLOWED_CODES.contains(statusCode)) {
-                throw new JLineupException("Calling setup or cleanup path " + request.getRequestUri() + " returned status code " + statusCode);
-            } else {
-                LOG.info("Setup or cleanup at {} done. Return code was: {}", request.getRequestUri(), statusCode);
-            }
+                .build();
+    }
+
+    void callUrl(ScreenshotContext screenshotContext) throws Exception {
+        String uri = buildUrl(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.urlConfig.envMapping);
+        final HttpGet request = new HttpGet(uri);
+        LOG.debug("Calling uri {} for setup or cleanup", uri);
+        int statusCode = execute(request, screenshotContext, false).statusCode();
+        LOG.debug("Status code was {}", statusCode);
+        if (!DEFAULT_ALLOWED_CODES.contains(statusCode)) {
+            throw new JLineupException("Calling setup or cleanup path " + request.getRequestUri() + " returned status code " + statusCode);
+        } else {
+            LOG.info("Setup or cleanup at {} done. Return code was: {}", request.getRequestUri(), statusCode);
         }
     }
 
     void checkPageAccessibility(ScreenshotContext screenshotContext, JobConfig jobConfig) throws Exception {
 
         HttpCheckConfig httpCheck = screenshotContext.urlConfig.httpCheck.isEnabled() ? screenshotContext.urlConfig.httpCheck : jobConfig.httpCheck;
-        CookieStore cookieStore = prepareCookieStore(screenshotContext);
-
-        try (CloseableHttpClient client = HttpClientBuilder.create()
-                .setDefaultRequestConfig(RequestConfig.custom()
-                        .setCookieSpec(StandardCookieSpec.RELAXED).build())
-                .setDefaultCookieStore(cookieStore)
-                .build()) {
 
-            final HttpGet request = new HttpGet(buildUrl(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.urlConfig.envMapping));
+        final HttpGet request = new HttpGet(buildUrl(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.urlConfig.envMapping));
 
-            CloseableHttpResponse response = client.execute(request);
-            int statusCode = response.getCode();
+        List<String> errorSignals = httpCheck.getErrorSignals();
+        Response response = execute(request, screenshotContext, errorSignals != null && !errorSignals.isEmpty());
+        int statusCode = response.statusCode();
 
-            List<Integer> allowedCodes = httpCheck.getAllowedCodes();
-            if (allowedCodes == null) {
-                allowedCodes = DEFAULT_ALLOWED_CODES;
-            }
+        List<Integer> allowedCodes = httpCheck.getAllowedCodes();
+        if (allowedCodes == null) {
+            allowedCodes = DEFAULT_ALLOWED_CODES;
+        }
 
-            if (!allowedCodes.contains(statusCode)) {
-                throw new JLineupException("Accessibility check of " + request.getRequestUri() + " returned status code " + statusCode);
-            }
+        if (!allowedCodes.contains(statusCode)) {
+            throw new JLineupException("Accessibility check of " + request.getRequestUri() + " returned status code " + statusCode);
+        }
 
-            List<String> errorSignals = httpCheck.getErrorSignals();
-            if (errorSignals != null && !errorSignals.isEmpty()) {
-                HttpEntity entity = response.getEntity();
-                if (entity != null) {
-                    String body = EntityUtils.toString(entity);
-                    if (body != null) {
-                        for (String errorSignal : errorSignals) {
-                            if (body.contains(errorSignal)) {
-                                throw new JLineupException("Accessibility check of " + request.getRequestUri() + " returned error signal '" + errorSignal + "' in body ");
-                            }
-                        }
-                    }
+        if (response.body() != null) {
+            for (String errorSignal : errorSignals) {
+                if (response.body().contains(errorSignal)) {
+                    throw new JLineupException("Accessibility check of " + request.getRequestUri() + " returned error signal '" + errorSignal + "' in body ");
                 }
             }
-            LOG.info("Accessibility of {} checked and considered good! Return code was: {}", request.getRequestUri(), statusCode);
         }
+        LOG.info("Accessibility of {} checked and considered good! Return code was: {}", request.getRequestUri(), statusCode);
+    }
+
+    @Override
+    public void close() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            LOG.debug("Exception while closing http client: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Every call gets its own cookie store, so calls with different cookies can share the connections.
+     * The response body is always consumed, otherwise the connection couldn't be reused.
+     */
+    private Response execute(HttpGet request, ScreenshotContext screenshotContext, boolean readBody) throws IOException {
+        HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(prepareCookieStore(screenshotContext));
+        return client.execute(request, context, response -> {
+            HttpEntity entity = response.getEntity();
+            String body = readBody && entity != null ? EntityUtils.toString(entity) : null;
+            return new Response(response.getCode(), body);
+        });
     }
 
     private CookieStore prepareCookieStore(ScreenshotContext screenshotContext) throws MalformedURLException {
         List<Cookie> cookies = screenshotContext.cookies;
         CookieStore cookieStore = new BasicCookieStore();
+        if (cookies != null) addCookiesToStore(cookies, cookieStore, cookieDomain(new URL(screenshotContext.url).getHost()));
+        return cookieStore;
+    }
 
+    private String cookieDomain(String host) {
         //If a cookie is added without a domain, Apache HTTP Client 4.5.5 throws a NullPointerException, so we extract the domain from the URL here
-        String domain;
-        if (isUrlLocalHost(screenshotContext.url)) {
-            domain = "localhost";
-        } else {
-            domain = ".".concat(InternetDomainName.from(new URL(screenshotContext.url).getHost()).topPrivateDomain().toString());
-        }
-        if (cookies != null) addCookiesToStore(cookies, cookieStore, domain);
-        return cookieStore;
+        return cookieDomains.computeIfAbsent(host, h -> isHostLocal(h) ? "localhost" : ".".concat(InternetDomainName.from(h).topPrivateDomain().toString()));
     }
 
-    private boolean isUrlLocalHost(String url) {
+    private boolean isHostLocal(String host) {
         try {
-            InetAddress address = getByName(new URL(url).getHost());
+            InetAddress address = getByName(host);
             return address.isAnyLocalAddress() || address.isLoopbackAddress();
         } catch (Exception e) {
             e.printStackTrace();
@@ -142,4 +161,7 @@ class JLineupHttpClient {
             cookieStore.addCookie(apacheCookie);
         }
     }
+
+    private record Response(int statusCode, String body) {
+    }
 }
@@ -0,0 +1,236 @@
+package de.otto.jlineup.browser;
+
+import de.otto.jlineup.RunStepConfig;
+import de.otto.jlineup.Utils;
+import de.otto.jlineup.config.DeviceConfig;
+import de.otto.jlineup.config.JobConfig;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.time.temporal.ChronoUnit.SECONDS;
+
+/**
+ * Keeps browsers running between JLineup runs, so a run can lease a warm browser instead of launching a new one.
+ * Browsers are pooled by browser type, device and launch options, because those can only be set on launch.
+ * Returned browsers are reset to a blank page and their cookies, http cache and the storage of every origin they
+ * visited are cleared through the DevTools protocol. Browsers without it are quit instead of pooled, because they
+ * can't clear storage of other origins. Browsers that don't respond are dropped on lease and browsers that were
+ * idle longer than the max idle time are quit. If the pool holds its maximum number of browsers,
+ * the longest idle one is quit to make room, returned browsers are quit if the pool is full.
+ */
+public class WebDriverPool extends BrowserUtils implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(lookup().lookupClass());
+
+    private final int maxDrivers;
+    private final Duration maxIdleTime;
+
+    private final Map<Key, Deque<IdleDriver>> idleDrivers = new HashMap<>();
+    private final Map<WebDriver, Key> leasedDrivers = new IdentityHashMap<>();
+    private final ScheduledExecutorService evictionExecutor;
+
+    private boolean closed = false;
+
+    public WebDriverPool(int maxDrivers, Duration maxIdleTime) {
+        this.maxDrivers = maxDrivers;
+        this.maxIdleTime = maxIdleTime;
+        this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(Utils.createThreadFactory("jlineup-webdriver-pool"));
+        long evictionPeriod = Math.max(1, maxIdleTime.toSeconds() / 2);
+        this.evictionExecutor.scheduleAtFixedRate(this::evictIdleDrivers, evictionPeriod, evictionPeriod, TimeUnit.SECONDS);
+    }
+
+    @Override
+    WebDriver getWebDriverByConfig(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type browserType) {
+        final Key key = Key.of(jobConfig, runStepConfig, device, browserType);
+        WebDriver driver;
+        while ((driver = pollIdleDriver(key)) != null) {
+            if (isHealthy(driver)) {
+                LOG.debug("Leasing warm webdriver for {}", key);
+                driver.manage().timeouts().pageLoadTimeout(Duration.of(jobConfig.pageLoadTimeout, SECONDS));
+                return driver;
+            }
+            LOG.info("Dropping unresponsive webdriver for {}", key);
+            quit(driver);
+        }
+        evictLongestIdleDriverIfFull();
+        LOG.debug("Launching webdriver for {}", key);
+        driver = launchWebDriver(jobConfig, runStepConfig, device, browserType);
+        synchronized (idleDrivers) {
+            leasedDrivers.put(driver, key);
+        }
+        return driver;
+    }
+
+    WebDriver launchWebDriver(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type browserType) {
+        return super.getWebDriverByConfig(jobConfig, runStepConfig, device, browserType);
+    }
+
+    @Override
+    void releaseWebDriver(WebDriver driver) {
+        releaseWebDriver(driver, Set.of());
+    }
+
+    @Override
+    void releaseWebDriver(WebDriver driver, Set<String> visitedOrigins) {
+        final Key key;
+        synchronized (idleDrivers) {
+            key = leasedDrivers.remove(driver);
+        }
+        if (key == null || !reset(driver, key, visitedOrigins)) {
+            quit(driver);
+            return;
+        }
+        synchronized (idleDrivers) {
+            if (!closed && size() < maxDrivers) {
+                idleDrivers.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(new IdleDriver(driver, Instant.now()));
+                LOG.debug("Returned webdriver for {} to pool", key);
+                return;
+            }
+        }
+        quit(driver);
+    }
+
+    void evictIdleDrivers() {
+        final Instant idleSince = Instant.now().minus(maxIdleTime);
+        final List<WebDriver> evicted = new ArrayList<>();
+        synchronized (idleDrivers) {
+            for (Iterator<Deque<IdleDriver>> it = idleDrivers.values().iterator(); it.hasNext(); ) {
+                Deque<IdleDriver> drivers = it.next();
+                drivers.removeIf(idleDriver -> {
+                    if (!idleDriver.since().isAfter(idleSince)) {
+                        evicted.add(idleDriver.driver());
+                        return true;
+                    }
+                    return false;
+                });
+                if (drivers.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+        if (!evicted.isEmpty()) {
+            LOG.debug("Quitting {} idle webdriver(s)", evicted.size());
+        }
+        evicted.forEach(this::quit);
+    }
+
+    int idleDriverCount() {
+        synchronized (idleDrivers) {
+            return idleDrivers.values().stream().mapToInt(Deque::size).sum();
+        }
+    }
+
+    @Override
+    public void close() {
+        evictionExecutor.shutdownNow();
+        final List<WebDriver> drivers = new ArrayList<>();
+        synchronized (idleDrivers) {
+            closed = true;
+            idleDrivers.values().forEach(idle -> idle.forEach(idleDriver -> drivers.add(idleDriver.driver())));
+            idleDrivers.clear();
+        }
+        drivers.forEach(this::quit);
+    }
+
+    private WebDriver pollIdleDriver(Key key) {
+        synchronized (idleDrivers) {
+            Deque<IdleDriver> drivers = idleDrivers.get(key);
+            if (drivers == null || drivers.isEmpty()) {
+                return null;
+            }
+            //The most recently returned browser is the warmest one
+            WebDriver driver = drivers.pollLast().driver();
+            leasedDrivers.put(driver, key);
+            return driver;
+        }
+    }
+
+    private void evictLongestIdleDriverIfFull() {
+        final WebDriver evicted;
+        synchronized (idleDrivers) {
+            if (size() < maxDrivers) {
+                return;
+            }
+            Optional<Deque<IdleDriver>> longestIdle = idleDrivers.values().stream()
+                    .filter(drivers -> !drivers.isEmpty())
+                    .min(Comparator.comparing(drivers -> drivers.peekFirst().since()));
+            if (longestIdle.isEmpty()) {
+                //All browsers are leased, the caller gets a browser anyway and it's quit when it's returned
+                return;
+            }
+            evicted = longestIdle.get().pollFirst().driver();
+        }
+        quit(evicted);
+    }
+
+    private int size() {
+        return leasedDrivers.size() + idleDrivers.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    private static boolean isHealthy(WebDriver driver) {
+        try {
+            return driver.getWindowHandle() != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static boolean reset(WebDriver driver, Key key, Set<String> visitedOrigins) {
+        if (!(driver instanceof HasCdp cdp)) {
+            LOG.debug("Webdriver {} can't clear its storage, it's not returned to pool", driver.getClass().getSimpleName());
+            return false;
+        }
+        try {
+            //A shared cache is meant to be kept, the next job that shares it gets a browser with the same key
+            Browser.clearBrowsingData(driver, cdp, new HashSet<>(visitedOrigins), !key.shareBrowserCache());
+            //The next job may not block any requests
+            cdp.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", List.of()));
+            return true;
+        } catch (Exception e) {
+            LOG.debug("Could not reset webdriver, it's not returned to pool: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void quit(WebDriver driver) {
+        try {
+            super.releaseWebDriver(driver);
+        } catch (Exception e) {
+            LOG.debug("Exception while quitting webdriver: " + e.getMessage(), e);
+        }
+    }
+
+    record Key(Browser.Type browserType, DeviceConfig device, List<String> launchParameters, boolean blocksRequests,
+               boolean shareBrowserCache, String browserCacheWorkingDirectory, int contextsPerBrowser) {
+
+        static Key of(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type browserType) {
+            Browser.Type effectiveBrowserType = browserType != null ? browserType : jobConfig.browser;
+            List<String> launchParameters;
+            if (effectiveBrowserType.isFirefox()) {
+                launchParameters = runStepConfig.getFirefoxParameters();
+            } else if (effectiveBrowserType.isChrome() || effectiveBrowserType.isChromium()) {
+                launchParameters = runStepConfig.getChromeParameters();
+            } else {
+                launchParameters = List.of();
+            }
+            //Shared caches live in the working directory of the job that launched the browser
+            String browserCacheWorkingDirectory = jobConfig.shareBrowserCache ? runStepConfig.getWorkingDirectory() : null;
+            //Browsers that block requests are launched with the performance log to count them
+            return new Key(effectiveBrowserType, device, List.copyOf(launchParameters), blocksRequests(jobConfig),
+                    jobConfig.shareBrowserCache, browserCacheWorkingDirectory, jobConfig.contextsPerBrowser);
+        }
+    }
+
+    private record IdleDriver(WebDriver driver, Instant since) {
+    }
+}
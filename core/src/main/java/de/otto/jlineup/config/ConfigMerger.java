@@ -62,6 +62,8 @@ public class ConfigMerger {
                     .withWaitForFontsTime(mainUrlConfig.waitForFontsTime != DEFAULT_WAIT_FOR_FONTS_TIME ? mainUrlConfig.waitForFontsTime : mergeUrlConfig.waitForFontsTime)
                     .withWaitForNoAnimationAfterScroll(mainUrlConfig.waitForNoAnimationAfterScroll != DEFAULT_WAIT_FOR_NO_ANIMATION_AFTER_SCROLL ? mainUrlConfig.waitForNoAnimationAfterScroll : mergeUrlConfig.waitForNoAnimationAfterScroll)
                     .withWaitForSelectors(merge(mainUrlConfig.waitForSelectors, mergeUrlConfig.waitForSelectors))
+                    .withBlockedUrls(merge(mainUrlConfig.blockedUrls, mergeUrlConfig.blockedUrls))
+                    .withAllowedUrls(merge(mainUrlConfig.allowedUrls, mergeUrlConfig.allowedUrls))
                     .withWaitForSelectorsTimeout(mainUrlConfig.waitForSelectorsTimeout != DEFAULT_WAIT_FOR_SELECTORS_TIMEOUT ? mainUrlConfig.waitForSelectorsTimeout : mergeUrlConfig.waitForSelectorsTimeout)
                     .withWarmupBrowserCacheTime(mainUrlConfig.warmupBrowserCacheTime != DEFAULT_WARMUP_BROWSER_CACHE_TIME ? mainUrlConfig.warmupBrowserCacheTime : mergeUrlConfig.warmupBrowserCacheTime)
                     .withStyle(mainUrlConfig.style != null ? mainUrlConfig.style : mergeUrlConfig.style)
@@ -115,6 +117,25 @@ public class ConfigMerger {
         mergedJobConfigBuilder.withCheckForErrorsInLog(originalConfig.checkForErrorsInLog || mergeConfig.checkForErrorsInLog);
         mergedJobConfigBuilder.withHttpCheck(!originalConfig.httpCheck.equals(DEFAULT_HTTP_CHECK_CONFIG) ? originalConfig.httpCheck : mergeConfig.httpCheck);
         mergedJobConfigBuilder.withFlakyTolerance(originalConfig.flakyTolerance != DEFAULT_FLAKY_TOLERANCE ? originalConfig.flakyTolerance : mergeConfig.flakyTolerance);
+        mergedJobConfigBuilder.withCompareThreads(originalConfig.compareThreads != DEFAULT_COMPARE_THREADS ? originalConfig.compareThreads : mergeConfig.compareThreads);
+        mergedJobConfigBuilder.withSkipDifferenceImages(originalConfig.skipDifferenceImages || mergeConfig.skipDifferenceImages);
+        mergedJobConfigBuilder.withPngCompressionLevel(originalConfig.pngCompressionLevel != DEFAULT_PNG_COMPRESSION_LEVEL ? originalConfig.pngCompressionLevel : mergeConfig.pngCompressionLevel);
+        mergedJobConfigBuilder.withCompareDecodeThreads(originalConfig.compareDecodeThreads != DEFAULT_COMPARE_DECODE_THREADS ? originalConfig.compareDecodeThreads : mergeConfig.compareDecodeThreads);
+        mergedJobConfigBuilder.withParallelComparisons(originalConfig.parallelComparisons != DEFAULT_PARALLEL_COMPARISONS ? originalConfig.parallelComparisons : mergeConfig.parallelComparisons);
+        mergedJobConfigBuilder.withCompareEncodeThreads(originalConfig.compareEncodeThreads != DEFAULT_COMPARE_ENCODE_THREADS ? originalConfig.compareEncodeThreads : mergeConfig.compareEncodeThreads);
+        mergedJobConfigBuilder.withCompareMemoryBudget(originalConfig.compareMemoryBudget != DEFAULT_COMPARE_MEMORY_BUDGET ? originalConfig.compareMemoryBudget : mergeConfig.compareMemoryBudget);
+        mergedJobConfigBuilder.withCompareWhileCapturing(originalConfig.compareWhileCapturing || mergeConfig.compareWhileCapturing);
+        mergedJobConfigBuilder.withReuseBrowsers(originalConfig.reuseBrowsers || mergeConfig.reuseBrowsers);
+        mergedJobConfigBuilder.withRampUpBrowsers(originalConfig.rampUpBrowsers != DEFAULT_RAMP_UP_BROWSERS ? originalConfig.rampUpBrowsers : mergeConfig.rampUpBrowsers);
+        mergedJobConfigBuilder.withRampUpDelay(originalConfig.rampUpDelay != DEFAULT_RAMP_UP_DELAY ? originalConfig.rampUpDelay : mergeConfig.rampUpDelay);
+        mergedJobConfigBuilder.withFullPageCapture(originalConfig.fullPageCapture || mergeConfig.fullPageCapture);
+        mergedJobConfigBuilder.withAdaptiveWaitQuietTime(originalConfig.adaptiveWaitQuietTime != DEFAULT_ADAPTIVE_WAIT_QUIET_TIME ? originalConfig.adaptiveWaitQuietTime : mergeConfig.adaptiveWaitQuietTime);
+        mergedJobConfigBuilder.withBlockedUrls(merge(originalConfig.blockedUrls, mergeConfig.blockedUrls));
+        mergedJobConfigBuilder.withAllowedUrls(merge(originalConfig.allowedUrls, mergeConfig.allowedUrls));
+        mergedJobConfigBuilder.withShareBrowserCache(originalConfig.shareBrowserCache || mergeConfig.shareBrowserCache);
+        mergedJobConfigBuilder.withContextsPerBrowser(originalConfig.contextsPerBrowser != DEFAULT_CONTEXTS_PER_BROWSER ? originalConfig.contextsPerBrowser : mergeConfig.contextsPerBrowser);
+        mergedJobConfigBuilder.withParallelSetupCalls(originalConfig.parallelSetupCalls != DEFAULT_PARALLEL_SETUP_CALLS ? originalConfig.parallelSetupCalls : mergeConfig.parallelSetupCalls);
+        mergedJobConfigBuilder.withPaginatedReport(originalConfig.paginatedReport || mergeConfig.paginatedReport);
     }
 
 }
@@ -65,6 +65,17 @@ public final class JobConfig  {
     static final int DEFAULT_GLOBAL_TIMEOUT = 1800;
     public static final float DEFAULT_WAIT_FOR_SELECTORS_TIMEOUT = 10.0f;
     public static final int DEFAULT_FLAKY_TOLERANCE = 0;
+    public static final int DEFAULT_COMPARE_THREADS = 0; // '0' means one thread per available processor
+    public static final int DEFAULT_PNG_COMPRESSION_LEVEL = -1; // '-1' means the PNG encoder of Java ImageIO is used
+    public static final int DEFAULT_COMPARE_DECODE_THREADS = 0; // '0' means one thread per available processor
+    public static final int DEFAULT_PARALLEL_COMPARISONS = 0; // '0' means one comparison per available processor
+    public static final int DEFAULT_COMPARE_ENCODE_THREADS = 0; // '0' means one thread per available processor
+    public static final int DEFAULT_COMPARE_MEMORY_BUDGET = 0; // in megabytes, '0' means a quarter of the maximum heap size
+    public static final int DEFAULT_RAMP_UP_BROWSERS = 0; // '0' means one per thread
+    public static final int DEFAULT_RAMP_UP_DELAY = 233; // in milliseconds
+    public static final int DEFAULT_ADAPTIVE_WAIT_QUIET_TIME = 0; // in milliseconds, '0' means fixed waits
+    public static final int DEFAULT_CONTEXTS_PER_BROWSER = 1; // '1' means one browser process per thread
+    public static final int DEFAULT_PARALLEL_SETUP_CALLS = 1; // '1' means one call after the other
 
     public static final HttpCheckConfig DEFAULT_HTTP_CHECK_CONFIG = new HttpCheckConfig();
 
@@ -103,6 +114,63 @@ public final class JobConfig  {
     @JsonInclude(Include.NON_DEFAULT)
     public final int flakyTolerance;
 
+    @JsonInclude(Include.NON_DEFAULT)
+    public final int compareThreads;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final boolean skipDifferenceImages;
+
+    @JsonInclude(value = Include.CUSTOM, valueFilter = PngCompressionLevelFilter.class)
+    public final int pngCompressionLevel;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final int compareDecodeThreads;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final int parallelComparisons;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final int compareEncodeThreads;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final int compareMemoryBudget;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final boolean compareWhileCapturing;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final boolean reuseBrowsers;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final int rampUpBrowsers;
+
+    @JsonInclude(value = Include.CUSTOM, valueFilter = RampUpDelayFilter.class)
+    public final int rampUpDelay;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final boolean fullPageCapture;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final int adaptiveWaitQuietTime;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final Set<String> blockedUrls;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final Set<String> allowedUrls;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final boolean shareBrowserCache;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final int contextsPerBrowser;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final int parallelSetupCalls;
+
+    @JsonInclude(Include.NON_DEFAULT)
+    public final boolean paginatedReport;
+
     @JsonInclude(Include.NON_DEFAULT)
     public final JobConfig mergeConfig;
 
@@ -135,6 +203,25 @@ public final class JobConfig  {
         checkForErrorsInLog = builder.checkForErrorsInLog;
         httpCheck = builder.httpCheck;
         flakyTolerance = builder.flakyTolerance;
+        compareThreads = builder.compareThreads;
+        skipDifferenceImages = builder.skipDifferenceImages;
+        pngCompressionLevel = builder.pngCompressionLevel;
+        compareDecodeThreads = builder.compareDecodeThreads;
+        parallelComparisons = builder.parallelComparisons;
+        compareEncodeThreads = builder.compareEncodeThreads;
+        compareMemoryBudget = builder.compareMemoryBudget;
+        compareWhileCapturing = builder.compareWhileCapturing;
+        reuseBrowsers = builder.reuseBrowsers;
+        rampUpBrowsers = builder.rampUpBrowsers;
+        rampUpDelay = builder.rampUpDelay;
+        fullPageCapture = builder.fullPageCapture;
+        adaptiveWaitQuietTime = builder.adaptiveWaitQuietTime;
+        blockedUrls = builder.blockedUrls;
+        allowedUrls = builder.allowedUrls;
+        shareBrowserCache = builder.shareBrowserCache;
+        contextsPerBrowser = builder.contextsPerBrowser;
+        parallelSetupCalls = builder.parallelSetupCalls;
+        paginatedReport = builder.paginatedReport;
         mergeConfig = builder.mergeConfig;
     }
 
@@ -296,6 +383,82 @@ public final class JobConfig  {
         return flakyTolerance;
     }
 
+    public int getCompareThreads() {
+        return compareThreads;
+    }
+
+    public boolean isSkipDifferenceImages() {
+        return skipDifferenceImages;
+    }
+
+    public int getPngCompressionLevel() {
+        return pngCompressionLevel;
+    }
+
+    public int getCompareDecodeThreads() {
+        return compareDecodeThreads;
+    }
+
+    public int getParallelComparisons() {
+        return parallelComparisons;
+    }
+
+    public int getCompareEncodeThreads() {
+        return compareEncodeThreads;
+    }
+
+    public int getCompareMemoryBudget() {
+        return compareMemoryBudget;
+    }
+
+    public boolean isCompareWhileCapturing() {
+        return compareWhileCapturing;
+    }
+
+    public boolean isReuseBrowsers() {
+        return reuseBrowsers;
+    }
+
+    public int getRampUpBrowsers() {
+        return rampUpBrowsers;
+    }
+
+    public int getRampUpDelay() {
+        return rampUpDelay;
+    }
+
+    public boolean isFullPageCapture() {
+        return fullPageCapture;
+    }
+
+    public int getAdaptiveWaitQuietTime() {
+        return adaptiveWaitQuietTime;
+    }
+
+    public Set<String> getBlockedUrls() {
+        return blockedUrls;
+    }
+
+    public Set<String> getAllowedUrls() {
+        return allowedUrls;
+    }
+
+    public boolean isShareBrowserCache() {
+        return shareBrowserCache;
+    }
+
+    public int getContextsPerBrowser() {
+        return contextsPerBrowser;
+    }
+
+    public int getParallelSetupCalls() {
+        return parallelSetupCalls;
+    }
+
+    public boolean isPaginatedReport() {
+        return paginatedReport;
+    }
+
     public JobConfig getMergeConfig() {
         return mergeConfig;
     }
@@ -331,7 +494,26 @@ public final class JobConfig  {
                 .withLogToFile(jobConfig.logToFile)
                 .withMergeConfig(jobConfig.mergeConfig)
                 .withCheckForErrorsInLog(jobConfig.checkForErrorsInLog)
-                .withFlakyTolerance(jobConfig.flakyTolerance);
+                .withFlakyTolerance(jobConfig.flakyTolerance)
+                .withCompareThreads(jobConfig.compareThreads)
+                .withSkipDifferenceImages(jobConfig.skipDifferenceImages)
+                .withPngCompressionLevel(jobConfig.pngCompressionLevel)
+                .withCompareDecodeThreads(jobConfig.compareDecodeThreads)
+                .withParallelComparisons(jobConfig.parallelComparisons)
+                .withCompareEncodeThreads(jobConfig.compareEncodeThreads)
+                .withCompareMemoryBudget(jobConfig.compareMemoryBudget)
+                .withCompareWhileCapturing(jobConfig.compareWhileCapturing)
+                .withReuseBrowsers(jobConfig.reuseBrowsers)
+                .withRampUpBrowsers(jobConfig.rampUpBrowsers)
+                .withRampUpDelay(jobConfig.rampUpDelay)
+                .withFullPageCapture(jobConfig.fullPageCapture)
+                .withAdaptiveWaitQuietTime(jobConfig.adaptiveWaitQuietTime)
+                .withBlockedUrls(jobConfig.blockedUrls)
+                .withAllowedUrls(jobConfig.allowedUrls)
+                .withShareBrowserCache(jobConfig.shareBrowserCache)
+                .withContextsPerBrowser(jobConfig.contextsPerBrowser)
+                .withParallelSetupCalls(jobConfig.parallelSetupCalls)
+                .withPaginatedReport(jobConfig.paginatedReport);
     }
 
     @Override
@@ -339,12 +521,12 @@ public final class JobConfig  {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         JobConfig jobConfig = (JobConfig) o;
-        return pageLoadTimeout == jobConfig.pageLoadTimeout && screenshotRetries == jobConfig.screenshotRetries && threads == jobConfig.threads && globalTimeout == jobConfig.globalTimeout && flakyTolerance == jobConfig.flakyTolerance && debug == jobConfig.debug && logToFile == jobConfig.logToFile && checkForErrorsInLog == jobConfig.checkForErrorsInLog && Objects.equals(urls, jobConfig.urls) && browser == jobConfig.browser && Objects.equals(browsers, jobConfig.browsers) && Objects.equals(name, jobConfig.name) && Objects.equals(message, jobConfig.message) && Objects.equals(approvalLink, jobConfig.approvalLink) && Objects.equals(globalWaitAfterPageLoad, jobConfig.globalWaitAfterPageLoad) && Objects.equals(windowHeight, jobConfig.windowHeight) && Objects.equals(httpCheck, jobConfig.httpCheck) && Objects.equals(mergeConfig, jobConfig.mergeConfig);
+        return pageLoadTimeout == jobConfig.pageLoadTimeout && screenshotRetries == jobConfig.screenshotRetries && threads == jobConfig.threads && globalTimeout == jobConfig.globalTimeout && flakyTolerance == jobConfig.flakyTolerance && debug == jobConfig.debug && logToFile == jobConfig.logToFile && checkForErrorsInLog == jobConfig.checkForErrorsInLog && Objects.equals(urls, jobConfig.urls) && browser == jobConfig.browser && Objects.equals(browsers, jobConfig.browsers) && Objects.equals(name, jobConfig.name) && Objects.equals(message, jobConfig.message) && Objects.equals(approvalLink, jobConfig.approvalLink) && Objects.equals(globalWaitAfterPageLoad, jobConfig.globalWaitAfterPageLoad) && Objects.equals(windowHeight, jobConfig.windowHeight) && Objects.equals(httpCheck, jobConfig.httpCheck) && compareThreads == jobConfig.compareThreads && skipDifferenceImages == jobConfig.skipDifferenceImages && pngCompressionLevel == jobConfig.pngCompressionLevel && compareDecodeThreads == jobConfig.compareDecodeThreads && parallelComparisons == jobConfig.parallelComparisons && compareEncodeThreads == jobConfig.compareEncodeThreads && compareMemoryBudget == jobConfig.compareMemoryBudget && compareWhileCapturing == jobConfig.compareWhileCapturing && reuseBrowsers == jobConfig.reuseBrowsers && rampUpBrowsers == jobConfig.rampUpBrowsers && rampUpDelay == jobConfig.rampUpDelay && fullPageCapture == jobConfig.fullPageCapture && adaptiveWaitQuietTime == jobConfig.adaptiveWaitQuietTime && Objects.equals(blockedUrls, jobConfig.blockedUrls) && Objects.equals(allowedUrls, jobConfig.allowedUrls) && shareBrowserCache == jobConfig.shareBrowserCache && contextsPerBrowser == jobConfig.contextsPerBrowser && parallelSetupCalls == jobConfig.parallelSetupCalls && paginatedReport == jobConfig.paginatedReport && Objects.equals(mergeConfig, jobConfig.mergeConfig);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(urls, browser, browsers, name, message, approvalLink, globalWaitAfterPageLoad, pageLoadTimeout, windowHeight, screenshotRetries, threads, globalTimeout, flakyTolerance, debug, logToFile, checkForErrorsInLog, httpCheck, mergeConfig);
+        return Objects.hash(urls, browser, browsers, name, message, approvalLink, globalWaitAfterPageLoad, pageLoadTimeout, windowHeight, screenshotRetries, threads, globalTimeout, flakyTolerance, debug, logToFile, checkForErrorsInLog, httpCheck, compareThreads, skipDifferenceImages, pngCompressionLevel, compareDecodeThreads, parallelComparisons, compareEncodeThreads, compareMemoryBudget, compareWhileCapturing, reuseBrowsers, rampUpBrowsers, rampUpDelay, fullPageCapture, adaptiveWaitQuietTime, blockedUrls, allowedUrls, shareBrowserCache, contextsPerBrowser, parallelSetupCalls, paginatedReport, mergeConfig);
     }
 
     @Override
@@ -367,6 +549,25 @@ public final class JobConfig  {
                 ", checkForErrorsInLog=" + checkForErrorsInLog +
                 ", httpCheck=" + httpCheck +
                 ", flakyTolerance=" + flakyTolerance +
+                ", compareThreads=" + compareThreads +
+                ", skipDifferenceImages=" + skipDifferenceImages +
+                ", pngCompressionLevel=" + pngCompressionLevel +
+                ", compareDecodeThreads=" + compareDecodeThreads +
+                ", parallelComparisons=" + parallelComparisons +
+                ", compareEncodeThreads=" + compareEncodeThreads +
+                ", compareMemoryBudget=" + compareMemoryBudget +
+                ", compareWhileCapturing=" + compareWhileCapturing +
+                ", reuseBrowsers=" + reuseBrowsers +
+                ", rampUpBrowsers=" + rampUpBrowsers +
+                ", rampUpDelay=" + rampUpDelay +
+                ", fullPageCapture=" + fullPageCapture +
+                ", adaptiveWaitQuietTime=" + adaptiveWaitQuietTime +
+                ", blockedUrls=" + blockedUrls +
+                ", allowedUrls=" + allowedUrls +
+                ", shareBrowserCache=" + shareBrowserCache +
+                ", contextsPerBrowser=" + contextsPerBrowser +
+                ", parallelSetupCalls=" + parallelSetupCalls +
+                ", paginatedReport=" + paginatedReport +
                 ", mergeConfig=" + mergeConfig +
                 '}';
     }
@@ -512,6 +713,25 @@ public final class JobConfig  {
         private boolean checkForErrorsInLog = false;
         private HttpCheckConfig httpCheck = DEFAULT_HTTP_CHECK_CONFIG;
         private int flakyTolerance = DEFAULT_FLAKY_TOLERANCE;
+        private int compareThreads = DEFAULT_COMPARE_THREADS;
+        private boolean skipDifferenceImages = false;
+        private int pngCompressionLevel = DEFAULT_PNG_COMPRESSION_LEVEL;
+        private int compareDecodeThreads = DEFAULT_COMPARE_DECODE_THREADS;
+        private int parallelComparisons = DEFAULT_PARALLEL_COMPARISONS;
+        private int compareEncodeThreads = DEFAULT_COMPARE_ENCODE_THREADS;
+        private int compareMemoryBudget = DEFAULT_COMPARE_MEMORY_BUDGET;
+        private boolean compareWhileCapturing = false;
+        private boolean reuseBrowsers = false;
+        private int rampUpBrowsers = DEFAULT_RAMP_UP_BROWSERS;
+        private int rampUpDelay = DEFAULT_RAMP_UP_DELAY;
+        private boolean fullPageCapture = false;
+        private int adaptiveWaitQuietTime = DEFAULT_ADAPTIVE_WAIT_QUIET_TIME;
+        private Set<String> blockedUrls = null;
+        private Set<String> allowedUrls = null;
+        private boolean shareBrowserCache = false;
+        private int contextsPerBrowser = DEFAULT_CONTEXTS_PER_BROWSER;
+        private int parallelSetupCalls = DEFAULT_PARALLEL_SETUP_CALLS;
+        private boolean paginatedReport = false;
         public JobConfig mergeConfig;
 
         private Builder() {
@@ -609,6 +829,101 @@ public final class JobConfig  {
             return this;
         }
 
+        public Builder withCompareThreads(int val) {
+            compareThreads = val;
+            return this;
+        }
+
+        public Builder withSkipDifferenceImages(boolean val) {
+            skipDifferenceImages = val;
+            return this;
+        }
+
+        public Builder withPngCompressionLevel(int val) {
+            pngCompressionLevel = val;
+            return this;
+        }
+
+        public Builder withCompareDecodeThreads(int val) {
+            compareDecodeThreads = val;
+            return this;
+        }
+
+        public Builder withParallelComparisons(int val) {
+            parallelComparisons = val;
+            return this;
+        }
+
+        public Builder withCompareEncodeThreads(int val) {
+            compareEncodeThreads = val;
+            return this;
+        }
+
+        public Builder withCompareMemoryBudget(int val) {
+            compareMemoryBudget = val;
+            return this;
+        }
+
+        public Builder withCompareWhileCapturing(boolean val) {
+            compareWhileCapturing = val;
+            return this;
+        }
+
+        public Builder withReuseBrowsers(boolean val) {
+            reuseBrowsers = val;
+            return this;
+        }
+
+        public Builder withRampUpBrowsers(int val) {
+            rampUpBrowsers = val;
+            return this;
+        }
+
+        public Builder withRampUpDelay(int val) {
+            rampUpDelay = val;
+            return this;
+        }
+
+        public Builder withFullPageCapture(boolean val) {
+            fullPageCapture = val;
+            return this;
+        }
+
+        public Builder withAdaptiveWaitQuietTime(int val) {
+            adaptiveWaitQuietTime = val;
+            return this;
+        }
+
+        public Builder withBlockedUrls(Set<String> val) {
+            blockedUrls = val;
+            return this;
+        }
+
+        public Builder withAllowedUrls(Set<String> val) {
+            allowedUrls = val;
+            return this;
+        }
+
+        public Builder withShareBrowserCache(boolean val) {
+            shareBrowserCache = val;
+            return this;
+        }
+
+        public Builder withContextsPerBrowser(int val) {
+            contextsPerBrowser = val;
+            return this;
+        }
+
+        public Builder withParallelSetupCalls(int val) {
+            parallelSetupCalls = val;
+            return this;
+        }
+
+        public Builder withPaginatedReport(boolean val) {
+            paginatedReport = val;
+            return this;
+        }
+
         public Builder withMergeConfig(JobConfig val) {
             mergeConfig = val;
             return this;
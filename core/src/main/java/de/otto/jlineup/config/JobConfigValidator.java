@@ -25,6 +25,31 @@ public class JobConfigValidator {
             throw new ValidationError(String.format("Configured window height is invalid: %d. Valid values are between 100 and 10000", jobConfig.windowHeight));
         }
 
+        //Check png compression level
+        if (jobConfig.pngCompressionLevel < -1 || jobConfig.pngCompressionLevel > 9) {
+            throw new ValidationError(String.format("Configured PNG compression level is invalid: %d. Valid values are between 0 and 9 or -1 for the default encoder", jobConfig.pngCompressionLevel));
+        }
+
+        //Check browser ramp up
+        if (jobConfig.rampUpBrowsers < 0 || jobConfig.rampUpDelay < 0) {
+            throw new ValidationError(String.format("Configured ramp up is invalid: %d browsers with %d ms delay. Values must not be negative", jobConfig.rampUpBrowsers, jobConfig.rampUpDelay));
+        }
+
+        //Check adaptive wait
+        if (jobConfig.adaptiveWaitQuietTime < 0) {
+            throw new ValidationError(String.format("Configured adaptive wait quiet time is invalid: %d. Value must not be negative", jobConfig.adaptiveWaitQuietTime));
+        }
+
+        //Check isolated browser contexts
+        if (jobConfig.contextsPerBrowser < 1) {
+            throw new ValidationError(String.format("Configured contexts per browser are invalid: %d. Value must be at least 1", jobConfig.contextsPerBrowser));
+        }
+
+        //Check parallel setup calls
+        if (jobConfig.parallelSetupCalls < 1) {
+            throw new ValidationError(String.format("Configured parallel setup calls are invalid: %d. Value must be at least 1", jobConfig.parallelSetupCalls));
+        }
+
         for (Map.Entry<String, UrlConfig> urlConfigEntry : jobConfig.urls.entrySet()) {
 
             UrlConfig urlConfig = urlConfigEntry.getValue();
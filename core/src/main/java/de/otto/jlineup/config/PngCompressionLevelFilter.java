@@ -0,0 +1,11 @@
+package de.otto.jlineup.config;
+
+import static de.otto.jlineup.config.JobConfig.DEFAULT_PNG_COMPRESSION_LEVEL;
+
+public class PngCompressionLevelFilter {
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == null || obj.equals(DEFAULT_PNG_COMPRESSION_LEVEL);
+    }
+}
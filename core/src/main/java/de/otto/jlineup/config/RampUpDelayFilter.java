@@ -0,0 +1,11 @@
+package de.otto.jlineup.config;
+
+import static de.otto.jlineup.config.JobConfig.DEFAULT_RAMP_UP_DELAY;
+
+public class RampUpDelayFilter {
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == null || obj.equals(DEFAULT_RAMP_UP_DELAY);
+    }
+}
@@ -56,6 +56,10 @@ public class UrlConfig {
 
     public final Set<String> removeSelectors;
     public final Set<String> waitForSelectors;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public final Set<String> blockedUrls;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public final Set<String> allowedUrls;
     public final float waitForSelectorsTimeout;
     public final boolean failIfSelectorsNotFound;
 
@@ -100,6 +104,8 @@ public class UrlConfig {
         maxColorDistance = builder.maxColorDistance;
         removeSelectors = builder.removeSelectors;
         waitForSelectors = builder.waitForSelectors;
+        blockedUrls = builder.blockedUrls;
+        allowedUrls = builder.allowedUrls;
         waitForSelectorsTimeout = builder.waitForSelectorsTimeout;
         failIfSelectorsNotFound = builder.failIfSelectorsNotFound;
         flakyTolerance = builder.flakyTolerance;
@@ -240,6 +246,14 @@ public class UrlConfig {
         return waitForSelectors;
     }
 
+    public Set<String> getBlockedUrls() {
+        return blockedUrls;
+    }
+
+    public Set<String> getAllowedUrls() {
+        return allowedUrls;
+    }
+
     public float getWaitForSelectorsTimeout() {
         return waitForSelectorsTimeout;
     }
@@ -303,6 +317,8 @@ public class UrlConfig {
         builder.maxColorDistance = copy.maxColorDistance;
         builder.removeSelectors = copy.removeSelectors;
         builder.waitForSelectors = copy.waitForSelectors;
+        builder.blockedUrls = copy.blockedUrls;
+        builder.allowedUrls = copy.allowedUrls;
         builder.waitForSelectorsTimeout = copy.waitForSelectorsTimeout;
         builder.failIfSelectorsNotFound = copy.failIfSelectorsNotFound;
         builder.flakyTolerance = copy.flakyTolerance;
@@ -355,6 +371,8 @@ public class UrlConfig {
         private double maxColorDistance = DEFAULT_MAX_COLOR_DISTANCE;
         private Set<String> removeSelectors;
         private Set<String> waitForSelectors;
+        private Set<String> blockedUrls;
+        private Set<String> allowedUrls;
         private float waitForSelectorsTimeout = DEFAULT_WAIT_FOR_SELECTORS_TIMEOUT;
         private boolean failIfSelectorsNotFound;
         private int flakyTolerance = DEFAULT_FLAKY_TOLERANCE;
@@ -536,6 +554,16 @@ public class UrlConfig {
             return this;
         }
 
+        public Builder withBlockedUrls(Set<String> val) {
+            blockedUrls = val;
+            return this;
+        }
+
+        public Builder withAllowedUrls(Set<String> val) {
+            allowedUrls = val;
+            return this;
+        }
+
         public Builder withWaitForSelectorsTimeout(float val) {
             waitForSelectorsTimeout = val;
             return this;
@@ -589,6 +617,8 @@ public class UrlConfig {
                 ", hideImages=" + hideImages +
                 ", removeSelectors=" + removeSelectors +
                 ", waitForSelectors=" + waitForSelectors +
+                ", blockedUrls=" + blockedUrls +
+                ", allowedUrls=" + allowedUrls +
                 ", waitForSelectorsTimeout=" + waitForSelectorsTimeout +
                 ", failIfSelectorsNotFound=" + failIfSelectorsNotFound +
                 ", ignoreAntiAliasing=" + ignoreAntiAliasing +
@@ -604,12 +634,12 @@ public class UrlConfig {
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         UrlConfig urlConfig = (UrlConfig) o;
-        return Double.compare(maxDiff, urlConfig.maxDiff) == 0 && maxScrollHeight == urlConfig.maxScrollHeight && Float.compare(waitAfterPageLoad, urlConfig.waitAfterPageLoad) == 0 && Float.compare(waitAfterScroll, urlConfig.waitAfterScroll) == 0 && Float.compare(waitForNoAnimationAfterScroll, urlConfig.waitForNoAnimationAfterScroll) == 0 && Float.compare(scrollDistanceFactor, urlConfig.scrollDistanceFactor) == 0 && Float.compare(warmupBrowserCacheTime, urlConfig.warmupBrowserCacheTime) == 0 && Float.compare(waitForFontsTime, urlConfig.waitForFontsTime) == 0 && hideImages == urlConfig.hideImages && Float.compare(waitForSelectorsTimeout, urlConfig.waitForSelectorsTimeout) == 0 && failIfSelectorsNotFound == urlConfig.failIfSelectorsNotFound && ignoreAntiAliasing == urlConfig.ignoreAntiAliasing && Double.compare(maxAntiAliasColorDistance, urlConfig.maxAntiAliasColorDistance) == 0 && strictColorComparison == urlConfig.strictColorComparison && Double.compare(maxColorDistance, urlConfig.maxColorDistance) == 0 && flakyTolerance == urlConfig.flakyTolerance && Objects.equals(url, urlConfig.url) && Objects.equals(paths, urlConfig.paths) && Objects.equals(setupPaths, urlConfig.setupPaths) && Objects.equals(cleanupPaths, urlConfig.cleanupPaths) && Objects.equals(cookies, urlConfig.cookies) && Objects.equals(alternatingCookies, urlConfig.alternatingCookies) && Objects.equals(envMapping, urlConfig.envMapping) && Objects.equals(localStorage, urlConfig.localStorage) && Objects.equals(sessionStorage, urlConfig.sessionStorage) && Objects.equals(windowWidths, urlConfig.windowWidths) && Objects.equals(devices, urlConfig.devices) && Objects.equals(javaScript, urlConfig.javaScript) && Objects.equals(style, urlConfig.style) && Objects.equals(httpCheck, urlConfig.httpCheck) && Objects.equals(removeSelectors, urlConfig.removeSelectors) && Objects.equals(waitForSelectors, urlConfig.waitForSelectors) && Objects.equals(browsers, urlConfig.browsers);
+        return Double.compare(maxDiff, urlConfig.maxDiff) == 0 && maxScrollHeight == urlConfig.maxScrollHeight && Float.compare(waitAfterPageLoad, urlConfig.waitAfterPageLoad) == 0 && Float.compare(waitAfterScroll, urlConfig.waitAfterScroll) == 0 && Float.compare(waitForNoAnimationAfterScroll, urlConfig.waitForNoAnimationAfterScroll) == 0 && Float.compare(scrollDistanceFactor, urlConfig.scrollDistanceFactor) == 0 && Float.compare(warmupBrowserCacheTime, urlConfig.warmupBrowserCacheTime) == 0 && Float.compare(waitForFontsTime, urlConfig.waitForFontsTime) == 0 && hideImages == urlConfig.hideImages && Float.compare(waitForSelectorsTimeout, urlConfig.waitForSelectorsTimeout) == 0 && failIfSelectorsNotFound == urlConfig.failIfSelectorsNotFound && ignoreAntiAliasing == urlConfig.ignoreAntiAliasing && Double.compare(maxAntiAliasColorDistance, urlConfig.maxAntiAliasColorDistance) == 0 && strictColorComparison == urlConfig.strictColorComparison && Double.compare(maxColorDistance, urlConfig.maxColorDistance) == 0 && flakyTolerance == urlConfig.flakyTolerance && Objects.equals(url, urlConfig.url) && Objects.equals(paths, urlConfig.paths) && Objects.equals(setupPaths, urlConfig.setupPaths) && Objects.equals(cleanupPaths, urlConfig.cleanupPaths) && Objects.equals(cookies, urlConfig.cookies) && Objects.equals(alternatingCookies, urlConfig.alternatingCookies) && Objects.equals(envMapping, urlConfig.envMapping) && Objects.equals(localStorage, urlConfig.localStorage) && Objects.equals(sessionStorage, urlConfig.sessionStorage) && Objects.equals(windowWidths, urlConfig.windowWidths) && Objects.equals(devices, urlConfig.devices) && Objects.equals(javaScript, urlConfig.javaScript) && Objects.equals(style, urlConfig.style) && Objects.equals(httpCheck, urlConfig.httpCheck) && Objects.equals(removeSelectors, urlConfig.removeSelectors) && Objects.equals(waitForSelectors, urlConfig.waitForSelectors) && Objects.equals(blockedUrls, urlConfig.blockedUrls) && Objects.equals(allowedUrls, urlConfig.allowedUrls) && Objects.equals(browsers, urlConfig.browsers);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(url, paths, setupPaths, cleanupPaths, maxDiff, cookies, alternatingCookies, envMapping, localStorage, sessionStorage, windowWidths, devices, maxScrollHeight, waitAfterPageLoad, waitAfterScroll, waitForNoAnimationAfterScroll, scrollDistanceFactor, warmupBrowserCacheTime, waitForFontsTime, javaScript, style, httpCheck, hideImages, removeSelectors, waitForSelectors, waitForSelectorsTimeout, failIfSelectorsNotFound, ignoreAntiAliasing, maxAntiAliasColorDistance, strictColorComparison, maxColorDistance, flakyTolerance, browsers);
+        return Objects.hash(url, paths, setupPaths, cleanupPaths, maxDiff, cookies, alternatingCookies, envMapping, localStorage, sessionStorage, windowWidths, devices, maxScrollHeight, waitAfterPageLoad, waitAfterScroll, waitForNoAnimationAfterScroll, scrollDistanceFactor, warmupBrowserCacheTime, waitForFontsTime, javaScript, style, httpCheck, hideImages, removeSelectors, waitForSelectors, blockedUrls, allowedUrls, waitForSelectorsTimeout, failIfSelectorsNotFound, ignoreAntiAliasing, maxAntiAliasColorDistance, strictColorComparison, maxColorDistance, flakyTolerance, browsers);
     }
 
 }
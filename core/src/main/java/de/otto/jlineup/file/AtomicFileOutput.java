@@ -0,0 +1,54 @@
+package de.otto.jlineup.file;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Writes a file through a temporary file next to it. The target file is only replaced on {@link #commit()}, closing
+ * without a commit throws the written content away, so a failed write never leaves a truncated target file behind.
+ */
+public class AtomicFileOutput implements Closeable {
+
+    private final Path target;
+    private final Path tempFile;
+    private final OutputStream outputStream;
+    private boolean committed;
+
+    public AtomicFileOutput(Path target) throws IOException {
+        this.target = target;
+        this.tempFile = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+        this.outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile));
+    }
+
+    public OutputStream outputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Closes the output stream and moves the written content onto the target file.
+     */
+    public void commit() throws IOException {
+        outputStream.close();
+        Files.move(tempFile, target, ATOMIC_MOVE, REPLACE_EXISTING);
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        try {
+            outputStream.close();
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
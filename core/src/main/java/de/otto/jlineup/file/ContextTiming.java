@@ -0,0 +1,8 @@
+package de.otto.jlineup.file;
+
+/**
+ * How long taking the screenshots of a context took and how high its page was, recorded to schedule the next runs.
+ * The time spent waiting for animations to settle is shown in the report to help tuning wait-for-no-animation-after-scroll.
+ */
+public record ContextTiming(long durationMillis, long pageHeight, long animationSettleMillis) {
+}
@@ -9,18 +9,23 @@ import de.otto.jlineup.browser.BrowserStep;
 import de.otto.jlineup.browser.ScreenshotContext;
 import de.otto.jlineup.config.JobConfig;
 import de.otto.jlineup.config.RunStep;
+import de.otto.jlineup.image.ImageHashes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static de.otto.jlineup.file.FileUtils.clearDirectory;
 import static de.otto.jlineup.file.ScreenshotContextFileTracker.screenshotContextFileTrackerBuilder;
@@ -34,12 +39,15 @@ public class FileService {
 
     public static final String DIVIDER = "_";
     public static final String PNG_EXTENSION = ".png";
+    public static final String ROW_HASHES_EXTENSION = ".rows";
     private static final int MAX_URL_TO_FILENAME_LENGTH = 180;
 
     public static final String DEFAULT_FILETRACKER_FILENAME = "files.json";
+    public static final String CONTEXT_TIMINGS_FILENAME = "timings.json";
     public static final String REPORT_HTML_FILENAME = "report.html";
     public static final String REPORT_BEFORE_HTML_FILENAME = "report_before.html";
     public static final String REPORT_JSON_FILENAME = "report.json";
+    public static final String REPORT_DATA_DIRECTORY = "report-data";
 
     private final RunStepConfig runStepConfig;
 
@@ -47,10 +55,22 @@ public class FileService {
 
     private final String filetrackerFilename;
 
+    private final FileTrackerJournal fileTrackerJournal;
+
+    private final ScreenshotEncoder screenshotEncoder;
+
+    private final List<ScreenshotWrittenListener> screenshotWrittenListeners = new CopyOnWriteArrayList<>();
+
+    private final Map<String, ContextTiming> contextTimings = new ConcurrentHashMap<>();
+
     public FileTracker getFileTracker() {
         return fileTracker;
     }
 
+    public void addScreenshotWrittenListener(ScreenshotWrittenListener screenshotWrittenListener) {
+        screenshotWrittenListeners.add(screenshotWrittenListener);
+    }
+
     public ScreenshotContext getRecordedContext(String hash) {
         return fileTracker.getScreenshotContextFileTracker(hash).screenshotContext;
     }
@@ -62,6 +82,7 @@ public class FileService {
     public FileService(RunStepConfig runStepConfig, JobConfig jobConfig, String filetrackerFilename) {
         this.runStepConfig = runStepConfig;
         this.filetrackerFilename = filetrackerFilename;
+        this.screenshotEncoder = ScreenshotEncoder.forCompressionLevel(jobConfig.pngCompressionLevel);
         if (!runStepConfig.isKeepExisting() && (runStepConfig.getStep() == RunStep.before || runStepConfig.getStep() == RunStep.after_only)) {
             //Only create fresh file tracker file when step is before or after_only and --keep-existing is not used.
             this.fileTracker = FileTracker.create(jobConfig);
@@ -70,7 +91,7 @@ public class FileService {
             Path path = Paths.get(runStepConfig.getWorkingDirectory(), runStepConfig.getReportDirectory(), this.filetrackerFilename);
             FileTracker fileTrackerFromFile;
             try {
-                fileTrackerFromFile = JacksonWrapper.readFileTrackerFile(path.toFile());
+                fileTrackerFromFile = readFileTracker(path);
             } catch (Exception e) {
                 if (e.getCause() instanceof FileNotFoundException && runStepConfig.isKeepExisting()) {
                     LOG.info("Nothing to keep although --keep-existing was specified. No former run found.");
@@ -85,6 +106,48 @@ public class FileService {
                 this.fileTracker = fileTrackerFromFile;
             }
         }
+        this.fileTrackerJournal = new FileTrackerJournal(FileTrackerJournal.journalPathFor(Paths.get(runStepConfig.getWorkingDirectory(), runStepConfig.getReportDirectory(), this.filetrackerFilename)));
+        this.fileTracker.journalTo(fileTrackerJournal);
+        //Read before the report directory is cleared, timings of the former run are needed to schedule this one
+        readContextTimings();
+    }
+
+    /**
+     * Reads the snapshot of the file tracker and replays its journal on top of it, so screenshots of a step that
+     * didn't write its snapshot anymore are not lost.
+     */
+    private static FileTracker readFileTracker(Path path) {
+        FileTracker fileTracker = JacksonWrapper.readFileTrackerFile(path.toFile());
+        try {
+            FileTrackerJournal.replay(FileTrackerJournal.journalPathFor(path), fileTracker);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read file tracker journal.", e);
+        }
+        return fileTracker;
+    }
+
+    private void readContextTimings() {
+        File file = Paths.get(runStepConfig.getWorkingDirectory(), runStepConfig.getReportDirectory(), CONTEXT_TIMINGS_FILENAME).toFile();
+        if (file.isFile()) {
+            try {
+                contextTimings.putAll(JacksonWrapper.readContextTimingsFile(file));
+            } catch (Exception e) {
+                LOG.warn("Could not read context timings of former run, using config order for screenshot contexts: {}", e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, ContextTiming> getContextTimings() {
+        return contextTimings;
+    }
+
+    public void recordContextTiming(ScreenshotContext screenshotContext, long durationMillis, long pageHeight, long animationSettleMillis) {
+        contextTimings.put(screenshotContext.contextHash(), new ContextTiming(durationMillis, pageHeight, animationSettleMillis));
+    }
+
+    public void writeContextTimings() throws IOException {
+        Path path = Paths.get(getReportDirectory().toString(), CONTEXT_TIMINGS_FILENAME);
+        Files.write(path, JacksonWrapper.serializeObject(contextTimings).getBytes());
     }
 
     @VisibleForTesting
@@ -189,10 +252,11 @@ public class FileService {
         return ImageIO.read(new File(getScreenshotPath(fileName)));
     }
 
-    private static void writeScreenshot(String fileName, BufferedImage image) throws IOException {
+    private void writeScreenshot(String fileName, BufferedImage image) throws IOException {
         LOG.debug("Writing screenshot to {}", fileName);
-        File screenshotFile = new File(fileName);
-        ImageIO.write(image, "png", screenshotFile);
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(fileName))) {
+            screenshotEncoder.write(image, outputStream);
+        }
     }
 
     public String writeScreenshot(ScreenshotContext screenshotContext, BufferedImage image,
@@ -201,10 +265,47 @@ public class FileService {
         createDirIfNotExists(getScreenshotDirectory().toString() + FILE_SEPARATOR + screenshotContext.contextHash());
         String fileName = getScreenshotFilenameBelowScreenshotsDir(screenshotContext, yPosition);
         writeScreenshot(Paths.get(getScreenshotDirectory().toString(), fileName).toString(), image);
-        fileTracker.addScreenshot(screenshotContext, fileName, yPosition);
+        //Hashes let the comparison skip decoding identical screenshots, difference images don't need them
+        ImageHashes imageHashes = null;
+        if (screenshotContext.step != BrowserStep.compare) {
+            imageHashes = ImageHashes.of(image);
+            //Row hashes would blow up files.json, they go next to the screenshot
+            writeRowHashes(fileName, imageHashes.rowHashes());
+            imageHashes = imageHashes.withoutRowHashes();
+        }
+        fileTracker.addScreenshot(screenshotContext, fileName, yPosition, imageHashes);
+        for (ScreenshotWrittenListener screenshotWrittenListener : screenshotWrittenListeners) {
+            screenshotWrittenListener.screenshotWritten(screenshotContext, fileName, yPosition, image);
+        }
         return fileName;
     }
 
+    private void writeRowHashes(String fileName, long[] rowHashes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(rowHashes.length * Long.BYTES);
+        buffer.asLongBuffer().put(rowHashes);
+        Files.write(Paths.get(getScreenshotPath(fileName) + ROW_HASHES_EXTENSION), buffer.array());
+    }
+
+    /**
+     * @return the row hashes written with the screenshot, or null if there are none, i.e. for screenshots of older
+     * versions
+     */
+    public long[] readRowHashes(String fileName) {
+        final Path path = Paths.get(getScreenshotPath(fileName) + ROW_HASHES_EXTENSION);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            final long[] rowHashes = new long[buffer.remaining() / Long.BYTES];
+            buffer.asLongBuffer().get(rowHashes);
+            return rowHashes;
+        } catch (IOException e) {
+            LOG.debug("Could not read row hashes of {}, all rows are compared", fileName, e);
+            return null;
+        }
+    }
+
     private String getScreenshotFilenameBelowScreenshotsDir(ScreenshotContext screenshotContext, int yPosition) {
         return screenshotContext.contextHash() + FILE_SEPARATOR + generateScreenshotFileName(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.deviceConfig.width, yPosition, screenshotContext.step.name());
     }
@@ -216,9 +317,29 @@ public class FileService {
         return relative.toString().equals("") ? "" : relative + FILE_SEPARATOR;
     }
 
-    public void writeJsonReport(String reportJson) throws FileNotFoundException {
-        try (PrintStream out = new PrintStream(new FileOutputStream(getReportDirectory() + FILE_SEPARATOR + REPORT_JSON_FILENAME))) {
-            out.print(reportJson);
+    /**
+     * The report.json is only replaced when the returned output is committed.
+     */
+    public AtomicFileOutput openJsonReport() throws IOException {
+        return new AtomicFileOutput(getReportDirectory().resolve(REPORT_JSON_FILENAME));
+    }
+
+    public OutputStream openReportData(String fileName) throws IOException {
+        Path reportDataFile = getReportDirectory().resolve(REPORT_DATA_DIRECTORY).resolve(fileName);
+        createDirIfNotExists(reportDataFile.getParent().toString());
+        return new BufferedOutputStream(new FileOutputStream(reportDataFile.toFile()));
+    }
+
+    /**
+     * Reads an image by its path relative to the report directory, like the paths the html report links to.
+     */
+    public BufferedImage readImageFromReportDirectory(String relativePath) throws IOException {
+        return ImageIO.read(getReportDirectory().resolve(relativePath).toFile());
+    }
+
+    public void writeReportDataImage(String fileName, BufferedImage image) throws IOException {
+        try (OutputStream outputStream = openReportData(fileName)) {
+            screenshotEncoder.write(image, outputStream);
         }
     }
 
@@ -234,13 +355,13 @@ public class FileService {
         }
     }
 
+    /**
+     * Writes the snapshot of the file tracker. Changes are journaled as they happen, so this is only needed once
+     * when a step is done.
+     */
     public void writeFileTrackerData() throws IOException {
-        writeFileTrackerData(this.filetrackerFilename, this.fileTracker);
-    }
-
-    private void writeFileTrackerData(String filetrackerFilename, FileTracker fileTracker) throws IOException {
         Path path = Paths.get(getReportDirectory().toString(), filetrackerFilename);
-        Files.write(path, JacksonWrapper.serializeObject(fileTracker).getBytes());
+        fileTrackerJournal.compact(path, fileTracker);
     }
 
     public void setBrowserAndVersion(ScreenshotContext screenshotContext, String browserAndVersion) {
@@ -279,7 +400,8 @@ public class FileService {
         LOG.debug("  Matching files: {}", files.length);
         assert files != null;
         for (File file : files) {
-            FileTracker part = JacksonWrapper.readFileTrackerFile(file);
+            //A context that didn't write its snapshot anymore left its screenshots in the journal
+            FileTracker part = readFileTracker(file.toPath());
 
             LOG.debug("Merging file '{}' with {} context(s): {}", file.getName(), part.contexts.size(), part.contexts.keySet());
             //fileTracker.contexts.putAll(part.contexts);
@@ -294,6 +416,8 @@ public class FileService {
                     .withScreenshotContext(existingContext.screenshotContext)
                     .withScreenshots(existingContext.screenshots)
                     .addScreenshots(newContext.screenshots)
+                    .withHashes(existingContext.hashes)
+                    .addHashes(newContext.hashes)
                     .build());
             });
             part.browsers.forEach((step, browserSet) ->
@@ -316,7 +440,7 @@ public class FileService {
         Path filesJsonPath = reportDirectory.resolve(DEFAULT_FILETRACKER_FILENAME);
         if (Files.isRegularFile(filesJsonPath)) {
             try {
-                FileTracker fileTracker = JacksonWrapper.readFileTrackerFile(filesJsonPath.toFile());
+                FileTracker fileTracker = readFileTracker(filesJsonPath);
                 if (fileTracker.getContexts() != null) {
                     for (ScreenshotContextFileTracker ctxTracker : fileTracker.getContexts().values()) {
                         if (ctxTracker.getScreenshots() != null) {
@@ -325,13 +449,18 @@ public class FileService {
                                 stepMap.remove(BrowserStep.compare);
                             }
                         }
+                        if (ctxTracker.getHashes() != null) {
+                            for (Map<BrowserStep, ImageHashes> stepMap : ctxTracker.getHashes().values()) {
+                                stepMap.remove(BrowserStep.after);
+                            }
+                        }
                     }
                 }
                 if (fileTracker.getBrowsers() != null) {
                     fileTracker.getBrowsers().remove(BrowserStep.after);
                     fileTracker.getBrowsers().remove(BrowserStep.compare);
                 }
-                Files.writeString(filesJsonPath, JacksonWrapper.serializeObject(fileTracker));
+                new FileTrackerJournal(FileTrackerJournal.journalPathFor(filesJsonPath)).compact(filesJsonPath, fileTracker);
             } catch (Exception e) {
                 LOG.warn("Could not clean files.json at {}, will be overwritten by after step", filesJsonPath, e);
             }
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import de.otto.jlineup.browser.BrowserStep;
 import de.otto.jlineup.browser.ScreenshotContext;
 import de.otto.jlineup.config.JobConfig;
+import de.otto.jlineup.image.ImageHashes;
 
 import java.io.IOException;
 import java.util.Map;
@@ -20,6 +21,8 @@ public class FileTracker {
     public final ConcurrentHashMap<String, ScreenshotContextFileTracker> contexts;
     public final ConcurrentHashMap<BrowserStep, Set<String>> browsers;
 
+    private FileTrackerJournal journal;
+
     @JsonCreator
     public FileTracker(JobConfig jobConfig, ConcurrentHashMap<String, ScreenshotContextFileTracker> contexts, ConcurrentHashMap<BrowserStep, Set<String>> browsers) {
         this.jobConfig = jobConfig;
@@ -86,6 +89,36 @@ public class FileTracker {
         return new FileTracker(jobConfig, new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
     }
 
+    /**
+     * All following changes are appended to the given journal.
+     */
+    void journalTo(FileTrackerJournal journal) {
+        this.journal = journal;
+    }
+
+    private void journal(FileTrackerEvent event) {
+        if (journal != null) {
+            journal.append(event);
+        }
+    }
+
+    /**
+     * Applies an event of a journal, without journaling it again.
+     */
+    void apply(FileTrackerEvent event) {
+        switch (event.type()) {
+            case context -> contexts.putIfAbsent(event.contextHash(), new ScreenshotContextFileTracker(event.screenshotContext()));
+            case screenshot -> {
+                ScreenshotContextFileTracker screenshotContextFileTracker = contexts.get(event.contextHash());
+                if (screenshotContextFileTracker != null) {
+                    screenshotContextFileTracker.addScreenshot(event.step(), event.path(), event.yPosition(), event.hashes());
+                }
+            }
+            case browser -> browsers.computeIfAbsent(event.step(), k -> ConcurrentHashMap.newKeySet()).add(event.browser());
+            case remove -> contexts.remove(event.contextHash());
+        }
+    }
+
     public ScreenshotContextFileTracker getScreenshotContextFileTracker(String hash) {
         assert contexts != null;
         return contexts.get(hash);
@@ -109,7 +142,17 @@ public class FileTracker {
         return screenshotContextFileTracker.screenshots;
     }
 
+    public Map<Integer, Map<BrowserStep, ImageHashes>> getHashesForContext(String hash) {
+        assert contexts != null;
+        ScreenshotContextFileTracker screenshotContextFileTracker = contexts.get(hash);
+        return screenshotContextFileTracker != null ? screenshotContextFileTracker.hashes : Map.of();
+    }
+
     public void addScreenshot(final ScreenshotContext screenshotContext, final String path, final int yPosition) {
+        addScreenshot(screenshotContext, path, yPosition, null);
+    }
+
+    public void addScreenshot(final ScreenshotContext screenshotContext, final String path, final int yPosition, final ImageHashes imageHashes) {
         assert contexts != null;
         ScreenshotContextFileTracker screenshotContextFileTracker = contexts.get(screenshotContext.contextHash());
         if (screenshotContextFileTracker == null) {
@@ -117,9 +160,11 @@ public class FileTracker {
             screenshotContextFileTracker = contexts.putIfAbsent(screenshotContext.contextHash(), fileTrackerToPut);
             if (screenshotContextFileTracker == null) {
                 screenshotContextFileTracker = fileTrackerToPut;
+                journal(FileTrackerEvent.context(screenshotContext));
             }
         }
-        screenshotContextFileTracker.addScreenshot(screenshotContext, path, yPosition);
+        screenshotContextFileTracker.addScreenshot(screenshotContext, path, yPosition, imageHashes);
+        journal(FileTrackerEvent.screenshot(screenshotContext, path, yPosition, imageHashes));
     }
 
     public boolean isContextAlreadyThere(final ScreenshotContext screenshotContext) {
@@ -129,13 +174,17 @@ public class FileTracker {
 
     public void setBrowserAndVersion(ScreenshotContext screenshotContext, String browserAndVersion) {
         if (browsers != null) {
-            browsers.computeIfAbsent(screenshotContext.step, k -> ConcurrentHashMap.newKeySet()).add(browserAndVersion);
+            if (browsers.computeIfAbsent(screenshotContext.step, k -> ConcurrentHashMap.newKeySet()).add(browserAndVersion)) {
+                journal(FileTrackerEvent.browser(screenshotContext.step, browserAndVersion));
+            }
         }
     }
 
     public void removeContext(ScreenshotContext screenshotContext) {
         assert contexts != null;
-        contexts.remove(screenshotContext.contextHash());
+        if (contexts.remove(screenshotContext.contextHash()) != null) {
+            journal(FileTrackerEvent.remove(screenshotContext));
+        }
     }
 
 
@@ -0,0 +1,35 @@
+package de.otto.jlineup.file;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.otto.jlineup.browser.BrowserStep;
+import de.otto.jlineup.browser.ScreenshotContext;
+import de.otto.jlineup.image.ImageHashes;
+
+/**
+ * One change of a {@link FileTracker}, as it's written to the {@link FileTrackerJournal}. Only the fields that belong
+ * to the type of the event are set.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FileTrackerEvent(Type type, String contextHash, ScreenshotContext screenshotContext, Integer yPosition,
+                               BrowserStep step, String path, ImageHashes hashes, String browser) {
+
+    public enum Type {
+        context, screenshot, browser, remove
+    }
+
+    static FileTrackerEvent context(ScreenshotContext screenshotContext) {
+        return new FileTrackerEvent(Type.context, screenshotContext.contextHash(), screenshotContext, null, null, null, null, null);
+    }
+
+    static FileTrackerEvent screenshot(ScreenshotContext screenshotContext, String path, int yPosition, ImageHashes hashes) {
+        return new FileTrackerEvent(Type.screenshot, screenshotContext.contextHash(), null, yPosition, screenshotContext.step, path, hashes, null);
+    }
+
+    static FileTrackerEvent browser(BrowserStep step, String browserAndVersion) {
+        return new FileTrackerEvent(Type.browser, null, null, null, step, null, null, browserAndVersion);
+    }
+
+    static FileTrackerEvent remove(ScreenshotContext screenshotContext) {
+        return new FileTrackerEvent(Type.remove, screenshotContext.contextHash(), null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,109 @@
+package de.otto.jlineup.file;
+
+import de.otto.jlineup.JacksonWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only journal of the changes to a {@link FileTracker}, one JSON line per {@link FileTrackerEvent}.
+ * Browser threads append a line for every screenshot instead of rewriting the whole file tracker. The file tracker
+ * file is a snapshot that is written when a step is done, the journal is removed then. The state of a step is
+ * always the snapshot with the journal replayed on top of it.
+ */
+public class FileTrackerJournal {
+
+    private final static Logger LOG = LoggerFactory.getLogger(lookup().lookupClass());
+
+    private static final String JOURNAL_SUFFIX = "_journal.jsonl";
+
+    private final Path path;
+    private FileChannel channel;
+
+    public FileTrackerJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * files.json is journaled to files_journal.jsonl
+     */
+    public static Path journalPathFor(Path fileTrackerPath) {
+        String fileName = fileTrackerPath.getFileName().toString();
+        if (fileName.endsWith(".json")) {
+            fileName = fileName.substring(0, fileName.length() - ".json".length());
+        }
+        return fileTrackerPath.resolveSibling(fileName + JOURNAL_SUFFIX);
+    }
+
+    void append(FileTrackerEvent event) {
+        //Serialized outside of the lock, threads only wait for each other while writing the line
+        final ByteBuffer line = ByteBuffer.wrap((JacksonWrapper.serializeObjectToLine(event) + "\n").getBytes(StandardCharsets.UTF_8));
+        synchronized (this) {
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+                }
+                while (line.hasRemaining()) {
+                    channel.write(line);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not append to file tracker journal " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot and removes the journal. Events that change the file tracker while the snapshot is written
+     * are appended to a new journal, replaying them on top of a snapshot that already contains them changes nothing.
+     */
+    synchronized void compact(Path snapshotPath, FileTracker fileTracker) throws IOException {
+        Files.write(snapshotPath, JacksonWrapper.serializeObject(fileTracker).getBytes());
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Applies all events of the journal at the given path to the file tracker. A journal that doesn't exist is empty.
+     */
+    public static void replay(Path path, FileTracker fileTracker) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        int events = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                final FileTrackerEvent event;
+                try {
+                    event = JacksonWrapper.readFileTrackerEvent(line);
+                } catch (RuntimeException e) {
+                    //A run that was killed while appending leaves an incomplete last line
+                    LOG.warn("Skipping unreadable line in file tracker journal {}: {}", path, e.getMessage());
+                    continue;
+                }
+                fileTracker.apply(event);
+                events++;
+            }
+        }
+        LOG.debug("Replayed {} file tracker event(s) from {}", events, path);
+    }
+}
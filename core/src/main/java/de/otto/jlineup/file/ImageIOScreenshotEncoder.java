@@ -0,0 +1,16 @@
+package de.otto.jlineup.file;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class ImageIOScreenshotEncoder implements ScreenshotEncoder {
+
+    @Override
+    public void write(BufferedImage image, OutputStream outputStream) throws IOException {
+        if (!ImageIO.write(image, "png", outputStream)) {
+            throw new IOException("No PNG writer available for image of type " + image.getType());
+        }
+    }
+}
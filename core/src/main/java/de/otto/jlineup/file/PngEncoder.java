@@ -0,0 +1,313 @@
+package de.otto.jlineup.file;
+
+import de.otto.jlineup.image.ImageRaster;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG encoder with configurable deflate level and row filter.
+ * <p>
+ * Large images are split into blocks of rows which are filtered and deflated in parallel. Each block is compressed
+ * independently and flushed to a byte boundary, so the compressed blocks just have to be concatenated to one valid
+ * zlib stream. Compression gets slightly worse, because matches can't reach into the previous block.
+ */
+public class PngEncoder implements ScreenshotEncoder {
+
+    public static final int DEFAULT_PARALLELISM = 0;
+    public static final int FAST_COMPRESSION_LEVEL = 3;
+
+    //blocks are compressed independently, smaller blocks would hurt the compression
+    private static final int MIN_BLOCK_SIZE_IN_BYTES = 256 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    //One pool for all encoders: a file service and its encoder are created per run or lambda context and nobody
+    //shuts them down. Idle workers of a fork join pool are daemon threads that end after a while.
+    private static final ForkJoinPool ENCODER_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    public enum Filter {
+        NONE(0), SUB(1), UP(2), AVERAGE(3), PAETH(4),
+        //chooses the filter with the smallest sum of absolute differences for every row
+        ADAPTIVE(-1);
+
+        private final int type;
+
+        Filter(int type) {
+            this.type = type;
+        }
+    }
+
+    private final int compressionLevel;
+    private final Filter filter;
+    private final int parallelism;
+
+    /**
+     * @param compressionLevel the deflate level from 0 (fastest) to 9 (smallest files)
+     * @param filter           the row filter
+     * @param parallelism      the number of blocks an image is split into to compress them in parallel,
+     *                         values below 1 mean one per available processor. All encoders share one pool
+     *                         with a thread per available processor.
+     */
+    public PngEncoder(int compressionLevel, Filter filter, int parallelism) {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid PNG compression level " + compressionLevel + ", valid values are between 0 and 9.");
+        }
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void write(BufferedImage image, OutputStream outputStream) throws IOException {
+        final ImageRaster raster = ImageRaster.of(image);
+        final boolean alpha = image.getColorModel().hasAlpha();
+        final int width = raster.getWidth();
+        final int height = raster.getHeight();
+        final int bytesPerRow = width * (alpha ? 4 : 3) + 1;
+        final int rowsPerBlock = parallelism == 1 ? height : Math.max(1, Math.max(MIN_BLOCK_SIZE_IN_BYTES / bytesPerRow, (height + parallelism - 1) / parallelism));
+
+        final List<Future<Block>> blocks = new ArrayList<>();
+        for (int fromRow = 0; fromRow < height; fromRow += rowsPerBlock) {
+            final int blockFromRow = fromRow;
+            final int blockToRow = Math.min(height, fromRow + rowsPerBlock);
+            if (parallelism == 1 || blockToRow - blockFromRow == height) {
+                blocks.add(CompletableFuture.completedFuture(encodeBlock(raster, alpha, blockFromRow, blockToRow)));
+            } else {
+                blocks.add(ENCODER_POOL.submit(() -> encodeBlock(raster, alpha, blockFromRow, blockToRow)));
+            }
+        }
+
+        final DataOutputStream out = new DataOutputStream(outputStream);
+        out.write(PNG_SIGNATURE);
+        writeHeader(out, width, height, alpha);
+
+        //the zlib header, the compressed blocks each in their own IDAT chunk and the checksum of all uncompressed blocks
+        writeChunk(out, "IDAT", new byte[]{0x78, zlibFlags(compressionLevel)}, 2);
+        long adler = 1;
+        for (Future<Block> future : blocks) {
+            final Block block = join(future);
+            writeChunk(out, "IDAT", block.compressed, block.compressed.length);
+            adler = combineAdler32(adler, block.adler32, block.uncompressedLength);
+        }
+        final byte[] checksum = {(byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler};
+        writeChunk(out, "IDAT", checksum, checksum.length);
+
+        writeChunk(out, "IEND", new byte[0], 0);
+        out.flush();
+    }
+
+    private Block encodeBlock(ImageRaster raster, boolean alpha, int fromRow, int toRow) {
+        final int bytesPerPixel = alpha ? 4 : 3;
+        final int rowLength = raster.getWidth() * bytesPerPixel;
+        byte[] previousRow = new byte[rowLength];
+        byte[] currentRow = new byte[rowLength];
+        if (fromRow > 0) {
+            //the filters of the first row of a block refer to the last row of the block before
+            readRow(raster, fromRow - 1, alpha, previousRow);
+        }
+        final byte[] filtered = new byte[(toRow - fromRow) * (rowLength + 1)];
+        final byte[][] candidates = filter == Filter.ADAPTIVE ? new byte[5][rowLength] : null;
+        for (int y = fromRow, offset = 0; y < toRow; y++, offset += rowLength + 1) {
+            readRow(raster, y, alpha, currentRow);
+            if (candidates == null) {
+                filtered[offset] = (byte) filter.type;
+                filterRow(filter.type, currentRow, previousRow, bytesPerPixel, filtered, offset + 1);
+            } else {
+                final int bestType = chooseFilter(currentRow, previousRow, bytesPerPixel, candidates);
+                filtered[offset] = (byte) bestType;
+                System.arraycopy(candidates[bestType], 0, filtered, offset + 1, rowLength);
+            }
+            final byte[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+        }
+
+        final Adler32 adler32 = new Adler32();
+        adler32.update(filtered);
+
+        final Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            if (filter != Filter.NONE) {
+                deflater.setStrategy(Deflater.FILTERED);
+            }
+            deflater.setInput(filtered);
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(BUFFER_SIZE, filtered.length / 4));
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            if (toRow == raster.getHeight()) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                //the last block finishes the stream, all others are only flushed to a byte boundary.
+                //changing the strategy makes the first call return early, so remaining input has to be checked, too
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, length);
+                } while (length == buffer.length || !deflater.needsInput());
+            }
+            return new Block(compressed.toByteArray(), adler32.getValue(), filtered.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void readRow(ImageRaster raster, int y, boolean alpha, byte[] row) {
+        final int width = raster.getWidth();
+        for (int x = 0, i = 0; x < width; x++) {
+            final int argb = raster.getARGB(x, y);
+            row[i++] = (byte) (argb >>> 16);
+            row[i++] = (byte) (argb >>> 8);
+            row[i++] = (byte) argb;
+            if (alpha) {
+                row[i++] = (byte) (argb >>> 24);
+            }
+        }
+    }
+
+    private static int chooseFilter(byte[] row, byte[] previousRow, int bytesPerPixel, byte[][] candidates) {
+        int bestType = 0;
+        long bestSum = Long.MAX_VALUE;
+        for (int type = 0; type < candidates.length; type++) {
+            filterRow(type, row, previousRow, bytesPerPixel, candidates[type], 0);
+            long sum = 0;
+            for (byte value : candidates[type]) {
+                sum += Math.abs(value);
+            }
+            if (sum < bestSum) {
+                bestSum = sum;
+                bestType = type;
+            }
+        }
+        return bestType;
+    }
+
+    static void filterRow(int type, byte[] row, byte[] previousRow, int bytesPerPixel, byte[] target, int offset) {
+        final int length = row.length;
+        switch (type) {
+            case 0 -> System.arraycopy(row, 0, target, offset, length);
+            case 1 -> {
+                for (int i = 0; i < length; i++) {
+                    final int left = i >= bytesPerPixel ? row[i - bytesPerPixel] : 0;
+                    target[offset + i] = (byte) (row[i] - left);
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < length; i++) {
+                    target[offset + i] = (byte) (row[i] - previousRow[i]);
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < length; i++) {
+                    final int left = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+                    target[offset + i] = (byte) (row[i] - ((left + (previousRow[i] & 0xFF)) >>> 1));
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < length; i++) {
+                    final int left = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+                    final int upperLeft = i >= bytesPerPixel ? previousRow[i - bytesPerPixel] & 0xFF : 0;
+                    target[offset + i] = (byte) (row[i] - paethPredictor(left, previousRow[i] & 0xFF, upperLeft));
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown PNG filter type " + type);
+        }
+    }
+
+    private static int paethPredictor(int left, int up, int upperLeft) {
+        final int estimate = left + up - upperLeft;
+        final int distanceLeft = Math.abs(estimate - left);
+        final int distanceUp = Math.abs(estimate - up);
+        final int distanceUpperLeft = Math.abs(estimate - upperLeft);
+        if (distanceLeft <= distanceUp && distanceLeft <= distanceUpperLeft) {
+            return left;
+        }
+        return distanceUp <= distanceUpperLeft ? up : upperLeft;
+    }
+
+    private static void writeHeader(DataOutputStream out, int width, int height, boolean alpha) throws IOException {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        final DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8); //bit depth
+        headerData.writeByte(alpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB);
+        headerData.writeByte(0); //compression method
+        headerData.writeByte(0); //filter method
+        headerData.writeByte(0); //no interlace
+        writeChunk(out, "IHDR", header.toByteArray(), header.size());
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+        final byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        final CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static byte zlibFlags(int compressionLevel) {
+        //the flags only tell the used level, (0x78 * 256 + flags) has to be a multiple of 31
+        if (compressionLevel <= 1) {
+            return 0x01;
+        } else if (compressionLevel <= 5) {
+            return 0x5E;
+        } else if (compressionLevel == 6) {
+            return (byte) 0x9C;
+        }
+        return (byte) 0xDA;
+    }
+
+    /**
+     * The Adler-32 checksum of two concatenated byte sequences from the checksums of the two sequences,
+     * as adler32_combine() of zlib does it
+     */
+    static long combineAdler32(long adler1, long adler2, long length2) {
+        final long base = 65521;
+        final long remainder = length2 % base;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (remainder * sum1) % base;
+        sum1 += (adler2 & 0xFFFF) + base - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + base - remainder;
+        if (sum1 >= base) sum1 -= base;
+        if (sum1 >= base) sum1 -= base;
+        if (sum2 >= (base << 1)) sum2 -= (base << 1);
+        if (sum2 >= base) sum2 -= base;
+        return sum1 | (sum2 << 16);
+    }
+
+    private static Block join(Future<Block> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding PNG", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not encode PNG", e.getCause());
+        }
+    }
+
+    private record Block(byte[] compressed, long adler32, int uncompressedLength) {
+    }
+}
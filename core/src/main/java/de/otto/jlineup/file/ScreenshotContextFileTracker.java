@@ -3,9 +3,11 @@ package de.otto.jlineup.file;
 import tools.jackson.databind.annotation.JsonDeserialize;
 import de.otto.jlineup.browser.BrowserStep;
 import de.otto.jlineup.browser.ScreenshotContext;
+import de.otto.jlineup.image.ImageHashes;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 
 @JsonDeserialize(builder = ScreenshotContextFileTracker.Builder.class)
@@ -13,15 +15,19 @@ public class ScreenshotContextFileTracker {
 
     public final ScreenshotContext screenshotContext;
     public final ConcurrentSkipListMap<Integer, Map<BrowserStep, String>> screenshots;
+    public final ConcurrentSkipListMap<Integer, Map<BrowserStep, ImageHashes>> hashes;
 
     ScreenshotContextFileTracker(ScreenshotContext screenshotContext) {
         this.screenshotContext = screenshotContext;
         this.screenshots = new ConcurrentSkipListMap<>();
+        this.hashes = new ConcurrentSkipListMap<>();
     }
 
     private ScreenshotContextFileTracker(Builder builder) {
         screenshotContext = builder.screenshotContext;
         screenshots = builder.screenshots;
+        //files.json of older versions doesn't contain hashes
+        hashes = builder.hashes != null ? builder.hashes : new ConcurrentSkipListMap<>();
     }
 
     public static Builder screenshotContextFileTrackerBuilder() {
@@ -32,6 +38,7 @@ public class ScreenshotContextFileTracker {
         Builder builder = new Builder();
         builder.screenshotContext = copy.getScreenshotContext();
         builder.screenshots = copy.getScreenshots();
+        builder.hashes = copy.getHashes();
         return builder;
     }
 
@@ -55,6 +62,10 @@ public class ScreenshotContextFileTracker {
         return screenshots;
     }
 
+    public ConcurrentSkipListMap<Integer, Map<BrowserStep, ImageHashes>> getHashes() {
+        return hashes;
+    }
+
     /*
      *
      *
@@ -68,6 +79,14 @@ public class ScreenshotContextFileTracker {
      */
 
     void addScreenshot(ScreenshotContext screenshotContext, String path, int yPosition) {
+        addScreenshot(screenshotContext, path, yPosition, null);
+    }
+
+    void addScreenshot(ScreenshotContext screenshotContext, String path, int yPosition, ImageHashes imageHashes) {
+        addScreenshot(screenshotContext.step, path, yPosition, imageHashes);
+    }
+
+    void addScreenshot(BrowserStep step, String path, int yPosition, ImageHashes imageHashes) {
         Map<BrowserStep, String> stepsToPathsMap = screenshots.get(yPosition);
         if (stepsToPathsMap == null) {
             Map<BrowserStep, String> mapToPut = new HashMap<>();
@@ -76,13 +95,17 @@ public class ScreenshotContextFileTracker {
                 stepsToPathsMap = mapToPut;
             }
         }
-        stepsToPathsMap.put(screenshotContext.step, path);
+        stepsToPathsMap.put(step, path);
+        if (imageHashes != null) {
+            hashes.computeIfAbsent(yPosition, y -> new ConcurrentHashMap<>()).put(step, imageHashes);
+        }
     }
 
 
     public static final class Builder {
         private ScreenshotContext screenshotContext;
         private ConcurrentSkipListMap<Integer, Map<BrowserStep, String>> screenshots;
+        private ConcurrentSkipListMap<Integer, Map<BrowserStep, ImageHashes>> hashes;
 
         private Builder() {
         }
@@ -111,6 +134,25 @@ public class ScreenshotContextFileTracker {
             return this;
         }
 
+        public Builder withHashes(ConcurrentSkipListMap<Integer, Map<BrowserStep, ImageHashes>> val) {
+            hashes = val;
+            return this;
+        }
+
+        public Builder addHashes(Map<Integer, Map<BrowserStep, ImageHashes>> val) {
+            if (hashes == null) {
+                hashes = new ConcurrentSkipListMap<>();
+            }
+            for (Map.Entry<Integer, Map<BrowserStep, ImageHashes>> integerMapEntry : val.entrySet()) {
+                if (hashes.containsKey(integerMapEntry.getKey())) {
+                    hashes.get(integerMapEntry.getKey()).putAll(integerMapEntry.getValue());
+                } else {
+                    hashes.put(integerMapEntry.getKey(), integerMapEntry.getValue());
+                }
+            }
+            return this;
+        }
+
         public ScreenshotContextFileTracker build() {
             return new ScreenshotContextFileTracker(this);
         }
@@ -121,6 +163,7 @@ public class ScreenshotContextFileTracker {
         return "ScreenshotContextFileTracker{" +
                 "screenshotContext=" + screenshotContext +
                 ", screenshots=" + screenshots +
+                ", hashes=" + hashes +
                 '}';
     }
 }
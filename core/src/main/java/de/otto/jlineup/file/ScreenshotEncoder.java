@@ -0,0 +1,30 @@
+package de.otto.jlineup.file;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes screenshots and difference images as PNG.
+ */
+public interface ScreenshotEncoder {
+
+    //'-1' means the encoder of Java ImageIO is used
+    int IMAGE_IO_COMPRESSION_LEVEL = -1;
+
+    void write(BufferedImage image, OutputStream outputStream) throws IOException;
+
+    /**
+     * @param compressionLevel the deflate level from 0 (fastest) to 9 (smallest files) or
+     *                         {@link #IMAGE_IO_COMPRESSION_LEVEL} for the encoder of Java ImageIO
+     */
+    static ScreenshotEncoder forCompressionLevel(int compressionLevel) {
+        if (compressionLevel == IMAGE_IO_COMPRESSION_LEVEL) {
+            return new ImageIOScreenshotEncoder();
+        }
+        //Screenshots are mostly flat areas and vertical repetitions, which the cheap 'up' filter handles well.
+        //Choosing the best filter per row makes files smaller, but costs more time.
+        final PngEncoder.Filter filter = compressionLevel <= PngEncoder.FAST_COMPRESSION_LEVEL ? PngEncoder.Filter.UP : PngEncoder.Filter.ADAPTIVE;
+        return new PngEncoder(compressionLevel, filter, PngEncoder.DEFAULT_PARALLELISM);
+    }
+}
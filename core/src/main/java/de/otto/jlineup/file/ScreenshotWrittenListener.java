@@ -0,0 +1,14 @@
+package de.otto.jlineup.file;
+
+import de.otto.jlineup.browser.ScreenshotContext;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Gets notified by the {@link FileService} after a screenshot was written and added to the file tracker.
+ */
+@FunctionalInterface
+public interface ScreenshotWrittenListener {
+
+    void screenshotWritten(ScreenshotContext screenshotContext, String fileName, int yPosition, BufferedImage image);
+}
@@ -3,7 +3,6 @@ package de.otto.jlineup.image;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
 
 import static java.lang.invoke.MethodHandles.lookup;
@@ -41,21 +40,25 @@ public class AntiAliasingIgnoringComparator {
     //private final static double JUST_NOTICEABLE_DIFFERENCE = 2.3d;  // Just noticeable difference if ciede2000 >= JND then colors difference is noticeable by human eye
 
     public static boolean checkIsAntialiased(BufferedImage img1, BufferedImage img2, int x, int y, double tolerance) {
+        return checkIsAntialiased(ImageRaster.of(img1), ImageRaster.of(img2), x, y, tolerance);
+    }
+
+    static boolean checkIsAntialiased(ImageRaster img1, ImageRaster img2, int x, int y, double tolerance) {
         boolean isPixelAntiAliased = isAntialiased(img2, x, y, img1, tolerance)
                 || isAntialiased(img1, x, y, img2, tolerance);
         LOG.debug("Check if different pixel {}|{} is because of anti-aliasing: {}", x, y, isPixelAntiAliased);
         return isPixelAntiAliased;
     }
 
-    private static boolean isAntialiased(BufferedImage img1, int xPos, int yPos, BufferedImage img2, double tolerance) {
+    private static boolean isAntialiased(ImageRaster img1, int xPos, int yPos, ImageRaster img2, double tolerance) {
 
-        if (xPos >= img1.getWidth() || yPos >= img1.getHeight()) {
+        if (xPos >= img1.width || yPos >= img1.height) {
             return false;
         }
 
-        final Color color1 = ImageService.getColor(img1.getRGB(xPos, yPos));
-        final int width = img1.getWidth();
-        final int height = img1.getHeight();
+        final int color1 = img1.getARGB(xPos, yPos);
+        final int width = img1.width;
+        final int height = img1.height;
         final int x0 = Math.max(xPos - 1, 0);
         final int y0 = Math.max(yPos - 1, 0);
         final int x2 = Math.min(xPos + 1, width - 1);
@@ -78,7 +81,7 @@ public class AntiAliasingIgnoringComparator {
                 }
 
                 // brightness delta between the center pixel and adjacent one
-                final double delta = brightnessDelta(ImageService.getColor(img1.getRGB(x, y)), color1);
+                final double delta = brightnessDelta(img1.getARGB(x, y), color1);
 
                 // count the number of equal, darker and brighter adjacent pixels
                 if (Math.abs(delta) <= brightnessTolerance) {
@@ -128,8 +131,8 @@ public class AntiAliasingIgnoringComparator {
                 (!isAntialiased(img1, maxX, maxY, null, tolerance) && !isAntialiased(img2, maxX, maxY, null, tolerance));
     }
 
-    private static double brightnessDelta(Color color1, Color color2) {
-        return rgb2y(color1.getRed(), color1.getGreen(), color1.getBlue()) - rgb2y(color2.getRed(), color2.getGreen(), color2.getBlue());
+    private static double brightnessDelta(int argbColor1, int argbColor2) {
+        return rgb2y((argbColor1 >> 16) & 0xFF, (argbColor1 >> 8) & 0xFF, argbColor1 & 0xFF) - rgb2y((argbColor2 >> 16) & 0xFF, (argbColor2 >> 8) & 0xFF, argbColor2 & 0xFF);
     }
 
     // gamma-corrected luminance of a color (YIQ NTSC transmission color space)
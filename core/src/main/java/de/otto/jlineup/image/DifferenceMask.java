@@ -0,0 +1,239 @@
+package de.otto.jlineup.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static de.otto.jlineup.image.ImageService.ANTI_ALIAS_DETECTED_COLOR;
+import static de.otto.jlineup.image.ImageService.DIFFERENT_SIZE_COLOR;
+import static de.otto.jlineup.image.ImageService.HIGHLIGHT_COLOR;
+import static de.otto.jlineup.image.ImageService.LOOK_SAME_COLOR;
+import static de.otto.jlineup.image.ImageService.PIXELMATCH_ANTI_ALIAS_DETECTED_COLOR;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Run length encoded mask of the differing pixels of a comparison. Pixels that are the same in both images are
+ * not stored at all, so the size of the mask depends on the amount of differences and not on the image size.
+ * <p>
+ * Runs are stored by difference class, the color distance of same-looking pixels is stored separately
+ * (one byte per pixel), so that the difference image can be rendered exactly as before when it's needed.
+ */
+final class DifferenceMask {
+
+    static final byte DIFFERENT = 0;
+    static final byte DIFFERENT_SIZE = 1;
+    static final byte LOOK_SAME = 2;
+    static final byte ANTI_ALIASED = 3;
+    static final byte PIXELMATCH_ANTI_ALIASED = 4;
+
+    //differences closer to each other than this are put into the same region
+    static final int REGION_MERGE_DISTANCE = 8;
+
+    private static final int LOOK_SAME_MASK = 0xFF00FFFF;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int width;
+
+    private int[] runStarts = new int[INITIAL_CAPACITY];
+    private int[] runLengths = new int[INITIAL_CAPACITY];
+    private byte[] runClasses = new byte[INITIAL_CAPACITY];
+    private int runCount;
+
+    private byte[] lookSameIntensities = new byte[INITIAL_CAPACITY];
+    private int lookSameCount;
+
+    DifferenceMask(int width) {
+        this.width = width;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * Adds a pixel in one of the colors of {@link ImageService}, same colored pixels are ignored.
+     * Pixels have to be added in ascending order.
+     */
+    void add(int index, int color) {
+        if (color == ImageService.SAME_COLOR) {
+            return;
+        }
+        if ((color & LOOK_SAME_MASK) == LOOK_SAME_COLOR) {
+            addLookSameIntensity((byte) (color >>> 16));
+            addRun(index, 1, LOOK_SAME);
+        } else {
+            addRun(index, 1, classOf(color));
+        }
+    }
+
+    /**
+     * Adds length pixels starting at index of a class other than {@link #LOOK_SAME}.
+     * Pixels have to be added in ascending order.
+     */
+    void addRun(int index, int length, byte differenceClass) {
+        final int last = runCount - 1;
+        if (last >= 0 && runClasses[last] == differenceClass && runStarts[last] + runLengths[last] == index) {
+            runLengths[last] += length;
+            return;
+        }
+        if (runCount == runStarts.length) {
+            final int newCapacity = runCount * 2;
+            runStarts = Arrays.copyOf(runStarts, newCapacity);
+            runLengths = Arrays.copyOf(runLengths, newCapacity);
+            runClasses = Arrays.copyOf(runClasses, newCapacity);
+        }
+        runStarts[runCount] = index;
+        runLengths[runCount] = length;
+        runClasses[runCount] = differenceClass;
+        runCount++;
+    }
+
+    private void addLookSameIntensity(byte intensity) {
+        if (lookSameCount == lookSameIntensities.length) {
+            lookSameIntensities = Arrays.copyOf(lookSameIntensities, lookSameCount * 2);
+        }
+        lookSameIntensities[lookSameCount++] = intensity;
+    }
+
+    /**
+     * Appends the runs of a mask of the following rows
+     */
+    DifferenceMask append(DifferenceMask other) {
+        for (int i = 0; i < other.runCount; i++) {
+            addRun(other.runStarts[i], other.runLengths[i], other.runClasses[i]);
+        }
+        for (int i = 0; i < other.lookSameCount; i++) {
+            addLookSameIntensity(other.lookSameIntensities[i]);
+        }
+        return this;
+    }
+
+    int getRunCount() {
+        return runCount;
+    }
+
+    int countPixels(byte differenceClass) {
+        int count = 0;
+        for (int i = 0; i < runCount; i++) {
+            if (runClasses[i] == differenceClass) {
+                count += runLengths[i];
+            }
+        }
+        return count;
+    }
+
+    BufferedImage render(int height) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        // a new image is black, which is the same color
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int lookSameIndex = 0;
+        for (int i = 0; i < runCount; i++) {
+            final int start = runStarts[i];
+            final int end = start + runLengths[i];
+            if (runClasses[i] == LOOK_SAME) {
+                for (int p = start; p < end; p++) {
+                    pixels[p] = LOOK_SAME_COLOR | (lookSameIntensities[lookSameIndex++] & 0xFF) << 16;
+                }
+            } else {
+                Arrays.fill(pixels, start, end, colorOf(runClasses[i]));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * @return the bounding boxes of groups of differing pixels, sorted from top to bottom
+     */
+    List<ImageDifference.DifferenceRegion> regions() {
+        final List<int[]> closedRegions = new ArrayList<>();
+        final List<int[]> openRegions = new ArrayList<>();
+        for (int i = 0; i < runCount; i++) {
+            final int start = runStarts[i];
+            final int end = start + runLengths[i] - 1;
+            final int firstRow = start / width;
+            final int lastRow = end / width;
+            if (firstRow == lastRow) {
+                addToRegions(start % width, firstRow, end % width, lastRow, openRegions, closedRegions);
+            } else if (lastRow == firstRow + 1 && end % width < start % width) {
+                // a run that wraps around the end of a row without covering a whole row
+                addToRegions(start % width, firstRow, width - 1, firstRow, openRegions, closedRegions);
+                addToRegions(0, lastRow, end % width, lastRow, openRegions, closedRegions);
+            } else {
+                addToRegions(0, firstRow, width - 1, lastRow, openRegions, closedRegions);
+            }
+        }
+        closedRegions.addAll(openRegions);
+        closedRegions.sort(Comparator.<int[]>comparingInt(region -> region[1]).thenComparingInt(region -> region[0]));
+        final List<ImageDifference.DifferenceRegion> regions = new ArrayList<>(closedRegions.size());
+        for (int[] region : closedRegions) {
+            regions.add(new ImageDifference.DifferenceRegion(region[0], region[1], region[2] - region[0] + 1, region[3] - region[1] + 1));
+        }
+        return regions;
+    }
+
+    //regions are stored as {minX, minY, maxX, maxY}
+    private static void addToRegions(int minX, int minY, int maxX, int maxY, List<int[]> openRegions, List<int[]> closedRegions) {
+        int[] target = null;
+        for (int i = 0; i < openRegions.size(); ) {
+            final int[] region = openRegions.get(i);
+            if (region[3] < minY - 1 - REGION_MERGE_DISTANCE) {
+                // pixels are added from top to bottom, nothing will be added to this region anymore
+                closedRegions.add(region);
+                openRegions.remove(i);
+                continue;
+            }
+            if (region[0] - REGION_MERGE_DISTANCE <= maxX && minX <= region[2] + REGION_MERGE_DISTANCE) {
+                if (target == null) {
+                    target = region;
+                } else {
+                    // the new pixels connect two regions
+                    target[0] = min(target[0], region[0]);
+                    target[1] = min(target[1], region[1]);
+                    target[2] = max(target[2], region[2]);
+                    target[3] = max(target[3], region[3]);
+                    openRegions.remove(i);
+                    continue;
+                }
+            }
+            i++;
+        }
+        if (target == null) {
+            openRegions.add(new int[]{minX, minY, maxX, maxY});
+        } else {
+            target[0] = min(target[0], minX);
+            target[1] = min(target[1], minY);
+            target[2] = max(target[2], maxX);
+            target[3] = max(target[3], maxY);
+        }
+    }
+
+    private static byte classOf(int color) {
+        if (color == HIGHLIGHT_COLOR) {
+            return DIFFERENT;
+        }
+        if (color == DIFFERENT_SIZE_COLOR) {
+            return DIFFERENT_SIZE;
+        }
+        if (color == ANTI_ALIAS_DETECTED_COLOR) {
+            return ANTI_ALIASED;
+        }
+        if (color == PIXELMATCH_ANTI_ALIAS_DETECTED_COLOR) {
+            return PIXELMATCH_ANTI_ALIASED;
+        }
+        throw new IllegalArgumentException("Unknown difference color " + Integer.toHexString(color));
+    }
+
+    private static int colorOf(byte differenceClass) {
+        return switch (differenceClass) {
+            case DIFFERENT -> HIGHLIGHT_COLOR;
+            case DIFFERENT_SIZE -> DIFFERENT_SIZE_COLOR;
+            case ANTI_ALIASED -> ANTI_ALIAS_DETECTED_COLOR;
+            case PIXELMATCH_ANTI_ALIASED -> PIXELMATCH_ANTI_ALIAS_DETECTED_COLOR;
+            default -> throw new IllegalArgumentException("Unknown difference class " + differenceClass);
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package de.otto.jlineup.image;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sparse description of the differences of two compared images: the bounding boxes of the differing areas and the
+ * number of pixels per difference class. Width and height are the dimensions of the full difference image.
+ * <p>
+ * Only the {@link #MAX_REGIONS} largest regions are kept, {@code regionCount} is the number of regions found.
+ */
+public record ImageDifference(int width, int height, int differentPixels, int differentSizePixels,
+                              int lookSamePixels, int antiAliasedPixels, int regionCount, List<DifferenceRegion> regions) {
+
+    //Noisy screenshots (i.e. a shifted page) have thousands of regions, which would blow up the report.json
+    static final int MAX_REGIONS = 100;
+
+    static ImageDifference of(DifferenceMask differenceMask, int height) {
+        final List<DifferenceRegion> regions = differenceMask.regions();
+        return new ImageDifference(
+                differenceMask.getWidth(),
+                height,
+                differenceMask.countPixels(DifferenceMask.DIFFERENT),
+                differenceMask.countPixels(DifferenceMask.DIFFERENT_SIZE),
+                differenceMask.countPixels(DifferenceMask.LOOK_SAME),
+                differenceMask.countPixels(DifferenceMask.ANTI_ALIASED) + differenceMask.countPixels(DifferenceMask.PIXELMATCH_ANTI_ALIASED),
+                regions.size(),
+                largestRegions(regions, MAX_REGIONS));
+    }
+
+    /**
+     * @return the {@code max} regions with the largest area, sorted from top to bottom like the given regions
+     */
+    static List<DifferenceRegion> largestRegions(List<DifferenceRegion> regions, int max) {
+        if (regions.size() <= max) {
+            return regions;
+        }
+        return regions.stream()
+                .sorted(Comparator.comparingLong(DifferenceRegion::area).reversed())
+                .limit(max)
+                .sorted(Comparator.comparingInt(DifferenceRegion::y).thenComparingInt(DifferenceRegion::x))
+                .toList();
+    }
+
+    public record DifferenceRegion(int x, int y, int width, int height) {
+
+        long area() {
+            return (long) width * height;
+        }
+    }
+}
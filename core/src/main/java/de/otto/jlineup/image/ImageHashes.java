@@ -0,0 +1,217 @@
+package de.otto.jlineup.image;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import tools.jackson.databind.annotation.JsonDeserialize;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Content hashes of a screenshot, computed when the screenshot is taken. Two screenshots with the same image hash
+ * are identical and don't have to be decoded for comparison, the row hashes tell which rows of two screenshots
+ * of the same width differ.
+ * <p>
+ * Hashes are computed from the decoded ARGB pixels, so they don't depend on the PNG encoding.
+ * <p>
+ * Row hashes take 8 bytes per pixel row, so they are not serialized with the other hashes. They are stored next to
+ * the screenshot (see {@link de.otto.jlineup.file.FileService#readRowHashes(String)}) and only read for comparison.
+ */
+@JsonDeserialize(builder = ImageHashes.Builder.class)
+public final class ImageHashes {
+
+    private static final HashFunction ROW_HASH_FUNCTION = Hashing.farmHashFingerprint64();
+    private static final HashFunction IMAGE_HASH_FUNCTION = Hashing.sha256();
+
+    public final int width;
+    public final int height;
+    public final String imageHash;
+    //64 bit hashes of all rows, one after the other
+    private final long[] rowHashes;
+
+    private ImageHashes(Builder builder) {
+        width = builder.width;
+        height = builder.height;
+        imageHash = builder.imageHash;
+        rowHashes = builder.rowHashes;
+    }
+
+    public static Builder imageHashesBuilder() {
+        return new Builder();
+    }
+
+    public static Builder copyOfBuilder(ImageHashes copy) {
+        return new Builder()
+                .withWidth(copy.width)
+                .withHeight(copy.height)
+                .withImageHash(copy.imageHash)
+                .withRowHashes(copy.rowHashes);
+    }
+
+    public static ImageHashes of(BufferedImage image) {
+        final ImageRaster raster = ImageRaster.of(image);
+        final ByteBuffer row = ByteBuffer.allocate(raster.width * Integer.BYTES);
+        final long[] rowHashes = new long[raster.height];
+        final Hasher imageHasher = IMAGE_HASH_FUNCTION.newHasher()
+                .putInt(raster.width)
+                .putInt(raster.height);
+        for (int y = 0; y < raster.height; y++) {
+            row.clear();
+            for (int x = 0; x < raster.width; x++) {
+                row.putInt(raster.getARGB(x, y));
+            }
+            final long rowHash = ROW_HASH_FUNCTION.hashBytes(row.array()).asLong();
+            rowHashes[y] = rowHash;
+            imageHasher.putLong(rowHash);
+        }
+        return imageHashesBuilder()
+                .withWidth(raster.width)
+                .withHeight(raster.height)
+                .withImageHash(imageHasher.hash().toString())
+                .withRowHashes(rowHashes)
+                .build();
+    }
+
+    /*
+     *
+     *
+     *
+     *  BEGIN of getters block
+     *
+     *  For GraalVM (JSON is empty if no getters are here)
+     *
+     *
+     *
+     */
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    /*
+     *
+     *
+     *
+     *  END of getters block
+     *
+     *  For GraalVM (JSON is empty if no getters are here)
+     *
+     *
+     *
+     */
+
+    /**
+     * @return the row hashes or null if they weren't computed or read for these hashes
+     */
+    public long[] rowHashes() {
+        return rowHashes;
+    }
+
+    /**
+     * @return a copy of these hashes with the given row hashes, i.e. read from the row hashes file of the screenshot
+     */
+    public ImageHashes withRowHashes(long[] rowHashes) {
+        return copyOfBuilder(this).withRowHashes(rowHashes).build();
+    }
+
+    public ImageHashes withoutRowHashes() {
+        return rowHashes == null ? this : withRowHashes(null);
+    }
+
+    public boolean isSameImage(ImageHashes other) {
+        return other != null && width == other.width && height == other.height && Objects.equals(imageHash, other.imageHash);
+    }
+
+    /**
+     * @return the rows within the height of both images whose hashes differ, or null if the rows of the
+     * two images can't be matched (different widths or missing row hashes)
+     */
+    public BitSet differingRows(ImageHashes other) {
+        if (other == null || width != other.width || rowHashes == null || other.rowHashes == null) {
+            return null;
+        }
+        final long[] rows = rowHashes;
+        final long[] otherRows = other.rowHashes;
+        if (rows.length != height || otherRows.length != other.height) {
+            return null;
+        }
+        final int rowsInBoth = Math.min(height, other.height);
+        final BitSet differingRows = new BitSet(rowsInBoth);
+        for (int y = 0; y < rowsInBoth; y++) {
+            if (rows[y] != otherRows[y]) {
+                differingRows.set(y);
+            }
+        }
+        return differingRows;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImageHashes that = (ImageHashes) o;
+        return width == that.width && height == that.height && Objects.equals(imageHash, that.imageHash) && Arrays.equals(rowHashes, that.rowHashes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hash(width, height, imageHash) + Arrays.hashCode(rowHashes);
+    }
+
+    @Override
+    public String toString() {
+        return "ImageHashes{" +
+                "width=" + width +
+                ", height=" + height +
+                ", imageHash='" + imageHash + '\'' +
+                '}';
+    }
+
+    public static final class Builder {
+        private int width;
+        private int height;
+        private String imageHash;
+        private long[] rowHashes;
+
+        private Builder() {
+        }
+
+        public Builder withWidth(int val) {
+            width = val;
+            return this;
+        }
+
+        public Builder withHeight(int val) {
+            height = val;
+            return this;
+        }
+
+        public Builder withImageHash(String val) {
+            imageHash = val;
+            return this;
+        }
+
+        @JsonIgnore
+        public Builder withRowHashes(long[] val) {
+            rowHashes = val;
+            return this;
+        }
+
+        public ImageHashes build() {
+            return new ImageHashes(this);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package de.otto.jlineup.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+import static java.lang.invoke.MethodHandles.lookup;
+
+/**
+ * Read only access to the pixels of a {@link BufferedImage} as non-premultiplied sRGB ARGB ints.
+ * <p>
+ * The pixels are read directly from the {@link DataBufferInt} or {@link DataBufferByte} in the layout
+ * ImageIO produced (i.e. TYPE_4BYTE_ABGR, TYPE_3BYTE_BGR, TYPE_INT_ARGB or TYPE_INT_RGB), so no copy of the
+ * image is needed for comparison. Only exotic layouts (indexed, gray, 16 bit, premultiplied, non-sRGB) are
+ * converted once.
+ */
+public abstract class ImageRaster {
+
+    private static final Logger LOG = LoggerFactory.getLogger(lookup().lookupClass());
+
+    private static final int OPAQUE = 0xFF000000;
+
+    final int width;
+    final int height;
+
+    private ImageRaster(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public static ImageRaster of(BufferedImage image) {
+        final WritableRaster raster = image.getRaster();
+        final ColorModel colorModel = image.getColorModel();
+        final SampleModel sampleModel = raster.getSampleModel();
+        final DataBuffer dataBuffer = raster.getDataBuffer();
+
+        if (dataBuffer.getNumBanks() == 1 && !colorModel.isAlphaPremultiplied() && colorModel.getColorSpace().isCS_sRGB()) {
+            if (dataBuffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel && isPackedArgb(colorModel)) {
+                return new PackedIntRaster(image, (DataBufferInt) dataBuffer, (SinglePixelPackedSampleModel) sampleModel);
+            }
+            if (dataBuffer instanceof DataBufferByte && sampleModel instanceof PixelInterleavedSampleModel && isInterleavedRgb(colorModel, sampleModel)) {
+                return new InterleavedByteRaster(image, (DataBufferByte) dataBuffer, (PixelInterleavedSampleModel) sampleModel);
+            }
+        }
+
+        LOG.debug("No direct raster access for image of type {}, copying pixels.", image.getType());
+        return new CopiedRaster(image);
+    }
+
+    private static boolean isPackedArgb(ColorModel colorModel) {
+        if (!(colorModel instanceof DirectColorModel)) {
+            return false;
+        }
+        final DirectColorModel directColorModel = (DirectColorModel) colorModel;
+        return directColorModel.getRedMask() == 0x00FF0000
+                && directColorModel.getGreenMask() == 0x0000FF00
+                && directColorModel.getBlueMask() == 0x000000FF
+                && (directColorModel.getAlphaMask() == 0 || directColorModel.getAlphaMask() == 0xFF000000);
+    }
+
+    private static boolean isInterleavedRgb(ColorModel colorModel, SampleModel sampleModel) {
+        if (!(colorModel instanceof ComponentColorModel) || colorModel.getTransferType() != DataBuffer.TYPE_BYTE) {
+            return false;
+        }
+        final int bands = sampleModel.getNumBands();
+        if (bands != (colorModel.hasAlpha() ? 4 : 3) || colorModel.getNumColorComponents() != 3) {
+            return false;
+        }
+        for (int sampleSize : sampleModel.getSampleSize()) {
+            if (sampleSize != 8) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the non-premultiplied sRGB color of the pixel at x|y, alpha in the upper byte
+     */
+    public abstract int getARGB(int x, int y);
+
+    /**
+     * Finds the next row in [fromRow, toRow) that is different in the other raster of the same width.
+     * Rasters with the same layout are compared on their raw data with {@link Arrays#mismatch}, which the
+     * JVM runs with SIMD instructions where available, so identical regions are skipped at memory bandwidth.
+     * <p>
+     * A returned row may still contain only same colored pixels (i.e. if unused bits differ), but rows before
+     * it are guaranteed to be identical.
+     *
+     * @return the index of the first differing row or toRow if all rows are identical
+     */
+    int nextDifferingRow(ImageRaster other, int fromRow, int toRow) {
+        for (int y = fromRow; y < toRow; y++) {
+            for (int x = 0; x < width; x++) {
+                if (getARGB(x, y) != other.getARGB(x, y)) {
+                    return y;
+                }
+            }
+        }
+        return toRow;
+    }
+
+    private static final class PackedIntRaster extends ImageRaster {
+        private final int[] data;
+        private final int baseOffset;
+        private final int scanlineStride;
+        private final int alphaMask;
+
+        private PackedIntRaster(BufferedImage image, DataBufferInt dataBuffer, SinglePixelPackedSampleModel sampleModel) {
+            super(image.getWidth(), image.getHeight());
+            final WritableRaster raster = image.getRaster();
+            this.data = dataBuffer.getData();
+            this.scanlineStride = sampleModel.getScanlineStride();
+            // sub images share the data buffer of their parent and are translated against it
+            this.baseOffset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * scanlineStride - raster.getSampleModelTranslateX();
+            // images without alpha channel may contain anything in the upper byte
+            this.alphaMask = image.getColorModel().hasAlpha() ? 0 : OPAQUE;
+        }
+
+        @Override
+        public int getARGB(int x, int y) {
+            final int pixel = data[baseOffset + y * scanlineStride + x];
+            return alphaMask == 0 ? pixel : alphaMask | pixel;
+        }
+
+        @Override
+        int nextDifferingRow(ImageRaster other, int fromRow, int toRow) {
+            if (!(other instanceof PackedIntRaster) || ((PackedIntRaster) other).alphaMask != alphaMask || other.width != width) {
+                return super.nextDifferingRow(other, fromRow, toRow);
+            }
+            final PackedIntRaster otherRaster = (PackedIntRaster) other;
+            if (scanlineStride == width && otherRaster.scanlineStride == width) {
+                // both images are stored without gaps, so the whole range is compared at once
+                final int start = baseOffset + fromRow * width;
+                final int otherStart = otherRaster.baseOffset + fromRow * width;
+                final int length = (toRow - fromRow) * width;
+                final int mismatch = Arrays.mismatch(data, start, start + length, otherRaster.data, otherStart, otherStart + length);
+                return mismatch < 0 ? toRow : fromRow + mismatch / width;
+            }
+            for (int y = fromRow; y < toRow; y++) {
+                final int start = baseOffset + y * scanlineStride;
+                final int otherStart = otherRaster.baseOffset + y * otherRaster.scanlineStride;
+                if (!Arrays.equals(data, start, start + width, otherRaster.data, otherStart, otherStart + width)) {
+                    return y;
+                }
+            }
+            return toRow;
+        }
+    }
+
+    private static final class InterleavedByteRaster extends ImageRaster {
+        private final byte[] data;
+        private final int baseOffset;
+        private final int scanlineStride;
+        private final int pixelStride;
+        private final int redOffset;
+        private final int greenOffset;
+        private final int blueOffset;
+        private final int alphaOffset;
+
+        private InterleavedByteRaster(BufferedImage image, DataBufferByte dataBuffer, PixelInterleavedSampleModel sampleModel) {
+            super(image.getWidth(), image.getHeight());
+            final WritableRaster raster = image.getRaster();
+            this.data = dataBuffer.getData();
+            this.scanlineStride = sampleModel.getScanlineStride();
+            this.pixelStride = sampleModel.getPixelStride();
+            this.baseOffset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * scanlineStride - raster.getSampleModelTranslateX() * pixelStride;
+            final int[] bandOffsets = sampleModel.getBandOffsets();
+            this.redOffset = bandOffsets[0];
+            this.greenOffset = bandOffsets[1];
+            this.blueOffset = bandOffsets[2];
+            this.alphaOffset = bandOffsets.length > 3 ? bandOffsets[3] : -1;
+        }
+
+        @Override
+        public int getARGB(int x, int y) {
+            final int position = baseOffset + y * scanlineStride + x * pixelStride;
+            final int alpha = alphaOffset < 0 ? OPAQUE : (data[position + alphaOffset] & 0xFF) << 24;
+            return alpha
+                    | (data[position + redOffset] & 0xFF) << 16
+                    | (data[position + greenOffset] & 0xFF) << 8
+                    | (data[position + blueOffset] & 0xFF);
+        }
+
+        @Override
+        int nextDifferingRow(ImageRaster other, int fromRow, int toRow) {
+            if (!hasSameLayout(other)) {
+                return super.nextDifferingRow(other, fromRow, toRow);
+            }
+            final InterleavedByteRaster otherRaster = (InterleavedByteRaster) other;
+            final int rowLength = width * pixelStride;
+            if (scanlineStride == rowLength && otherRaster.scanlineStride == rowLength) {
+                // both images are stored without gaps, so the whole range is compared at once
+                final int start = baseOffset + fromRow * rowLength;
+                final int otherStart = otherRaster.baseOffset + fromRow * rowLength;
+                final int length = (toRow - fromRow) * rowLength;
+                final int mismatch = Arrays.mismatch(data, start, start + length, otherRaster.data, otherStart, otherStart + length);
+                return mismatch < 0 ? toRow : fromRow + mismatch / rowLength;
+            }
+            for (int y = fromRow; y < toRow; y++) {
+                final int start = baseOffset + y * scanlineStride;
+                final int otherStart = otherRaster.baseOffset + y * otherRaster.scanlineStride;
+                if (!Arrays.equals(data, start, start + rowLength, otherRaster.data, otherStart, otherStart + rowLength)) {
+                    return y;
+                }
+            }
+            return toRow;
+        }
+
+        private boolean hasSameLayout(ImageRaster other) {
+            if (!(other instanceof InterleavedByteRaster) || other.width != width) {
+                return false;
+            }
+            final InterleavedByteRaster otherRaster = (InterleavedByteRaster) other;
+            return otherRaster.pixelStride == pixelStride
+                    && otherRaster.redOffset == redOffset
+                    && otherRaster.greenOffset == greenOffset
+                    && otherRaster.blueOffset == blueOffset
+                    && otherRaster.alphaOffset == alphaOffset;
+        }
+    }
+
+    private static final class CopiedRaster extends ImageRaster {
+        private final int[] pixels;
+
+        private CopiedRaster(BufferedImage image) {
+            super(image.getWidth(), image.getHeight());
+            this.pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        }
+
+        @Override
+        public int getARGB(int x, int y) {
+            return pixels[y * width + x];
+        }
+
+        @Override
+        int nextDifferingRow(ImageRaster other, int fromRow, int toRow) {
+            if (!(other instanceof CopiedRaster) || other.width != width) {
+                return super.nextDifferingRow(other, fromRow, toRow);
+            }
+            final int mismatch = Arrays.mismatch(pixels, fromRow * width, toRow * width, ((CopiedRaster) other).pixels, fromRow * width, toRow * width);
+            return mismatch < 0 ? toRow : fromRow + mismatch / width;
+        }
+    }
+}
@@ -6,13 +6,16 @@ import org.slf4j.LoggerFactory;
 import java.awt.*;
 import java.awt.image.*;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.invoke.MethodHandles.lookup;
 
-public class ImageService {
+public class ImageService implements AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(lookup().lookupClass());
 
@@ -23,23 +26,49 @@ public class ImageService {
     public static final int ANTI_ALIAS_DETECTED_COLOR = Color.GREEN.getRGB();
     public static final int PIXELMATCH_ANTI_ALIAS_DETECTED_COLOR = new Color(180, 255, 180).getRGB();
 
+    public static final int DEFAULT_PARALLELISM = 0;
+    private static final int MIN_ROWS_PER_BAND = 32;
+    private static final int BANDS_PER_THREAD = 4;
+
+    private final int parallelism;
+    private final ForkJoinPool forkJoinPool;
+
     public static class ImageComparisonResult {
-        private final BufferedImage differenceImage;
+        private final DifferenceMask differenceMask;
+        private final int differenceImageHeight;
+        private BufferedImage differenceImage;
         private final double difference;
         private final int acceptedDifferentPixels;
         private final double maxDetectedColorDistance;
 
         public ImageComparisonResult(BufferedImage differenceImage, double difference, int acceptedDifferentPixels, double maxDetectedColorDistance) {
+            this(null, 0, differenceImage, difference, acceptedDifferentPixels, maxDetectedColorDistance);
+        }
+
+        private ImageComparisonResult(DifferenceMask differenceMask, int differenceImageHeight, BufferedImage differenceImage, double difference, int acceptedDifferentPixels, double maxDetectedColorDistance) {
+            this.differenceMask = differenceMask;
+            this.differenceImageHeight = differenceImageHeight;
             this.differenceImage = differenceImage;
             this.difference = difference;
             this.acceptedDifferentPixels = acceptedDifferentPixels;
             this.maxDetectedColorDistance = maxDetectedColorDistance;
         }
 
-        public Optional<BufferedImage> getDifferenceImage() {
+        /**
+         * The difference image is rendered from the sparse difference mask on first access, so it only takes
+         * memory if it's really needed (i.e. for the HTML report).
+         */
+        public synchronized Optional<BufferedImage> getDifferenceImage() {
+            if (differenceImage == null && differenceMask != null) {
+                differenceImage = differenceMask.render(differenceImageHeight);
+            }
             return Optional.ofNullable(differenceImage);
         }
 
+        public Optional<ImageDifference> getImageDifference() {
+            return differenceMask != null ? Optional.of(ImageDifference.of(differenceMask, differenceImageHeight)) : Optional.empty();
+        }
+
         public double getDifference() {
             return difference;
         }
@@ -53,7 +82,40 @@ public class ImageService {
         }
     }
 
+    public ImageService() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param parallelism the number of threads used to compare the row bands of two images,
+     *                    values below 1 mean one thread per available processor
+     */
+    public ImageService(int parallelism) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.forkJoinPool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void close() {
+        if (forkJoinPool != null) {
+            forkJoinPool.shutdown();
+        }
+    }
+
     public ImageComparisonResult compareImages(BufferedImage image1, BufferedImage image2, int viewportHeight, boolean ignoreAntiAliased, double maxAntiAliasColorDistance, boolean strictColorComparison, double maxColorDistance) {
+        return compareImages(image1, image2, viewportHeight, ignoreAntiAliased, maxAntiAliasColorDistance, strictColorComparison, maxColorDistance, null);
+    }
+
+    /**
+     * @param rowsToCompare the rows that may differ (i.e. known from {@link ImageHashes#differingRows(ImageHashes)}),
+     *                      all other rows within the height of both images are treated as identical without looking
+     *                      at them. Null means all rows are compared. Only used for images of the same width.
+     */
+    public ImageComparisonResult compareImages(BufferedImage image1, BufferedImage image2, int viewportHeight, boolean ignoreAntiAliased, double maxAntiAliasColorDistance, boolean strictColorComparison, double maxColorDistance, BitSet rowsToCompare) {
 
         if (image1 == null || image2 == null) throw new NullPointerException("Can't compare null imagebuffers");
 
@@ -61,94 +123,62 @@ public class ImageService {
             return new ImageComparisonResult(null, 0, 0, 0d);
         }
 
-        final boolean hasAlphaChannel = image1.getAlphaRaster() != null && image2.getAlphaRaster() != null;
-        if (!hasAlphaChannel) {
-            LOG.debug("Add alpha channel to images to have 4 bits per pixel (makes pixelmatch work).");
-            BufferedImage newImage1 = new BufferedImage(image1.getWidth(), image1.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
-            BufferedImage newImage2 = new BufferedImage(image2.getWidth(), image2.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
-            ColorConvertOp colorConvertOp = new ColorConvertOp(null);
-            colorConvertOp.filter(image1, newImage1);
-            colorConvertOp.filter(image2, newImage2);
-            image1 = newImage1;
-            image2 = newImage2;
-        }
-
-        // cache image widths and heights
-        final int width1 = image1.getWidth();
-        final int height1 = image1.getHeight();
-        final int width2 = image2.getWidth();
-        final int height2 = image2.getHeight();
+        // read pixels directly from the image data, whatever layout it has
+        final ImageRaster raster1 = ImageRaster.of(image1);
+        final ImageRaster raster2 = ImageRaster.of(image2);
 
         // calculate max dimensions
         final int maxWidth = max(image1.getWidth(), image2.getWidth());
         final int maxHeight = max(image1.getHeight(), image2.getHeight());
+        final int maxPixelCount = maxWidth * maxHeight;
 
-        // calculate min width
-        final int minWidth = min(image1.getWidth(), image2.getWidth());
+        final PixelComparison comparison = new PixelComparison(raster1, raster2, maxWidth, maxHeight, rowsToCompare,
+                ignoreAntiAliased, maxAntiAliasColorDistance, strictColorComparison, maxColorDistance);
 
-        // convert images to pixel arrays
-        final int[] image1Pixels = image1.getRGB(0, 0, width1, height1, null, 0, width1);
-        final int[] image2Pixels = image2.getRGB(0, 0, width2, height2, null, 0, width2);
+        final ComparisonCounters counters;
+        if (raster1.width == raster2.width) {
+            counters = compareRowBands(comparison, maxHeight);
+        } else {
+            // Images of different widths are rare (i.e. when the device config changed between before and after)
+            // and are compared sequentially, row bands only help if the rows of both images line up
+            counters = compareSequentially(comparison);
+        }
 
-        // calculate pixel counts of img1 and img2
-        final int pixelCount1 = width1 * height1;
-        final int pixelCount2 = width2 * height2;
+        double difference = (1d * counters.diffPixelCounter) / min(maxPixelCount, maxWidth * viewportHeight);
 
-        // calculate pixel count min and max
-        final int maxPixelCount = maxWidth * maxHeight;
-        final int minPixelCount = min(pixelCount1, pixelCount2);
+        LOG.debug("checkedPixelCounter: {}, diffPixelCounter: {}, lookSameDiffPixelCounter: {}, antiAliasedDiffPixelCounter: {}, maxDetectedColorDistance: {}", counters.checkedPixelCounter, counters.diffPixelCounter, counters.lookSameDiffPixelCounter, counters.antiAliasedDiffPixelCounter, counters.maxDetectedColorDistance);
 
-        // compare img1 to img2, pixel by pixel. If different, highlight differenceSum image pixel
-        int diffPixelCounter = 0;
-        int checkedPixelCounter = 0;
-        int antiAliasedDiffPixelCounter = 0;
-        int lookSameDiffPixelCounter = 0;
-        double maxDetectedColorDistance = 0f;
+        return new ImageComparisonResult(counters.differenceMask, maxHeight, null, difference, counters.lookSameDiffPixelCounter + counters.antiAliasedDiffPixelCounter, counters.maxDetectedColorDistance);
+    }
+
+    private ComparisonCounters compareRowBands(PixelComparison comparison, int maxHeight) {
+        if (forkJoinPool == null || maxHeight < 2 * MIN_ROWS_PER_BAND) {
+            return comparison.compareRows(0, maxHeight);
+        }
+        // a few more bands than threads, so that work stealing can balance bands with many anti-aliasing checks
+        final int rowsPerBand = max(MIN_ROWS_PER_BAND, (maxHeight + parallelism * BANDS_PER_THREAD - 1) / (parallelism * BANDS_PER_THREAD));
+        return forkJoinPool.invoke(new RowBandTask(comparison, 0, maxHeight, rowsPerBand));
+    }
+
+    private static ComparisonCounters compareSequentially(PixelComparison comparison) {
+
+        final int width1 = comparison.raster1.width;
+        final int width2 = comparison.raster2.width;
+        final int maxWidth = max(width1, width2);
+        final int minWidth = min(width1, width2);
+        final int maxPixelCount = maxWidth * comparison.maxHeight;
+        final int minPixelCount = min(width1 * comparison.raster1.height, width2 * comparison.raster2.height);
+        final ComparisonCounters counters = new ComparisonCounters(maxWidth);
+        final DifferenceMask differenceMask = counters.differenceMask;
+        final LabColorCache labColorCache = LabColorCache.forCurrentThread();
 
-        final int[] differenceImagePixels = new int[maxPixelCount];
         //i1 and i2 are the indices in the image pixel arrays of image1pixels and image2pixels
         //iD is the index of the differenceSum image
         for (int i1 = 0, i2 = 0, iD = 0, x = 0, y = 0; iD < maxPixelCount; ) {
             //mark same pixels with same_color and different pixels in highlight_colors
-            if (image1Pixels[i1] != image2Pixels[i2]) {
-                boolean acceptableDifferenceDetected = false;
-                checkedPixelCounter++;
-                if (!strictColorComparison) {
-                    double colorDistance = getColorDistance(image1Pixels[i1], image2Pixels[i2]);
-                    maxDetectedColorDistance = max(maxDetectedColorDistance, colorDistance);
-                    if (colorDistance < maxColorDistance) {
-                        Color color = Color.blue;
-                        //Add red to the color if the color distance is higher than 0.5
-                        color = new Color(min(255, color.getRed() + (int) (colorDistance * 255)), color.getGreen(), color.getBlue());
-                        differenceImagePixels[iD] = color.getRGB();
-                        LOG.debug("Same-looking pixels detected at pixel {}|{} with a max color distance of {}", x, y, maxColorDistance);
-                        lookSameDiffPixelCounter++;
-                        acceptableDifferenceDetected = true;
-                    }
-                }
-
-                if (!acceptableDifferenceDetected && ignoreAntiAliased && AntiAliasingIgnoringComparator.checkIsAntialiased(image1, image2, x, y, maxAntiAliasColorDistance)) {
-                    differenceImagePixels[iD] = ANTI_ALIAS_DETECTED_COLOR;
-                    LOG.debug("Anti-aliasing detected with looks-same at pixel {}|{} with a max anti alias color distance of {}", x, y, maxAntiAliasColorDistance);
-                    antiAliasedDiffPixelCounter++;
-                    acceptableDifferenceDetected = true;
-                }
-
-                if (!acceptableDifferenceDetected && ignoreAntiAliased && width1 == width2 && height1 == height2 && PixelMatch.isAntiAliased(image1, x, y, width1, height1, image2)) {
-                    differenceImagePixels[iD] = PIXELMATCH_ANTI_ALIAS_DETECTED_COLOR;
-                    LOG.debug("Anti-aliasing detected with pixelmatch at pixel {}|{}", x, y);
-                    antiAliasedDiffPixelCounter++;
-                    acceptableDifferenceDetected = true;
-                }
-
-                if (!acceptableDifferenceDetected) {
-                    differenceImagePixels[iD] = HIGHLIGHT_COLOR;
-                    diffPixelCounter++;
-                }
-
-            } else {
-                differenceImagePixels[iD] = SAME_COLOR;
-            }
+            final int pixel1 = comparison.raster1.getARGB(i1 % width1, i1 / width1);
+            final int pixel2 = comparison.raster2.getARGB(i2 % width2, i2 / width2);
+            differenceMask.add(iD, comparison.comparePixel(pixel1, pixel2, x, y, counters, labColorCache));
 
             //advance all indices
             i1++;
@@ -169,15 +199,15 @@ public class ImageService {
             if (width1 < width2 && i1 % minWidth == 0) {
                 while (i2 % maxWidth != 0) {
                     i2++;
-                    differenceImagePixels[iD] = DIFFERENT_SIZE_COLOR;
-                    diffPixelCounter++;
+                    differenceMask.addRun(iD, 1, DifferenceMask.DIFFERENT_SIZE);
+                    counters.diffPixelCounter++;
                     iD++;
                 }
             } else if (width2 < width1 && i2 % minWidth == 0) {
                 while (i1 % maxWidth != 0) {
                     i1++;
-                    differenceImagePixels[iD] = DIFFERENT_SIZE_COLOR;
-                    diffPixelCounter++;
+                    differenceMask.addRun(iD, 1, DifferenceMask.DIFFERENT_SIZE);
+                    counters.diffPixelCounter++;
                     iD++;
                 }
             }
@@ -190,40 +220,178 @@ public class ImageService {
             if (i1 == minPixelCount || i2 == minPixelCount) {
                 while (iD < maxPixelCount) {
                     if (iD % maxWidth < minWidth) {
-                        differenceImagePixels[iD] = DIFFERENT_SIZE_COLOR;
-                        diffPixelCounter++;
-                    } else {
-                        differenceImagePixels[iD] = SAME_COLOR;
+                        differenceMask.addRun(iD, 1, DifferenceMask.DIFFERENT_SIZE);
+                        counters.diffPixelCounter++;
                     }
                     iD++;
                 }
             }
         }
+        return counters;
+    }
 
-        double difference = (1d * diffPixelCounter) / min(maxPixelCount, maxWidth * viewportHeight);
+    /**
+     * The counters and differences of one compared tile, tiles are merged after comparison
+     */
+    private static final class ComparisonCounters {
+        private final DifferenceMask differenceMask;
+        private int diffPixelCounter;
+        private int checkedPixelCounter;
+        private int antiAliasedDiffPixelCounter;
+        private int lookSameDiffPixelCounter;
+        private double maxDetectedColorDistance;
+
+        private ComparisonCounters(int width) {
+            this.differenceMask = new DifferenceMask(width);
+        }
 
-        // save differenceImagePixels to a new BufferedImage
-        final BufferedImage out = new BufferedImage(maxWidth, maxHeight, BufferedImage.TYPE_INT_RGB);
-        out.setRGB(0, 0, maxWidth, maxHeight, differenceImagePixels, 0, maxWidth);
+        //other has to be the tile directly below this one
+        private ComparisonCounters merge(ComparisonCounters other) {
+            differenceMask.append(other.differenceMask);
+            diffPixelCounter += other.diffPixelCounter;
+            checkedPixelCounter += other.checkedPixelCounter;
+            antiAliasedDiffPixelCounter += other.antiAliasedDiffPixelCounter;
+            lookSameDiffPixelCounter += other.lookSameDiffPixelCounter;
+            maxDetectedColorDistance = max(maxDetectedColorDistance, other.maxDetectedColorDistance);
+            return this;
+        }
+    }
 
-        LOG.debug("checkedPixelCounter: {}, diffPixelCounter: {}, lookSameDiffPixelCounter: {}, antiAliasedDiffPixelCounter: {}, maxDetectedColorDistance: {}", checkedPixelCounter, diffPixelCounter, lookSameDiffPixelCounter, antiAliasedDiffPixelCounter, maxDetectedColorDistance);
+    /**
+     * Holds everything needed to compare two images. Tiles collect their differences in their own
+     * counters, so one instance can be shared by all tasks of a comparison.
+     */
+    private static final class PixelComparison {
+        private final ImageRaster raster1;
+        private final ImageRaster raster2;
+        private final int maxWidth;
+        private final int maxHeight;
+        private final BitSet rowsToCompare;
+        private final boolean ignoreAntiAliased;
+        private final double maxAntiAliasColorDistance;
+        private final boolean strictColorComparison;
+        private final double maxColorDistance;
+        private final boolean sameDimensions;
+
+        private PixelComparison(ImageRaster raster1, ImageRaster raster2, int maxWidth, int maxHeight, BitSet rowsToCompare,
+                                boolean ignoreAntiAliased, double maxAntiAliasColorDistance, boolean strictColorComparison, double maxColorDistance) {
+            this.raster1 = raster1;
+            this.raster2 = raster2;
+            this.maxWidth = maxWidth;
+            this.maxHeight = maxHeight;
+            this.rowsToCompare = rowsToCompare;
+            this.ignoreAntiAliased = ignoreAntiAliased;
+            this.maxAntiAliasColorDistance = maxAntiAliasColorDistance;
+            this.strictColorComparison = strictColorComparison;
+            this.maxColorDistance = maxColorDistance;
+            this.sameDimensions = raster1.width == raster2.width && raster1.height == raster2.height;
+        }
 
-        return new ImageComparisonResult(out, difference, lookSameDiffPixelCounter + antiAliasedDiffPixelCounter, maxDetectedColorDistance);
-    }
+        /**
+         * Compares rows [fromRow, toRow) of two images with the same width
+         */
+        private ComparisonCounters compareRows(int fromRow, int toRow) {
+            final ComparisonCounters counters = new ComparisonCounters(maxWidth);
+            final DifferenceMask differenceMask = counters.differenceMask;
+            final LabColorCache labColorCache = LabColorCache.forCurrentThread();
+            final int width = raster1.width;
+            final int minHeight = min(raster1.height, raster2.height);
+            final int lastComparableRow = min(toRow, minHeight);
+            for (int y = fromRow; y < lastComparableRow; y++) {
+                int scanEnd = lastComparableRow;
+                if (rowsToCompare != null) {
+                    //rows with equal hashes are known to be identical and aren't even scanned
+                    final int nextRowToCompare = rowsToCompare.nextSetBit(y);
+                    final int scanStart = nextRowToCompare < 0 ? lastComparableRow : min(nextRowToCompare, lastComparableRow);
+                    if (scanStart == lastComparableRow) {
+                        break;
+                    }
+                    y = scanStart;
+                    scanEnd = min(lastComparableRow, rowsToCompare.nextClearBit(y));
+                }
+                //identical rows are skipped with a fast scan, the expensive checks are only done
+                //for the pixels of differing rows
+                final int differingRow = raster1.nextDifferingRow(raster2, y, scanEnd);
+                if (differingRow == scanEnd) {
+                    y = scanEnd - 1;
+                    continue;
+                }
+                y = differingRow;
+                for (int x = 0, i = y * width; x < width; x++, i++) {
+                    differenceMask.add(i, comparePixel(raster1.getARGB(x, y), raster2.getARGB(x, y), x, y, counters, labColorCache));
+                }
+            }
+            for (int y = max(fromRow, minHeight); y < toRow; y++) {
+                //one of the two pictures is over, the remaining rows of the other one are different
+                differenceMask.addRun(y * width, width, DifferenceMask.DIFFERENT_SIZE);
+                counters.diffPixelCounter += width;
+            }
+            return counters;
+        }
+
+        //mark same pixels with same_color and different pixels in highlight_colors
+        private int comparePixel(int pixel1, int pixel2, int x, int y, ComparisonCounters counters, LabColorCache labColorCache) {
+            if (pixel1 == pixel2) {
+                return SAME_COLOR;
+            }
+
+            counters.checkedPixelCounter++;
+            if (!strictColorComparison) {
+                double colorDistance = labColorCache.colorDistance(pixel1, pixel2);
+                counters.maxDetectedColorDistance = max(counters.maxDetectedColorDistance, colorDistance);
+                if (colorDistance < maxColorDistance) {
+                    LOG.debug("Same-looking pixels detected at pixel {}|{} with a max color distance of {}", x, y, maxColorDistance);
+                    counters.lookSameDiffPixelCounter++;
+                    //Add red to the blue color if the color distance is higher than 0.5
+                    return LOOK_SAME_COLOR | (min(255, (int) (colorDistance * 255)) << 16);
+                }
+            }
 
-    private static int[] getARGB(int pixel) {
+            if (ignoreAntiAliased && AntiAliasingIgnoringComparator.checkIsAntialiased(raster1, raster2, x, y, maxAntiAliasColorDistance)) {
+                LOG.debug("Anti-aliasing detected with looks-same at pixel {}|{} with a max anti alias color distance of {}", x, y, maxAntiAliasColorDistance);
+                counters.antiAliasedDiffPixelCounter++;
+                return ANTI_ALIAS_DETECTED_COLOR;
+            }
 
-        int alpha = (pixel >> 24) & 0xFF;
-        int red = (pixel >> 16) & 0xFF;
-        int green = (pixel >> 8) & 0xFF;
-        int blue = pixel & 0xFF;
+            if (ignoreAntiAliased && sameDimensions && PixelMatch.isAntiAliased(raster1, x, y, raster1.width, raster1.height, raster2)) {
+                LOG.debug("Anti-aliasing detected with pixelmatch at pixel {}|{}", x, y);
+                counters.antiAliasedDiffPixelCounter++;
+                return PIXELMATCH_ANTI_ALIAS_DETECTED_COLOR;
+            }
 
-        return new int[]{alpha, red, green, blue};
+            counters.diffPixelCounter++;
+            return HIGHLIGHT_COLOR;
+        }
     }
 
-    static Color getColor(int pixel) {
-        int[] argb = getARGB(pixel);
-        return new Color(argb[1], argb[2], argb[3], argb[0]);
+    /**
+     * Splits the rows of a comparison into bands which are compared in parallel
+     */
+    private static final class RowBandTask extends RecursiveTask<ComparisonCounters> {
+        private final PixelComparison comparison;
+        private final int fromRow;
+        private final int toRow;
+        private final int rowsPerBand;
+
+        private RowBandTask(PixelComparison comparison, int fromRow, int toRow, int rowsPerBand) {
+            this.comparison = comparison;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerBand = rowsPerBand;
+        }
+
+        @Override
+        protected ComparisonCounters compute() {
+            if (toRow - fromRow <= rowsPerBand) {
+                return comparison.compareRows(fromRow, toRow);
+            }
+            final int middleRow = fromRow + (toRow - fromRow) / 2;
+            final RowBandTask upperBand = new RowBandTask(comparison, fromRow, middleRow, rowsPerBand);
+            final RowBandTask lowerBand = new RowBandTask(comparison, middleRow, toRow, rowsPerBand);
+            upperBand.fork();
+            final ComparisonCounters lowerCounters = lowerBand.compute();
+            return upperBand.join().merge(lowerCounters);
+        }
     }
 
     //Helper function to compare two BufferedImage instances (BufferedImage doesn't override equals())
@@ -242,12 +410,7 @@ public class ImageService {
     }
 
     static double getColorDistance(int argbColor1, int argbColor2) {
-        int[] argb1 = getARGB(argbColor1);
-        int[] argb2 = getARGB(argbColor2);
-        LAB lab1 = LAB.fromRGB(argb1[1], argb1[2], argb1[3], 0);
-        LAB lab2 = LAB.fromRGB(argb2[1], argb2[2], argb2[3], 0);
-
-        return Math.abs(LAB.ciede2000(lab1, lab2));
+        return LabColorCache.forCurrentThread().colorDistance(argbColor1, argbColor2);
     }
 
     //A very fast byte buffer based image comparison for images containing INT or BYTE type representations
@@ -31,6 +31,16 @@ package de.otto.jlineup.image;
 
 public class LAB
 {
+    // sRGB channel value (0-255) to linear RGB, same calculation as in fromRGB
+    private static final double[] SRGB_TO_LINEAR = new double[256];
+
+    static {
+        for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+            double c = i / 255.0;
+            SRGB_TO_LINEAR[i] = c <= 0.04045 ? c/12.92 : Math.pow((c+0.055)/1.055, 2.4);
+        }
+    }
+
     public final double L;
     public final double a;
     public final double b;
@@ -162,6 +172,35 @@ public class LAB
         return new LAB(L,A,B);
     }
 
+    /**
+     * Maps a packed (A)RGB int to unbinned LAB space (D65) without creating objects, the alpha channel is ignored.
+     * Yields the same values as fromRGB(r, g, b, 0), which are written to target[offset], target[offset+1]
+     * and target[offset+2].
+     */
+    public static void fromPackedRGB(int rgb, double[] target, int offset) {
+        // first, normalize and linearize RGB values
+        double r = SRGB_TO_LINEAR[(rgb >> 16) & 0xFF];
+        double g = SRGB_TO_LINEAR[(rgb >> 8) & 0xFF];
+        double b = SRGB_TO_LINEAR[rgb & 0xFF];
+
+        // D65 standard referent
+        double X = 0.950470, Y = 1.0, Z = 1.088830;
+
+        // second, map sRGB to CIE XYZ
+        double x = (0.4124564*r + 0.3575761*g + 0.1804375*b) / X,
+                y = (0.2126729*r + 0.7151522*g + 0.0721750*b) / Y,
+                z = (0.0193339*r + 0.1191920*g + 0.9503041*b) / Z;
+
+        // third, map CIE XYZ to CIE L*a*b*
+        x = x > 0.008856 ? Math.pow(x, 1.0/3) : 7.787037*x + 4.0/29;
+        y = y > 0.008856 ? Math.pow(y, 1.0/3) : 7.787037*y + 4.0/29;
+        z = z > 0.008856 ? Math.pow(z, 1.0/3) : 7.787037*z + 4.0/29;
+
+        target[offset] = 116*y - 16;
+        target[offset + 1] = 500*(x-y);
+        target[offset + 2] = 200*(y-z);
+    }
+
     /**
      * Maps an RGB triple to binned LAB space (D65).
      * Binning is done by <i>rounding</i> LAB values.
@@ -226,6 +265,13 @@ public class LAB
     }
 
     public static double ciede2000(LAB x, LAB y) {
+        return ciede2000(x.L, x.a, x.b, y.L, y.a, y.b);
+    }
+
+    /**
+     * Allocation free variant of {@link #ciede2000(LAB, LAB)} working on plain L*a*b* values.
+     */
+    public static double ciede2000(double L1, double a1, double b1, double L2, double a2, double b2) {
         // adapted from Sharma et al's MATLAB implementation at
         //  http://www.ece.rochester.edu/~gsharma/ciede2000/
 
@@ -234,8 +280,8 @@ public class LAB
 
         // compute terms
         double pi = Math.PI,
-                L1 = x.L, a1 = x.a, b1 = x.b, Cab1 = Math.sqrt(a1*a1 + b1*b1),
-                L2 = y.L, a2 = y.a, b2 = y.b, Cab2 = Math.sqrt(a2*a2 + b2*b2),
+                Cab1 = Math.sqrt(a1*a1 + b1*b1),
+                Cab2 = Math.sqrt(a2*a2 + b2*b2),
                 Cab = 0.5*(Cab1 + Cab2),
                 G = 0.5*(1 - Math.sqrt(Math.pow(Cab,7)/(Math.pow(Cab,7)+Math.pow(25,7)))),
                 ap1 = (1+G) * a1,
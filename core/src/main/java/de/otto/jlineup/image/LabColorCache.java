@@ -0,0 +1,46 @@
+package de.otto.jlineup.image;
+
+/**
+ * A bounded, direct mapped cache of CIE L*a*b* values keyed by 24 bit RGB. Screenshots usually consist of
+ * few distinct colors, so most color distance calculations don't need to convert RGB to L*a*b* again.
+ * <p>
+ * Instances are not thread safe, use {@link #forCurrentThread()} to get the cache of the current thread.
+ */
+final class LabColorCache {
+
+    private static final int SLOT_BITS = 12;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    //Marks a slot as filled, so that black (0x000000) can be cached, too
+    private static final int FILLED = 1 << 24;
+
+    private static final ThreadLocal<LabColorCache> CACHES = ThreadLocal.withInitial(LabColorCache::new);
+
+    private final int[] keys = new int[SLOTS];
+    private final double[] labValues = new double[SLOTS * 3];
+
+    static LabColorCache forCurrentThread() {
+        return CACHES.get();
+    }
+
+    /**
+     * @return the CIEDE2000 distance of the two colors, the alpha channel is ignored
+     */
+    double colorDistance(int argbColor1, int argbColor2) {
+        int offset = offsetOf(argbColor1);
+        //copy values of the first color, the second color may be mapped to the same slot
+        final double L1 = labValues[offset], a1 = labValues[offset + 1], b1 = labValues[offset + 2];
+        offset = offsetOf(argbColor2);
+        return Math.abs(LAB.ciede2000(L1, a1, b1, labValues[offset], labValues[offset + 1], labValues[offset + 2]));
+    }
+
+    private int offsetOf(int argbColor) {
+        final int key = (argbColor & 0xFFFFFF) | FILLED;
+        final int slot = (key * 0x9E3779B1) >>> (32 - SLOT_BITS);
+        final int offset = slot * 3;
+        if (keys[slot] != key) {
+            LAB.fromPackedRGB(argbColor, labValues, offset);
+            keys[slot] = key;
+        }
+        return offset;
+    }
+}
@@ -4,7 +4,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
 
 import static java.lang.invoke.MethodHandles.lookup;
 
@@ -35,22 +34,15 @@ public class PixelMatch {
     private final static Logger LOG = LoggerFactory.getLogger(lookup().lookupClass());
 
     public static boolean isAntiAliased(BufferedImage bufferedImage, int x1, int y1, int width, int height, BufferedImage bufferedImage2) {
+        return isAntiAliased(ImageRaster.of(bufferedImage), x1, y1, width, height, ImageRaster.of(bufferedImage2));
+    }
 
-        final boolean hasAlphaChannel = bufferedImage.getAlphaRaster() != null;
-        final boolean hasImage2AlphaChannel = bufferedImage2.getAlphaRaster() != null;
-        if (!hasAlphaChannel || !hasImage2AlphaChannel) {
-            throw new RuntimeException("Image must have an alpha channel");
-            //LOG.warn("Image 1 ({},{}) and image 2 ({},{}) must have an alpha channel for pixelmatch to work", bufferedImage, hasAlphaChannel, bufferedImage2, hasImage2AlphaChannel);
-            //return false;
-        }
-
-        byte[] img1 = ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData();
-        byte[] img2 = ((DataBufferByte) bufferedImage2.getRaster().getDataBuffer()).getData();
+    static boolean isAntiAliased(ImageRaster img1, int x1, int y1, int width, int height, ImageRaster img2) {
 
-        if (img1.length != width * height * 4) {
+        if (img1.width != width || img1.height != height) {
             LOG.debug("Image 1 data size does not match width/height.");
             return false;
-        } else if (img2.length != width * height * 4) {
+        } else if (img2.width != width || img2.height != height) {
             LOG.debug("Image 2 data size does not match width/height.");
             return false;
         }
@@ -59,7 +51,7 @@ public class PixelMatch {
         int y0 = Math.max(y1 - 1, 0);
         int x2 = Math.min(x1 + 1, width - 1);
         int y2 = Math.min(y1 + 1, height - 1);
-        int pos = (y1 * width + x1) * 4;
+        int pixel = img1.getARGB(x1, y1);
         int zeroes = x1 == x0 || x1 == x2 || y1 == y0 || y1 == y2 ? 1 : 0;
         double min = 0, max = 0;
         int minX = 0, minY = 0, maxX = 0, maxY = 0;
@@ -70,7 +62,7 @@ public class PixelMatch {
                 if (x == x1 && y == y1) continue;
 
                 // brightness delta between the center pixel and adjacent one
-                double delta = colorDelta(img1, img1, pos, (y * width + x) * 4, true);
+                double delta = colorDelta(pixel, img1.getARGB(x, y), true);
 
                 // count the number of equal, darker and brighter adjacent pixels
                 if (delta == 0) {
@@ -103,13 +95,13 @@ public class PixelMatch {
     }
 
     // check if a pixel has 3+ adjacent pixels of the same color.
-    static boolean hasManySiblings(byte[] img, int x1, int y1, int width, int height) {
+    static boolean hasManySiblings(ImageRaster img, int x1, int y1, int width, int height) {
 
         int x0 = Math.max(x1 - 1, 0);
         int y0 = Math.max(y1 - 1, 0);
         int x2 = Math.min(x1 + 1, width - 1);
         int y2 = Math.min(y1 + 1, height - 1);
-        int pos = (y1 * width + x1) * 4;
+        int pixel = img.getARGB(x1, y1);
         int zeroes = x1 == x0 || x1 == x2 || y1 == y0 || y1 == y2 ? 1 : 0;
 
         // go through 8 adjacent pixels
@@ -117,11 +109,7 @@ public class PixelMatch {
             for (int y = y0; y <= y2; y++) {
                 if (x == x1 && y == y1) continue;
 
-                int pos2 = (y * width + x) * 4;
-                if (img[pos] == img[pos2] &&
-                        img[pos + 1] == img[pos2 + 1] &&
-                        img[pos + 2] == img[pos2 + 2] &&
-                        img[pos + 3] == img[pos2 + 3]) zeroes++;
+                if (pixel == img.getARGB(x, y)) zeroes++;
 
                 if (zeroes > 2) return true;
             }
@@ -132,17 +120,21 @@ public class PixelMatch {
 
     // calculate color difference according to the paper "Measuring perceived color difference
     // using YIQ NTSC transmission color space in mobile applications" by Y. Kotsarenko and F. Ramos
-    static double colorDelta(byte[] img1, byte[] img2, int k, int m, boolean yOnly) {
-
-        double r1 = img1[k + 0] + 128;
-        double g1 = img1[k + 1] + 128;
-        double b1 = img1[k + 2] + 128;
-        double a1 = img1[k + 3] + 128;
-
-        double r2 = img2[m + 0] + 128;
-        double g2 = img2[m + 1] + 128;
-        double b2 = img2[m + 2] + 128;
-        double a2 = img2[m + 3] + 128;
+    //
+    // The port always worked on the raw bytes of TYPE_4BYTE_ABGR images, reading them as signed RGBA
+    // values shifted by 128. The channels are taken from the ARGB pixels in that same order to keep the
+    // anti-aliasing detection results stable.
+    static double colorDelta(int pixel1, int pixel2, boolean yOnly) {
+
+        double r1 = (byte) (pixel1 >>> 24) + 128;
+        double g1 = (byte) pixel1 + 128;
+        double b1 = (byte) (pixel1 >>> 8) + 128;
+        double a1 = (byte) (pixel1 >>> 16) + 128;
+
+        double r2 = (byte) (pixel2 >>> 24) + 128;
+        double g2 = (byte) pixel2 + 128;
+        double b2 = (byte) (pixel2 >>> 8) + 128;
+        double a2 = (byte) (pixel2 >>> 16) + 128;
 
         if (a1 == a2 && r1 == r2 && g1 == g2 && b1 == b2) return 0;
 
@@ -15,7 +15,7 @@ import java.util.Objects;
 import java.util.stream.Collectors;
 
 public record ContextReport(String contextHash, ScreenshotContext screenshotContext, Summary summary,
-                            List<ScreenshotComparisonResult> results, boolean flakyAccepted) {
+                            List<ScreenshotComparisonResult> results, boolean flakyAccepted, long animationSettleMillis) {
 
     /**
      * Convenience constructor for backwards compatibility — defaults flakyAccepted to false.
@@ -25,6 +25,14 @@ public record ContextReport(String contextHash, ScreenshotContext screenshotCont
         this(contextHash, screenshotContext, summary, results, false);
     }
 
+    /**
+     * Convenience constructor for backwards compatibility — defaults animationSettleMillis to 0.
+     */
+    public ContextReport(String contextHash, ScreenshotContext screenshotContext, Summary summary,
+                         List<ScreenshotComparisonResult> results, boolean flakyAccepted) {
+        this(contextHash, screenshotContext, summary, results, flakyAccepted, 0);
+    }
+
     @UsedInTemplate
     public String getUrl() {
         return BrowserUtils.buildUrl(screenshotContext.url, screenshotContext.urlSubPath, Collections.emptyMap());
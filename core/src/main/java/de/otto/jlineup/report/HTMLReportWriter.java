@@ -10,6 +10,7 @@ import org.thymeleaf.context.Context;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.*;
 
 public class HTMLReportWriter {
@@ -28,10 +29,26 @@ public class HTMLReportWriter {
         templateEngine.setTemplateResolver(templateResolver);
     }
 
-    public void writeReport(Report report) throws FileNotFoundException {
+    public void writeReport(Report report) throws IOException {
+        if (report.config().paginatedReport) {
+            writePaginatedReport(report);
+            return;
+        }
         fileService.writeHtmlReport(renderReport("report", report), FileService.REPORT_HTML_FILENAME);
     }
 
+    /**
+     * The paginated report page only contains the summary and the url index, the results are loaded per url.
+     */
+    private void writePaginatedReport(Report report) throws IOException {
+        final List<PaginatedReportWriter.UrlIndexEntry> urlIndex = new PaginatedReportWriter(fileService).writeReportData(report);
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("report", report);
+        variables.put("url_index", urlIndex);
+        enrichVariables(variables);
+        fileService.writeHtmlReport(templateEngine.process("report_paginated", new Context(Locale.US, variables)), FileService.REPORT_HTML_FILENAME);
+    }
+
     public void writeNotFinishedReport(RunStepConfig runStepConfig, JobConfig jobConfig) throws FileNotFoundException {
         fileService.writeHtmlReport(renderNotFinishedReport("report_not_finished", runStepConfig, jobConfig), FileService.REPORT_HTML_FILENAME);
     }
@@ -1,15 +1,19 @@
 package de.otto.jlineup.report;
 
+import tools.jackson.core.JsonGenerator;
 import tools.jackson.databind.PropertyNamingStrategies;
 import tools.jackson.databind.PropertyNamingStrategy;
+import tools.jackson.databind.json.JsonMapper;
 import de.otto.jlineup.JacksonWrapper;
+import de.otto.jlineup.file.AtomicFileOutput;
 import de.otto.jlineup.file.FileService;
 
-import java.io.FileNotFoundException;
+import java.io.IOException;
 
 public class JSONReportWriter {
 
     private final static PropertyNamingStrategy NAMING_STRATEGY = PropertyNamingStrategies.KEBAB_CASE;
+    private final static JsonMapper REPORT_MAPPER = JacksonWrapper.jsonMapper().rebuild().propertyNamingStrategy(NAMING_STRATEGY).build();
 
     private final FileService fileService;
 
@@ -17,8 +21,16 @@ public class JSONReportWriter {
         this.fileService = fileService;
     }
 
-    public void writeComparisonReportAsJson(Report report) throws FileNotFoundException {
-        final String reportJson = JacksonWrapper.serializeObjectWithPropertyNamingStrategy(report, NAMING_STRATEGY);
-        fileService.writeJsonReport(reportJson);
+    /**
+     * The report is generated straight into the file, so the JSON of big reports is never held in memory as a whole.
+     * An existing report.json is only replaced once the new report was written completely.
+     */
+    public void writeComparisonReportAsJson(Report report) throws IOException {
+        try (AtomicFileOutput jsonReport = fileService.openJsonReport()) {
+            try (JsonGenerator generator = REPORT_MAPPER.createGenerator(jsonReport.outputStream())) {
+                REPORT_MAPPER.writeValue(generator, report);
+            }
+            jsonReport.commit();
+        }
     }
 }
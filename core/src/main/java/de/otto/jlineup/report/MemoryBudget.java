@@ -0,0 +1,39 @@
+package de.otto.jlineup.report;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the memory used by decoded images that wait for or are in comparison. Memory is counted in kilobytes,
+ * a single request larger than the whole budget gets the whole budget, so it can't block forever.
+ */
+final class MemoryBudget {
+
+    private static final int BYTES_PER_PERMIT = 1024;
+
+    private final Semaphore semaphore;
+    private final int totalPermits;
+
+    MemoryBudget(long bytes) {
+        this.totalPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes / BYTES_PER_PERMIT));
+        this.semaphore = new Semaphore(totalPermits, true);
+    }
+
+    /**
+     * @return the acquired permits, which have to be given back with {@link #release(int)}
+     */
+    int acquire(long bytes) throws InterruptedException {
+        final int permits = (int) Math.min(totalPermits, Math.max(1, (bytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT));
+        semaphore.acquire(permits);
+        return permits;
+    }
+
+    void release(int permits) {
+        if (permits > 0) {
+            semaphore.release(permits);
+        }
+    }
+
+    long availableBytes() {
+        return (long) semaphore.availablePermits() * BYTES_PER_PERMIT;
+    }
+}
@@ -0,0 +1,196 @@
+package de.otto.jlineup.report;
+
+import de.otto.jlineup.JacksonWrapper;
+import de.otto.jlineup.Utils;
+import de.otto.jlineup.file.FileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static de.otto.jlineup.file.FileService.REPORT_DATA_DIRECTORY;
+import static java.lang.invoke.MethodHandles.lookup;
+
+/**
+ * Writes the data of the paginated html report. Every url gets its own fragment below the report data directory,
+ * which the report page only loads when the url is scrolled into view. Fragments are JavaScript files calling
+ * {@value #FRAGMENT_CALLBACK}, because browsers don't allow fetching local files from a report opened via file://.
+ * Screenshots are shown as small thumbnails, the full images are only loaded when a thumbnail is clicked.
+ */
+public class PaginatedReportWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(lookup().lookupClass());
+
+    static final String FRAGMENT_CALLBACK = "jlineupReportFragment";
+    static final String THUMBNAILS_DIRECTORY = "thumbnails";
+    static final int THUMBNAIL_WIDTH = 320;
+    //Full page screenshots would still be huge when scaled down, their thumbnails show the top of the page only
+    static final int THUMBNAIL_MAX_HEIGHT = 640;
+
+    private final static JsonMapper FRAGMENT_MAPPER = JacksonWrapper.jsonMapper().rebuild()
+            .propertyNamingStrategy(PropertyNamingStrategies.KEBAB_CASE)
+            .disable(SerializationFeature.INDENT_OUTPUT)
+            .build();
+
+    private final FileService fileService;
+
+    public PaginatedReportWriter(FileService fileService) {
+        this.fileService = fileService;
+    }
+
+    /**
+     * Writes thumbnails and one fragment per url report and returns the index of all urls for the report page.
+     */
+    public List<UrlIndexEntry> writeReportData(Report report) throws IOException {
+        final ExecutorService thumbnailPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), Utils.createThreadFactory("ThumbnailThread"));
+        try {
+            final Map<String, Future<Thumbnail>> thumbnails = new HashMap<>();
+            for (UrlReport urlReport : report.urlReports()) {
+                for (ContextReport contextReport : urlReport.contextReports()) {
+                    for (ScreenshotComparisonResult result : contextReport.results()) {
+                        submitThumbnail(thumbnailPool, thumbnails, result.getScreenshotBeforeFileNameForHTML());
+                        submitThumbnail(thumbnailPool, thumbnails, result.getScreenshotAfterFileNameForHTML());
+                        submitThumbnail(thumbnailPool, thumbnails, result.getDifferenceImageFileNameForHtml());
+                    }
+                }
+            }
+
+            final List<UrlIndexEntry> index = new ArrayList<>();
+            final List<UrlReport> urlReports = report.urlReports();
+            for (int i = 0; i < urlReports.size(); i++) {
+                final UrlReport urlReport = urlReports.get(i);
+                final String fragmentFileName = "url-" + i + ".js";
+                writeFragment(i, fragmentFileName, toFragment(urlReport, thumbnails));
+                index.add(new UrlIndexEntry(i, urlReport.urlKey(), urlReport.url(), urlReport.summary(),
+                        urlReport.contextReports().size(), REPORT_DATA_DIRECTORY + "/" + fragmentFileName));
+            }
+            return index;
+        } finally {
+            thumbnailPool.shutdownNow();
+        }
+    }
+
+    private void submitThumbnail(ExecutorService thumbnailPool, Map<String, Future<Thumbnail>> thumbnails, String imagePath) {
+        if (imagePath == null || thumbnails.containsKey(imagePath)) {
+            return;
+        }
+        thumbnails.put(imagePath, thumbnailPool.submit(() -> writeThumbnail(imagePath)));
+    }
+
+    private Thumbnail writeThumbnail(String imagePath) throws IOException {
+        final BufferedImage image = fileService.readImageFromReportDirectory(imagePath);
+        if (image == null) {
+            throw new IOException("Could not read image " + imagePath);
+        }
+        final BufferedImage thumbnailImage = scaleToThumbnail(image);
+        final String fileName = THUMBNAILS_DIRECTORY + "/" + thumbnailFileName(imagePath);
+        fileService.writeReportDataImage(fileName, thumbnailImage);
+        return new Thumbnail(REPORT_DATA_DIRECTORY + "/" + fileName, thumbnailImage.getWidth(), thumbnailImage.getHeight());
+    }
+
+    private void writeFragment(int index, String fragmentFileName, UrlFragment fragment) throws IOException {
+        try (OutputStream outputStream = fileService.openReportData(fragmentFileName);
+             JsonGenerator generator = FRAGMENT_MAPPER.createGenerator(outputStream)) {
+            generator.writeRaw(FRAGMENT_CALLBACK + "(" + index + ", ");
+            FRAGMENT_MAPPER.writeValue(generator, fragment);
+            generator.writeRaw(");\n");
+        }
+    }
+
+    private UrlFragment toFragment(UrlReport urlReport, Map<String, Future<Thumbnail>> thumbnails) throws IOException {
+        final List<ContextFragment> contexts = new ArrayList<>();
+        for (ContextReport contextReport : urlReport.contextReports()) {
+            final List<ResultFragment> results = new ArrayList<>();
+            for (ScreenshotComparisonResult result : contextReport.results()) {
+                results.add(new ResultFragment(result.verticalScrollPosition(), result.difference(),
+                        result.acceptedDifferentPixels(),
+                        result.getScreenshotBeforeFileNameForHTML(), result.getScreenshotAfterFileNameForHTML(),
+                        result.getDifferenceImageFileNameForHtml(),
+                        awaitThumbnail(thumbnails, result.getScreenshotBeforeFileNameForHTML()),
+                        awaitThumbnail(thumbnails, result.getScreenshotAfterFileNameForHTML()),
+                        awaitThumbnail(thumbnails, result.getDifferenceImageFileNameForHtml())));
+            }
+            contexts.add(new ContextFragment(contextReport.contextHash(), contextReport.getUrl(),
+                    contextReport.getSubPathTitle(), contextReport.getDeviceInfo(), contextReport.getBrowserInfo(),
+                    contextReport.getShownCookiesString(), contextReport.isSuccess(), contextReport.isFlakyAccepted(),
+                    contextReport.summary(), results));
+        }
+        return new UrlFragment(urlReport.urlKey(), urlReport.url(), urlReport.summary(), contexts);
+    }
+
+    private Thumbnail awaitThumbnail(Map<String, Future<Thumbnail>> thumbnails, String imagePath) throws IOException {
+        if (imagePath == null) {
+            return null;
+        }
+        try {
+            return thumbnails.get(imagePath).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing thumbnails", e);
+        } catch (ExecutionException e) {
+            //The report links to the full image instead
+            LOG.warn("Could not write thumbnail for {}: {}", imagePath, e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    static String thumbnailFileName(String imagePath) {
+        final String[] segments = imagePath.split("/");
+        if (segments.length < 2) {
+            return segments[0];
+        }
+        //Screenshots are stored in a directory per context
+        return segments[segments.length - 2] + "_" + segments[segments.length - 1];
+    }
+
+    static BufferedImage scaleToThumbnail(BufferedImage image) {
+        final int width = Math.min(THUMBNAIL_WIDTH, image.getWidth());
+        final int scaledHeight = Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+        final int height = Math.min(THUMBNAIL_MAX_HEIGHT, scaledHeight);
+        final BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, scaledHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    public record UrlIndexEntry(int index, String urlKey, String url, Summary summary, int contexts, String fragment) {
+    }
+
+    record Thumbnail(String path, int width, int height) {
+    }
+
+    record UrlFragment(String urlKey, String url, Summary summary, List<ContextFragment> contexts) {
+    }
+
+    record ContextFragment(String contextHash, String url, String subPathTitle, String deviceInfo, String browserInfo,
+                           String cookies, boolean success, boolean flakyAccepted, Summary summary,
+                           List<ResultFragment> results) {
+    }
+
+    record ResultFragment(int verticalScrollPosition, double difference, int acceptedDifferentPixels,
+                          String before, String after, String differenceImage,
+                          Thumbnail beforeThumbnail, Thumbnail afterThumbnail, Thumbnail differenceImageThumbnail) {
+    }
+}
@@ -0,0 +1,45 @@
+package de.otto.jlineup.report;
+
+import de.otto.jlineup.Utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A stage of the comparison pipeline: a fixed number of worker threads and a bounded queue in front of them.
+ * Submitting blocks while the queue is full, so a slow stage slows down the stages feeding it instead of
+ * piling up decoded images in memory.
+ */
+final class PipelineStage implements AutoCloseable {
+
+    private final ExecutorService executorService;
+    private final Semaphore capacity;
+
+    PipelineStage(String name, int threads, int queueSize) {
+        this.executorService = Executors.newFixedThreadPool(threads, Utils.createThreadFactory(name));
+        this.capacity = new Semaphore(threads + queueSize);
+    }
+
+    void submit(Runnable task) throws InterruptedException {
+        capacity.acquire();
+        try {
+            executorService.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    capacity.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+}
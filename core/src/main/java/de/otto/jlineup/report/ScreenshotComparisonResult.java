@@ -3,6 +3,7 @@ package de.otto.jlineup.report;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import de.otto.jlineup.config.DeviceConfig;
+import de.otto.jlineup.image.ImageDifference;
 
 import java.util.Objects;
 
@@ -12,7 +13,15 @@ public record ScreenshotComparisonResult(String contextHash, @JsonProperty("url"
                                          DeviceConfig deviceConfig, int verticalScrollPosition, double difference,
                                          double maxDetectedColorDifference, String screenshotBeforeFileName,
                                          String screenshotAfterFileName, String differenceImageFileName,
-                                         int acceptedDifferentPixels) {
+                                         int acceptedDifferentPixels, ImageDifference imageDifference) {
+
+    public ScreenshotComparisonResult(String contextHash, String fullUrlWithPath, DeviceConfig deviceConfig,
+                                      int verticalScrollPosition, double difference, double maxDetectedColorDifference,
+                                      String screenshotBeforeFileName, String screenshotAfterFileName,
+                                      String differenceImageFileName, int acceptedDifferentPixels) {
+        this(contextHash, fullUrlWithPath, deviceConfig, verticalScrollPosition, difference, maxDetectedColorDifference,
+                screenshotBeforeFileName, screenshotAfterFileName, differenceImageFileName, acceptedDifferentPixels, null);
+    }
 
     @UsedInTemplate
     @JsonIgnore
@@ -4,10 +4,13 @@ import de.otto.jlineup.RunStepConfig;
 import de.otto.jlineup.browser.BrowserStep;
 import de.otto.jlineup.browser.BrowserUtils;
 import de.otto.jlineup.browser.ScreenshotContext;
+import de.otto.jlineup.config.DeviceConfig;
 import de.otto.jlineup.config.JobConfig;
 import de.otto.jlineup.config.RunStep;
 import de.otto.jlineup.config.UrlConfig;
 import de.otto.jlineup.file.FileService;
+import de.otto.jlineup.image.ImageDifference;
+import de.otto.jlineup.image.ImageHashes;
 import de.otto.jlineup.image.ImageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,10 +19,13 @@ import javax.imageio.IIOException;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 import static java.lang.invoke.MethodHandles.lookup;
 
-public class ScreenshotsComparator {
+public class ScreenshotsComparator implements AutoCloseable {
 
     private final static Logger LOG = LoggerFactory.getLogger(lookup().lookupClass());
 
@@ -28,6 +34,11 @@ public class ScreenshotsComparator {
     private final FileService fileService;
     private final ImageService imageService;
 
+    //comparisons started by compareWrittenScreenshot() while the after screenshots are taken
+    private final Map<ScreenshotPosition, Comparison> earlyComparisons = new ConcurrentHashMap<>();
+
+    private Pipeline pipeline;
+
     public ScreenshotsComparator(RunStepConfig runStepConfig,
                                  JobConfig jobConfig,
                                  FileService fileService,
@@ -38,7 +49,44 @@ public class ScreenshotsComparator {
         this.imageService = imageService;
     }
 
+    /**
+     * Starts comparing an after screenshot with its before screenshot right after it was written, so that comparing
+     * overlaps with taking the next screenshots. Meant to be registered as listener at the {@link FileService}.
+     * Difference images are only written when {@link #compare()} picks up the result, because a screenshot may be
+     * taken again if the browser fails.
+     */
+    public void compareWrittenScreenshot(ScreenshotContext screenshotContext, String fileName, int yPosition, BufferedImage image) {
+        if (screenshotContext.step != BrowserStep.after) {
+            return;
+        }
+        final ScreenshotPosition position = new ScreenshotPosition(screenshotContext.contextHash(), yPosition);
+        final String beforeFileName;
+        try {
+            beforeFileName = fileService.getFileTracker().getScreenshotsForContext(screenshotContext.contextHash()).get(yPosition).get(BrowserStep.before);
+        } catch (IOException e) {
+            return;
+        }
+        Map<BrowserStep, ImageHashes> hashesAtPosition = fileService.getFileTracker().getHashesForContext(screenshotContext.contextHash()).getOrDefault(yPosition, Map.of());
+        ImageHashes beforeHashes = hashesAtPosition.get(BrowserStep.before);
+        ImageHashes afterHashes = hashesAtPosition.get(BrowserStep.after);
+        if (beforeFileName == null || (beforeHashes != null && beforeHashes.isSameImage(afterHashes))) {
+            //nothing to compare, compare() handles this without reading any images
+            earlyComparisons.remove(position);
+            return;
+        }
 
+        String fullUrlWithPath = BrowserUtils.buildUrl(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.urlConfig.envMapping);
+        Comparison comparison = new Comparison(screenshotContext, fullUrlWithPath, yPosition, beforeFileName, fileName, beforeHashes, afterHashes, true);
+        earlyComparisons.put(position, comparison);
+        LOG.debug("Comparing '{}' while capturing", fileName);
+        try {
+            final Pipeline pipeline = pipeline();
+            pipeline.decodeStage.submit(() -> pipeline.decode(comparison, image));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            earlyComparisons.remove(position, comparison);
+        }
+    }
 
     public Map<String, List<ScreenshotComparisonResult>> compare() throws IOException {
         LOG.debug("Comparing images...");
@@ -46,7 +94,6 @@ public class ScreenshotsComparator {
             LOG.debug("No urls configured, so no comparison.");
             return null;
         }
-        Map<String, List<ScreenshotComparisonResult>> results = new HashMap<>();
         List<ScreenshotContext> contextList = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig);
         if (LOG.isDebugEnabled()) {
             if (fileService.getFileTracker().contexts != null) {
@@ -59,92 +106,341 @@ public class ScreenshotsComparator {
         //final HashMap<Integer, ScreenshotContext> contextHashMap = new HashMap<>();
         //contextList.forEach(screenshotContext -> contextHashMap.put(screenshotContext.contextHash(), screenshotContext));
 
-        for (Map.Entry<String, UrlConfig> urlConfigEntry : jobConfig.urls.entrySet()) {
-            List<ScreenshotComparisonResult> screenshotComparisonResults = new ArrayList<>();
-            for (ScreenshotContext screenshotContext : contextList) {
-                if (!urlConfigEntry.getKey().equals(screenshotContext.urlKey)) {
-                    continue;
-                }
-                String fullUrlWithPath = BrowserUtils.buildUrl(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.urlConfig.envMapping);
-                Map<Integer, Map<BrowserStep, String>> screenshots;
-                try {
-                    screenshots = fileService.getFileTracker().getScreenshotsForContext(screenshotContext.contextHash());
-                } catch (IOException e) {
-                    LOG.warn("No screenshots found for context {} ({} {} {}). Skipping.", screenshotContext.contextHash(), fullUrlWithPath, screenshotContext.deviceConfig, screenshotContext.browserType);
-                    continue;
-                }
-                List<Integer> yPositions = new ArrayList<>(screenshots.keySet());
-
-                for (Integer yPosition : yPositions) {
-                    String beforeFileName = screenshots.get(yPosition).get(BrowserStep.before);
-                    String afterFileName = screenshots.get(yPosition).get(BrowserStep.after);
-
-                    LOG.debug("Comparing file '{}' with '{}'", beforeFileName, afterFileName);
-
-                    boolean error = false;
-                    BufferedImage imageBefore = null;
-                    if (beforeFileName == null) {
-                        error = true;
-                    } else {
-                        try {
-                            imageBefore = fileService.readScreenshot(beforeFileName);
-                        } catch (IIOException e) {
-                            error = true;
-                        }
+        final Map<String, List<CompletableFuture<ScreenshotComparisonResult>>> resultFutures = new LinkedHashMap<>();
+        final List<Comparison> pickedUpEarlyComparisons = new ArrayList<>();
+        try {
+            final Pipeline pipeline = pipeline();
+            for (Map.Entry<String, UrlConfig> urlConfigEntry : jobConfig.urls.entrySet()) {
+                List<CompletableFuture<ScreenshotComparisonResult>> screenshotComparisonResults = new ArrayList<>();
+                for (ScreenshotContext screenshotContext : contextList) {
+                    if (!urlConfigEntry.getKey().equals(screenshotContext.urlKey)) {
+                        continue;
                     }
-                    if (error) {
-                        screenshotComparisonResults.add(ScreenshotComparisonResult.noBeforeImageComparisonResult(screenshotContext.contextHash(), fullUrlWithPath, screenshotContext.deviceConfig, yPosition, buildRelativePathFromReportDir(afterFileName)));
+                    String fullUrlWithPath = BrowserUtils.buildUrl(screenshotContext.url, screenshotContext.urlSubPath, screenshotContext.urlConfig.envMapping);
+                    Map<Integer, Map<BrowserStep, String>> screenshots;
+                    try {
+                        screenshots = fileService.getFileTracker().getScreenshotsForContext(screenshotContext.contextHash());
+                    } catch (IOException e) {
+                        LOG.warn("No screenshots found for context {} ({} {} {}). Skipping.", screenshotContext.contextHash(), fullUrlWithPath, screenshotContext.deviceConfig, screenshotContext.browserType);
                         continue;
                     }
+                    Map<Integer, Map<BrowserStep, ImageHashes>> hashes = fileService.getFileTracker().getHashesForContext(screenshotContext.contextHash());
+                    List<Integer> yPositions = new ArrayList<>(screenshots.keySet());
 
-                    BufferedImage imageAfter = null;
-                    if (afterFileName == null) {
-                        error = true;
-                    } else {
-                        try {
-                            imageAfter = fileService.readScreenshot(afterFileName);
-                        } catch (IIOException e) {
-                            error = true;
+                    for (Integer yPosition : yPositions) {
+                        String beforeFileName = screenshots.get(yPosition).get(BrowserStep.before);
+                        String afterFileName = screenshots.get(yPosition).get(BrowserStep.after);
+
+                        Map<BrowserStep, ImageHashes> hashesAtPosition = hashes.getOrDefault(yPosition, Map.of());
+                        ImageHashes beforeHashes = hashesAtPosition.get(BrowserStep.before);
+                        ImageHashes afterHashes = hashesAtPosition.get(BrowserStep.after);
+                        if (beforeFileName != null && afterFileName != null && beforeHashes != null && beforeHashes.isSameImage(afterHashes)) {
+                            LOG.debug("Hashes of '{}' and '{}' are equal, skipping comparison", beforeFileName, afterFileName);
+                            screenshotComparisonResults.add(CompletableFuture.completedFuture(new ScreenshotComparisonResult(
+                                    screenshotContext.contextHash(),
+                                    fullUrlWithPath,
+                                    screenshotContext.deviceConfig,
+                                    yPosition,
+                                    0,
+                                    0,
+                                    buildRelativePathFromReportDir(beforeFileName),
+                                    buildRelativePathFromReportDir(afterFileName),
+                                    null,
+                                    0)));
+                            continue;
                         }
-                    }
 
-                    if (error) {
-                        screenshotComparisonResults.add(ScreenshotComparisonResult
-                                .noAfterImageComparisonResult(screenshotContext.contextHash(), fullUrlWithPath, screenshotContext.deviceConfig, yPosition, buildRelativePathFromReportDir(beforeFileName)));
-                        continue;
-                    }
+                        if (beforeFileName == null) {
+                            screenshotComparisonResults.add(CompletableFuture.completedFuture(ScreenshotComparisonResult.noBeforeImageComparisonResult(screenshotContext.contextHash(), fullUrlWithPath, screenshotContext.deviceConfig, yPosition, buildRelativePathFromReportDir(afterFileName))));
+                            continue;
+                        }
 
-                    ImageService.ImageComparisonResult imageComparisonResult = imageService
-                            .compareImages(imageBefore, imageAfter, screenshotContext.deviceConfig.height, screenshotContext.urlConfig.ignoreAntiAliasing, screenshotContext.urlConfig.maxAntiAliasColorDistance, screenshotContext.urlConfig.strictColorComparison, screenshotContext.urlConfig.maxColorDistance);
-                    String differenceImageFileName = null;
-                    if (imageComparisonResult.getAcceptedDifferentPixels() > 0 && imageComparisonResult.getDifferenceImage().isEmpty()) {
-                        LOG.warn("Accepted different pixels but no difference image available. This should not happen.");
-                    }
-                    if ((imageComparisonResult.getDifference() > 0 || imageComparisonResult.getAcceptedDifferentPixels() > 0) && imageComparisonResult.getDifferenceImage().isPresent()) {
-                        differenceImageFileName = fileService.writeScreenshot(screenshotContext, imageComparisonResult.getDifferenceImage().orElse(null), yPosition);
+                        Comparison comparison = new Comparison(screenshotContext, fullUrlWithPath, yPosition, beforeFileName, afterFileName, beforeHashes, afterHashes, false);
+                        Comparison earlyComparison = earlyComparisons.remove(new ScreenshotPosition(screenshotContext.contextHash(), yPosition));
+                        if (earlyComparison != null && earlyComparison.isComparing(comparison)) {
+                            //the difference image has to be named after the compare step
+                            comparison = earlyComparison.withScreenshotContext(screenshotContext);
+                            pickedUpEarlyComparisons.add(comparison);
+                        } else {
+                            final Comparison comparisonToDecode = comparison;
+                            pipeline.decodeStage.submit(() -> pipeline.decode(comparisonToDecode, null));
+                        }
+                        screenshotComparisonResults.add(comparison.result);
                     }
-                    screenshotComparisonResults.add(new ScreenshotComparisonResult(
-                            screenshotContext.contextHash(),
-                            fullUrlWithPath,
-                            screenshotContext.deviceConfig,
-                            yPosition,
-                            imageComparisonResult.getDifference(),
-                            imageComparisonResult.getMaxDetectedColorDistance(),
-                            buildRelativePathFromReportDir(beforeFileName),
-                            buildRelativePathFromReportDir(afterFileName),
-                            buildRelativePathFromReportDir(differenceImageFileName),
-                            imageComparisonResult.getAcceptedDifferentPixels()));
                 }
+                resultFutures.put(urlConfigEntry.getKey(), screenshotComparisonResults);
+            }
+
+            for (Comparison comparison : pickedUpEarlyComparisons) {
+                ImageService.ImageComparisonResult imageComparisonResult = join(comparison.imageComparison);
+                if (imageComparisonResult != null) {
+                    pipeline.finish(comparison, imageComparisonResult);
+                }
+            }
+
+            Map<String, List<ScreenshotComparisonResult>> results = new HashMap<>();
+            for (Map.Entry<String, List<CompletableFuture<ScreenshotComparisonResult>>> resultFuturesEntry : resultFutures.entrySet()) {
+                List<ScreenshotComparisonResult> screenshotComparisonResults = new ArrayList<>();
+                for (CompletableFuture<ScreenshotComparisonResult> resultFuture : resultFuturesEntry.getValue()) {
+                    screenshotComparisonResults.add(join(resultFuture));
+                }
+                screenshotComparisonResults.sort(Comparator.<ScreenshotComparisonResult, String>
+                        comparing(r -> r.fullUrlWithPath())
+                        .thenComparing(r -> r.deviceConfig().width)
+                        .thenComparing(r -> r.deviceConfig().height)
+                        .thenComparing(r -> r.deviceConfig().pixelRatio)
+                        .thenComparing(r -> r.verticalScrollPosition()));
+                results.put(resultFuturesEntry.getKey(), screenshotComparisonResults);
+            }
+            //Difference images are journaled as they are written, all of them are written now
+            fileService.writeFileTrackerData();
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while comparing screenshots", e);
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        earlyComparisons.clear();
+        if (pipeline != null) {
+            pipeline.close();
+            pipeline = null;
+        }
+    }
+
+    private synchronized Pipeline pipeline() {
+        if (pipeline == null) {
+            pipeline = new Pipeline();
+        }
+        return pipeline;
+    }
+
+    //Screenshots are decoded, compared and difference images are encoded in separate stages, so that all of them
+    //run in parallel. Every stage has a bounded queue, the memory budget limits the decoded images in flight.
+    private class Pipeline implements AutoCloseable {
+
+        private final PipelineStage decodeStage;
+        private final PipelineStage compareStage;
+        private final PipelineStage encodeStage;
+        private final MemoryBudget memoryBudget;
+
+        private Pipeline() {
+            final int decodeThreads = threadsOrAvailableProcessors(jobConfig.compareDecodeThreads);
+            final int comparisons = threadsOrAvailableProcessors(jobConfig.parallelComparisons);
+            final int encodeThreads = threadsOrAvailableProcessors(jobConfig.compareEncodeThreads);
+            this.decodeStage = new PipelineStage("jlineup-decode", decodeThreads, decodeThreads);
+            this.compareStage = new PipelineStage("jlineup-compare", comparisons, comparisons);
+            this.encodeStage = new PipelineStage("jlineup-encode", encodeThreads, encodeThreads);
+            this.memoryBudget = new MemoryBudget(jobConfig.compareMemoryBudget > 0 ? jobConfig.compareMemoryBudget * 1024L * 1024L : Runtime.getRuntime().maxMemory() / 4);
+        }
+
+        /**
+         * @param imageAfter the after image if it's still in memory, null to read it
+         */
+        private void decode(Comparison comparison, BufferedImage imageAfter) {
+            int permits = 0;
+            try {
+                permits = memoryBudget.acquire(estimateDecodedBytes(comparison));
+                LOG.debug("Comparing file '{}' with '{}'", comparison.beforeFileName, comparison.afterFileName);
+
+                BufferedImage imageBefore = readScreenshotIfReadable(comparison.beforeFileName);
+                if (imageBefore == null) {
+                    comparison.complete(ScreenshotComparisonResult.noBeforeImageComparisonResult(comparison.screenshotContext.contextHash(), comparison.fullUrlWithPath, comparison.screenshotContext.deviceConfig, comparison.yPosition, buildRelativePathFromReportDir(comparison.afterFileName)));
+                    return;
+                }
+                if (imageAfter == null && comparison.afterFileName != null) {
+                    imageAfter = readScreenshotIfReadable(comparison.afterFileName);
+                }
+                if (imageAfter == null) {
+                    comparison.complete(ScreenshotComparisonResult.noAfterImageComparisonResult(comparison.screenshotContext.contextHash(), comparison.fullUrlWithPath, comparison.screenshotContext.deviceConfig, comparison.yPosition, buildRelativePathFromReportDir(comparison.beforeFileName)));
+                    return;
+                }
+
+                final BufferedImage decodedImageAfter = imageAfter;
+                final BitSet rowsToCompare = differingRows(comparison);
+                final int decodedPermits = permits;
+                compareStage.submit(() -> compare(comparison, imageBefore, decodedImageAfter, rowsToCompare, decodedPermits));
+                //the compare stage gives the memory back now
+                permits = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                comparison.fail(e);
+            } catch (Exception e) {
+                comparison.fail(e);
+            } finally {
+                memoryBudget.release(permits);
+            }
+        }
+
+        /**
+         * Only the rows with differing hashes need a detailed comparison. The row hashes are read from the files
+         * next to the screenshots, null means that all rows have to be compared.
+         */
+        private BitSet differingRows(Comparison comparison) {
+            if (comparison.beforeHashes == null || comparison.afterHashes == null) {
+                return null;
+            }
+            final ImageHashes beforeHashes = comparison.beforeHashes.withRowHashes(fileService.readRowHashes(comparison.beforeFileName));
+            final ImageHashes afterHashes = comparison.afterHashes.withRowHashes(fileService.readRowHashes(comparison.afterFileName));
+            return beforeHashes.differingRows(afterHashes);
+        }
+
+        private void compare(Comparison comparison, BufferedImage imageBefore, BufferedImage imageAfter, BitSet rowsToCompare, int permits) {
+            try {
+                ImageService.ImageComparisonResult imageComparisonResult;
+                try {
+                    UrlConfig urlConfig = comparison.screenshotContext.urlConfig;
+                    imageComparisonResult = imageService
+                            .compareImages(imageBefore, imageAfter, comparison.screenshotContext.deviceConfig.height, urlConfig.ignoreAntiAliasing, urlConfig.maxAntiAliasColorDistance, urlConfig.strictColorComparison, urlConfig.maxColorDistance, rowsToCompare);
+                } finally {
+                    memoryBudget.release(permits);
+                }
+                comparison.imageComparison.complete(imageComparisonResult);
+                if (!comparison.early) {
+                    finish(comparison, imageComparisonResult);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                comparison.fail(e);
+            } catch (Exception e) {
+                comparison.fail(e);
+            }
+        }
+
+        private void finish(Comparison comparison, ImageService.ImageComparisonResult imageComparisonResult) throws InterruptedException {
+            boolean hasDifferences = imageComparisonResult.getDifference() > 0 || imageComparisonResult.getAcceptedDifferentPixels() > 0;
+            if (hasDifferences && !jobConfig.skipDifferenceImages) {
+                encodeStage.submit(() -> encode(comparison, imageComparisonResult));
+            } else {
+                comparison.result.complete(buildComparisonResult(comparison, imageComparisonResult, null));
+            }
+        }
+
+        private void encode(Comparison comparison, ImageService.ImageComparisonResult imageComparisonResult) {
+            try {
+                //the difference image is rendered from the sparse comparison result only if it's written
+                String differenceImageFileName = null;
+                if (imageComparisonResult.getDifferenceImage().isPresent()) {
+                    differenceImageFileName = fileService.writeScreenshot(comparison.screenshotContext, imageComparisonResult.getDifferenceImage().get(), comparison.yPosition);
+                } else if (imageComparisonResult.getAcceptedDifferentPixels() > 0) {
+                    LOG.warn("Accepted different pixels but no difference image available. This should not happen.");
+                }
+                comparison.result.complete(buildComparisonResult(comparison, imageComparisonResult, differenceImageFileName));
+            } catch (Exception e) {
+                comparison.result.completeExceptionally(e);
             }
-            screenshotComparisonResults.sort(Comparator.<ScreenshotComparisonResult, String>
-                    comparing(r -> r.fullUrlWithPath())
-                    .thenComparing(r -> r.deviceConfig().width)
-                    .thenComparing(r -> r.deviceConfig().height)
-                    .thenComparing(r -> r.deviceConfig().pixelRatio)
-                    .thenComparing(r -> r.verticalScrollPosition()));
-            results.put(urlConfigEntry.getKey(), screenshotComparisonResults);
-        }
-        return results;
+        }
+
+        @Override
+        public void close() {
+            decodeStage.close();
+            compareStage.close();
+            encodeStage.close();
+        }
+    }
+
+    private ScreenshotComparisonResult buildComparisonResult(Comparison comparison, ImageService.ImageComparisonResult imageComparisonResult, String differenceImageFileName) {
+        boolean hasDifferences = imageComparisonResult.getDifference() > 0 || imageComparisonResult.getAcceptedDifferentPixels() > 0;
+        ImageDifference imageDifference = hasDifferences ? imageComparisonResult.getImageDifference().orElse(null) : null;
+        return new ScreenshotComparisonResult(
+                comparison.screenshotContext.contextHash(),
+                comparison.fullUrlWithPath,
+                comparison.screenshotContext.deviceConfig,
+                comparison.yPosition,
+                imageComparisonResult.getDifference(),
+                imageComparisonResult.getMaxDetectedColorDistance(),
+                buildRelativePathFromReportDir(comparison.beforeFileName),
+                buildRelativePathFromReportDir(comparison.afterFileName),
+                buildRelativePathFromReportDir(differenceImageFileName),
+                imageComparisonResult.getAcceptedDifferentPixels(),
+                imageDifference);
+    }
+
+    private BufferedImage readScreenshotIfReadable(String fileName) throws IOException {
+        try {
+            return fileService.readScreenshot(fileName);
+        } catch (IIOException e) {
+            return null;
+        }
+    }
+
+    //decoded screenshots take up to four bytes per pixel
+    private static long estimateDecodedBytes(Comparison comparison) {
+        if (comparison.beforeHashes != null && comparison.afterHashes != null) {
+            return 4L * ((long) comparison.beforeHashes.getWidth() * comparison.beforeHashes.getHeight()
+                    + (long) comparison.afterHashes.getWidth() * comparison.afterHashes.getHeight());
+        }
+        DeviceConfig deviceConfig = comparison.screenshotContext.deviceConfig;
+        long pixels = (long) Math.ceil(deviceConfig.width * deviceConfig.pixelRatio) * (long) Math.ceil(deviceConfig.height * deviceConfig.pixelRatio);
+        return 2 * 4L * pixels;
+    }
+
+    private static int threadsOrAvailableProcessors(int threads) {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof InterruptedException interruptedException) {
+                throw interruptedException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Could not compare screenshots", cause);
+        }
+    }
+
+    private record ScreenshotPosition(String contextHash, int yPosition) {
+    }
+
+    /**
+     * One pair of screenshots on its way through the pipeline. The image comparison is done first, the result
+     * when the difference image is written. Early comparisons stop after comparing, until {@link #compare()}
+     * picks them up.
+     */
+    private record Comparison(ScreenshotContext screenshotContext, String fullUrlWithPath, int yPosition,
+                              String beforeFileName, String afterFileName,
+                              ImageHashes beforeHashes, ImageHashes afterHashes, boolean early,
+                              CompletableFuture<ImageService.ImageComparisonResult> imageComparison,
+                              CompletableFuture<ScreenshotComparisonResult> result) {
+
+        private Comparison(ScreenshotContext screenshotContext, String fullUrlWithPath, int yPosition,
+                           String beforeFileName, String afterFileName,
+                           ImageHashes beforeHashes, ImageHashes afterHashes, boolean early) {
+            this(screenshotContext, fullUrlWithPath, yPosition, beforeFileName, afterFileName, beforeHashes, afterHashes, early, new CompletableFuture<>(), new CompletableFuture<>());
+        }
+
+        private Comparison withScreenshotContext(ScreenshotContext screenshotContext) {
+            return new Comparison(screenshotContext, fullUrlWithPath, yPosition, beforeFileName, afterFileName, beforeHashes, afterHashes, false, imageComparison, result);
+        }
+
+        //whether this early comparison compares the same screenshots as the other one
+        private boolean isComparing(Comparison other) {
+            return Objects.equals(beforeFileName, other.beforeFileName) && Objects.equals(afterFileName, other.afterFileName)
+                    && Objects.equals(beforeHashes, other.beforeHashes) && Objects.equals(afterHashes, other.afterHashes);
+        }
+
+        //completes a comparison without images to compare
+        private void complete(ScreenshotComparisonResult screenshotComparisonResult) {
+            result.complete(screenshotComparisonResult);
+            imageComparison.complete(null);
+        }
+
+        private void fail(Exception e) {
+            result.completeExceptionally(e);
+            imageComparison.completeExceptionally(e);
+        }
     }
 
     private String buildRelativePathFromReportDir(String imageFileName) {
@@ -23,10 +23,13 @@ import org.openqa.selenium.OutputType;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.logging.Logs;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 import static com.google.common.collect.ImmutableMap.of;
@@ -41,6 +44,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -155,11 +159,107 @@ class BrowserTest {
     }
 
     @Test
-    void shouldScroll() throws InterruptedException {
+    void shouldScrollAndMeasureInOneCall() {
+        //given
+        when(webDriverMock.executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 1337)).thenReturn(List.of(1200L, 2000L, 600L, 800L, 1.5d));
+        //when
+        PageMetrics pageMetrics = testee.scrollAndMeasure(1337);
+        //then
+        assertThat(pageMetrics, is(new PageMetrics(1200L, 2000L, 600L, 800L, 1.5d)));
+        verify(webDriverMock, never()).executeScript(JS_DOCUMENT_HEIGHT_CALL);
+    }
+
+    @Test
+    void shouldStopWaitingAsSoonAsPageIsQuiet() {
+        //given
+        JobConfig jobConfig = jobConfigBuilder().withAdaptiveWaitQuietTime(300).build();
+        testee.close();
+        testee = new Browser(runStepConfig, jobConfig, fileService, browserUtilsMock);
+        testee.initializeWebDriver(null);
+        when(webDriverMock.executeAsyncScript(eq(JS_WAIT_FOR_QUIET_PAGE_CALL), any(), any())).thenReturn(false).thenReturn(true);
+
+        //when
+        testee.waitUntilPageIsQuiet(60f, "wait-after-page-load");
+
+        //then
+        verify(webDriverMock, times(2)).executeAsyncScript(JS_WAIT_FOR_QUIET_PAGE_CALL, 300, MAX_QUIET_PAGE_WAIT_CHUNK_MILLIS);
+    }
+
+    @Test
+    void shouldDetectSettledAnimationByScreenshotBytes() throws Exception {
+        //given
+        UrlConfig urlConfig = urlConfigBuilder().withWaitForNoAnimationAfterScroll(10f).build();
+        ScreenshotContext screenshotContext = ScreenshotContext.of("testurl", "/", deviceConfig(600, 100), before, urlConfig);
+        byte[] animated = Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_1125x750.png")));
+        byte[] settled = Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_750x500.png")));
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(animated, animated.clone(), settled);
+
+        //when
+        BufferedImage screenshot = testee.waitForNoAnimation(screenshotContext);
+
+        //then
+        assertThat(screenshot.getWidth(), is(750));
+        verify(webDriverMock, times(12)).getScreenshotAs(OutputType.BYTES);
+    }
+
+    @Test
+    void shouldPollAnimatedPagesLessOften() {
+        assertThat(nextAnimationPollInterval(0), is(MIN_ANIMATION_POLL_INTERVAL_MILLIS));
+        assertThat(nextAnimationPollInterval(MIN_ANIMATION_POLL_INTERVAL_MILLIS), is(2 * MIN_ANIMATION_POLL_INTERVAL_MILLIS));
+        assertThat(nextAnimationPollInterval(MAX_ANIMATION_POLL_INTERVAL_MILLIS), is(MAX_ANIMATION_POLL_INTERVAL_MILLIS));
+    }
+
+    @Test
+    void shouldBlockRequestsThroughDevTools() {
+        //given
+        JobConfig jobConfig = jobConfigBuilder().withBlockedUrls(Set.of("*://*.tracking.example/*")).build();
+        testee.close();
+        testee = new Browser(runStepConfig, jobConfig, fileService, browserUtilsMock);
+        org.openqa.selenium.chrome.ChromeDriver chromeDriver = mock(org.openqa.selenium.chrome.ChromeDriver.class, RETURNS_DEEP_STUBS);
+        UrlConfig urlConfig = urlConfigBuilder()
+                .withBlockedUrls(Set.of("*://ads.example/*"))
+                .withAllowedUrls(Set.of("*://*.tracking.example/consent*"))
+                .build();
+        ScreenshotContext screenshotContext = ScreenshotContext.of("testurl", "/", deviceConfig(600, 100), before, urlConfig);
+
         //when
-        testee.scrollTo(1337);
+        testee.blockRequests(chromeDriver, screenshotContext);
+
         //then
-        verify(webDriverMock).executeScript(String.format(JS_SCROLL_TO_CALL, 1337L));
+        verify(chromeDriver).executeCdpCommand("Network.setBlockedURLs", Map.of("urlPatterns", List.of(
+                Map.of("urlPattern", "*://*.tracking.example/consent*", "block", false),
+                Map.of("urlPattern", "*://*.tracking.example/*", "block", true),
+                Map.of("urlPattern", "*://ads.example/*", "block", true))));
+    }
+
+    @Test
+    void shouldCountRequestsBlockedThroughDevTools() {
+        //given
+        List<org.openqa.selenium.logging.LogEntry> performanceLog = List.of(
+                new org.openqa.selenium.logging.LogEntry(java.util.logging.Level.INFO, 1L, "{\"message\":{\"method\":\"Network.loadingFailed\",\"params\":{\"blockedReason\":\"inspector\",\"errorText\":\"net::ERR_BLOCKED_BY_CLIENT\"}}}"),
+                new org.openqa.selenium.logging.LogEntry(java.util.logging.Level.INFO, 2L, "{\"message\":{\"method\":\"Network.loadingFinished\",\"params\":{}}}"));
+
+        //when
+        long blockedRequests = countBlockedRequests(performanceLog);
+
+        //then
+        assertThat(blockedRequests, is(1L));
+    }
+
+    @Test
+    void shouldCaptureFullPageInSlicesBelowChromesTextureLimit() {
+        assertThat(screenshotsPerCaptureSlice(1000, 1000, 1d), is(8));
+        assertThat(screenshotsPerCaptureSlice(1000, 1000, 2d), is(4));
+        assertThat(screenshotsPerCaptureSlice(1000, 500, 2d), is(7));
+        assertThat(screenshotsPerCaptureSlice(5000, 5000, 3d), is(1));
+    }
+
+    @Test
+    void shouldClipLastFullPageScreenshotLikeTheScrollLoop() {
+        assertThat(clipTop(1000, 2500, 1000, false), is(1000L));
+        assertThat(clipTop(2000, 2500, 1000, false), is(1500L));
+        assertThat(clipTop(2000, 2500, 1000, true), is(2000L));
+        assertThat(clipTop(0, 500, 1000, false), is(0L));
     }
 
     @Test
@@ -181,17 +281,15 @@ class BrowserTest {
         testee.close();
         testee = new Browser(runStepConfig, jobConfig, fileService, browserUtilsMock);
 
-        when(webDriverMock.executeScript(JS_DOCUMENT_HEIGHT_CALL)).thenReturn(673L);
-        when(webDriverMock.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL)).thenReturn(673L);
-        when(webDriverMock.getScreenshotAs(OutputType.FILE)).thenReturn(new File(getFilePath("screenshots/ideaVertical.png")));
-        when(webDriverMock.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).thenReturn(1d);
+        mockPageMetrics(673L, 673L, 1d);
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(Files.readAllBytes(Path.of(getFilePath("screenshots/ideaVertical.png"))));
 
         //when
         testee.runSetupAndTakeScreenshots();
 
         //then
         for (int i = 1; i <= 10; i++) {
-            verify(webDriverMock, times(1)).executeScript(String.format(JS_SCROLL_TO_CALL, 67 * i));
+            verify(webDriverMock, times(1)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 67 * i);
         }
 
     }
@@ -208,10 +306,8 @@ class BrowserTest {
                 .withBrowser(CHROME).build().insertDefaults();
         when(runStepConfig.isCleanupProfile()).thenReturn(true);
         when(runStepConfig.getChromeParameters()).thenReturn(List.of("--user-data-dir=/tmp/jlineup-test/jlineup/chrome/12345"));
-        when(webDriverMock.executeScript(JS_DOCUMENT_HEIGHT_CALL)).thenReturn(1000L);
-        when(webDriverMock.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL)).thenReturn(1000L);
-        when(webDriverMock.getScreenshotAs(OutputType.FILE)).thenReturn(new File(getFilePath("screenshots/test_image_1125x750.png")));
-        when(webDriverMock.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).thenReturn(1.5d);
+        mockPageMetrics(1000L, 1000L, 1.5d);
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_1125x750.png"))));
         Files.createDirectories(new File("/tmp/jlineup-test/jlineup/chrome/12345").toPath());
         testee = new Browser(runStepConfig, jobConfig, fileService, browserUtilsMock);
         testee.runSetupAndTakeScreenshots();
@@ -236,10 +332,8 @@ class BrowserTest {
                 .withBrowser(FIREFOX).build().insertDefaults();
         when(runStepConfig.isCleanupProfile()).thenReturn(true);
         when(runStepConfig.getFirefoxParameters()).thenReturn(List.of("-profile /tmp/jlineup-test/jlineup/firefox/12345"));
-        when(webDriverMock.executeScript(JS_DOCUMENT_HEIGHT_CALL)).thenReturn(1000L);
-        when(webDriverMock.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL)).thenReturn(1000L);
-        when(webDriverMock.getScreenshotAs(OutputType.FILE)).thenReturn(new File(getFilePath("screenshots/test_image_1125x750.png")));
-        when(webDriverMock.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).thenReturn(1.5d);
+        mockPageMetrics(1000L, 1000L, 1.5d);
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_1125x750.png"))));
         Files.createDirectories(new File("/tmp/jlineup-test/jlineup/firefox/12345").toPath());
         testee = new Browser(runStepConfig, jobConfig, fileService, browserUtilsMock);
         testee.runSetupAndTakeScreenshots();
@@ -263,10 +357,8 @@ class BrowserTest {
                 .withBrowser(FIREFOX).build().insertDefaults();
         when(runStepConfig.isCleanupProfile()).thenReturn(true);
         when(runStepConfig.getFirefoxParameters()).thenReturn(List.of("-P /tmp/jlineup-test/jlineup/firefox/12345"));
-        when(webDriverMock.executeScript(JS_DOCUMENT_HEIGHT_CALL)).thenReturn(1000L);
-        when(webDriverMock.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL)).thenReturn(1000L);
-        when(webDriverMock.getScreenshotAs(OutputType.FILE)).thenReturn(new File(getFilePath("screenshots/test_image_1125x750.png")));
-        when(webDriverMock.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).thenReturn(1.5d);
+        mockPageMetrics(1000L, 1000L, 1.5d);
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_1125x750.png"))));
         Files.createDirectories(new File("/tmp/jlineup-test/jlineup/firefox/12345").toPath());
         testee = new Browser(runStepConfig, jobConfig, fileService, browserUtilsMock);
         testee.runSetupAndTakeScreenshots();
@@ -311,10 +403,8 @@ class BrowserTest {
         ScreenshotContext screenshotContext2 = ScreenshotContext.of("http://testurl", "/", deviceConfig(800, 100), before, urlConfig, ImmutableList.of(new Cookie("testcookiename", "testcookievalue"), new Cookie("alternating", "one")));
 
         when(webDriverMock.getCurrentUrl()).thenReturn("http://testurl");
-        when(webDriverMock.executeScript(JS_DOCUMENT_HEIGHT_CALL)).thenReturn(pageHeight);
-        when(webDriverMock.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL)).thenReturn(viewportHeight);
-        when(webDriverMock.getScreenshotAs(OutputType.FILE)).thenReturn(new File(getFilePath("screenshots/test_image_1125x750.png")));
-        when(webDriverMock.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).thenReturn(1.5d);
+        mockPageMetrics(pageHeight, viewportHeight, 1.5d);
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_1125x750.png"))));
         when(webDriverMock.executeScript(JS_RETURN_DOCUMENT_FONTS_SIZE_CALL)).thenReturn(3L);
         when(webDriverMock.executeScript(JS_RETURN_DOCUMENT_FONTS_STATUS_LOADED_CALL)).thenReturn(false).thenReturn(true);
 
@@ -324,16 +414,15 @@ class BrowserTest {
         //then
         verify(webDriverWindowMock, times(1)).setSize(new Dimension(600, 100));
         verify(webDriverWindowMock, times(1)).setSize(new Dimension(800, 100));
-        verify(webDriverMock, times(2)).executeScript(JS_SCROLL_TO_TOP_CALL);
+        verify(webDriverMock, times(2)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 0);
         verify(webDriverMock, times(2)).executeScript("testJS();");
         verify(webDriverMock, times(2)).executeScript(JS_INJECT_STYLE_CALL, "body { background: red; }");
         verify(webDriverMock, times(2)).executeScript(String.format(JS_HIDE_IMAGES_CALL, 500));
-        verify(webDriverMock, times(10)).executeScript(JS_DOCUMENT_HEIGHT_CALL);
+        verify(webDriverMock, never()).executeScript(JS_DOCUMENT_HEIGHT_CALL);
         //Two times the cookie -> goes to url
         verify(webDriverMock, times(2)).get("http://testurl");
         //Two times cache warmup, then the two calls for the two contexts with full url + subpath
         verify(webDriverMock, times(4)).get("http://testurl/");
-        verify(webDriverMock, times(2)).executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL);
         verify(webDriverOptionsMock, times(2)).addCookie(new org.openqa.selenium.Cookie("testcookiename", "testcookievalue"));
         verify(webDriverOptionsMock, times(2)).addCookie(new org.openqa.selenium.Cookie("alternating", "one"));
         verify(webDriverMock, times(2)).executeScript(String.format(JS_SET_LOCAL_STORAGE_CALL, "localStorageKey", "localStorageValue"));
@@ -343,10 +432,10 @@ class BrowserTest {
         verify(webDriverMock, times(3)).executeScript(JS_RETURN_DOCUMENT_FONTS_STATUS_LOADED_CALL);
         //TODO: re-enable if dom save feature comes back
         //verify(webDriverMock, times(2)).executeScript(JS_GET_DOM);
-        verify(webDriverMock, times(2)).executeScript(String.format(JS_SCROLL_TO_CALL, 500));
-        verify(webDriverMock, times(2)).executeScript(String.format(JS_SCROLL_TO_CALL, 1000));
-        verify(webDriverMock, times(2)).executeScript(String.format(JS_SCROLL_TO_CALL, 1500));
-        verify(webDriverMock, times(2)).executeScript(String.format(JS_SCROLL_TO_CALL, 2000));
+        verify(webDriverMock, times(2)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 500);
+        verify(webDriverMock, times(2)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 1000);
+        verify(webDriverMock, times(2)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 1500);
+        verify(webDriverMock, times(2)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 2000);
         //verifyNoMoreInteractions(webDriverMock);
     }
 
@@ -384,23 +473,20 @@ class BrowserTest {
         ScreenshotContext screenshotContext = ScreenshotContext.of("http://testurl", "/", deviceConfig(600, 100), before, urlConfig);
 
         when(webDriverMock.getCurrentUrl()).thenReturn("http://testurl");
-        when(webDriverMock.executeScript(JS_DOCUMENT_HEIGHT_CALL)).thenReturn(pageHeight);
-        when(webDriverMock.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL)).thenReturn(viewportHeight);
-        when(webDriverMock.getScreenshotAs(OutputType.FILE)).thenReturn(new File(getFilePath("screenshots/test_image_750x500.png")));
-        when(webDriverMock.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).thenReturn(1d);
+        mockPageMetrics(pageHeight, viewportHeight, 1d);
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_750x500.png"))));
 
         //when
         testee.takeScreenshots(ImmutableList.of(screenshotContext));
 
         //then
         verify(webDriverWindowMock, times(1)).setSize(new Dimension(600, 100));
-        verify(webDriverMock, times(1)).executeScript(JS_SCROLL_TO_TOP_CALL);
-        verify(webDriverMock, times(5)).executeScript(JS_DOCUMENT_HEIGHT_CALL);
+        verify(webDriverMock, times(1)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 0);
+        verify(webDriverMock, never()).executeScript(JS_DOCUMENT_HEIGHT_CALL);
         verify(webDriverMock, times(1)).get("http://cookieurl");
         verify(webDriverMock, times(1)).get("http://anotherCookieurl");
         verify(webDriverMock, times(1)).get("http://testurl");
         verify(webDriverMock, times(1)).get("http://testurl/");
-        verify(webDriverMock, times(1)).executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL);
 
         ArgumentCaptor<org.openqa.selenium.Cookie> cookieCaptor = ArgumentCaptor.forClass(org.openqa.selenium.Cookie.class);
         verify(webDriverOptionsMock, times(3)).addCookie(cookieCaptor.capture());
@@ -410,10 +496,10 @@ class BrowserTest {
 
         verify(webDriverMock, times(1)).executeScript(String.format(JS_SET_LOCAL_STORAGE_CALL, "localStorageKey", "localStorageValue"));
         verify(webDriverMock, times(1)).executeScript(String.format(JS_SET_SESSION_STORAGE_CALL, "sessionStorageKey", "sessionStorageValue"));
-        verify(webDriverMock, times(1)).executeScript(String.format(JS_SCROLL_TO_CALL, 500));
-        verify(webDriverMock, times(1)).executeScript(String.format(JS_SCROLL_TO_CALL, 1000));
-        verify(webDriverMock, times(1)).executeScript(String.format(JS_SCROLL_TO_CALL, 1500));
-        verify(webDriverMock, times(1)).executeScript(String.format(JS_SCROLL_TO_CALL, 2000));
+        verify(webDriverMock, times(1)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 500);
+        verify(webDriverMock, times(1)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 1000);
+        verify(webDriverMock, times(1)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 1500);
+        verify(webDriverMock, times(1)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 2000);
     }
 
 
@@ -443,21 +529,18 @@ class BrowserTest {
 
         ScreenshotContext screenshotContext = ScreenshotContext.of("http://testurl", "/", deviceConfig(600, 100), before, urlConfig);
 
-        when(webDriverMock.executeScript(JS_DOCUMENT_HEIGHT_CALL)).thenReturn(pageHeight);
-        when(webDriverMock.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL)).thenReturn(viewportHeight);
-        when(webDriverMock.getScreenshotAs(OutputType.FILE)).thenReturn(new File(getFilePath("screenshots/test_image_750x500.png")));
-        when(webDriverMock.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).thenReturn(1d);
+        mockPageMetrics(pageHeight, viewportHeight, 1d);
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_750x500.png"))));
 
         //when
         testee.takeScreenshots(ImmutableList.of(screenshotContext));
 
         //then
         verify(webDriverWindowMock, times(1)).setSize(new Dimension(600, 100));
-        verify(webDriverMock, times(1)).executeScript(JS_SCROLL_TO_TOP_CALL);
-        verify(webDriverMock, times(5)).executeScript(JS_DOCUMENT_HEIGHT_CALL);
+        verify(webDriverMock, times(1)).executeAsyncScript(JS_SCROLL_AND_MEASURE_CALL, 0);
+        verify(webDriverMock, never()).executeScript(JS_DOCUMENT_HEIGHT_CALL);
         verify(webDriverMock, times(1)).get("https://cookieurl");
         verify(webDriverMock, times(1)).get("http://testurl/");
-        verify(webDriverMock, times(1)).executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL);
 
         ArgumentCaptor<org.openqa.selenium.Cookie> cookieCaptor = ArgumentCaptor.forClass(org.openqa.selenium.Cookie.class);
         verify(webDriverOptionsMock, times(3)).addCookie(cookieCaptor.capture());
@@ -494,10 +577,8 @@ class BrowserTest {
         ScreenshotContext screenshotContext = ScreenshotContext.of("testurl", "/", deviceConfig(600, 100), before, urlConfig);
         ScreenshotContext screenshotContext2 = ScreenshotContext.of("testurl", "/", deviceConfig(800, 100), before, urlConfig);
 
-        when(webDriverMock.executeScript(JS_DOCUMENT_HEIGHT_CALL)).thenReturn(pageHeight);
-        when(webDriverMock.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL)).thenReturn(viewportHeight);
-        when(webDriverMock.getScreenshotAs(OutputType.FILE)).thenReturn(new File(getFilePath("screenshots/test_image_750x500.png")));
-        when(webDriverMock.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).thenReturn(1d);
+        mockPageMetrics(pageHeight, viewportHeight, 1d);
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_750x500.png"))));
 
         //when
         testee.takeScreenshots(ImmutableList.of(screenshotContext, screenshotContext2));
@@ -505,6 +586,90 @@ class BrowserTest {
         verifyNoMoreInteractions(webDriverWindowMock);
     }
 
+    @Test
+    void shouldReuseWebDriverForAnotherDeviceIfConfigured() throws Exception {
+        //given
+        JobConfig jobConfig = jobConfigBuilder()
+                .withBrowser(CHROME_HEADLESS)
+                .withReuseBrowsers(true)
+                .build();
+
+        testee.close();
+        testee = new Browser(runStepConfig, jobConfig, fileService, browserUtilsMock);
+
+        org.openqa.selenium.chrome.ChromeDriver chromeDriverMock = mock(org.openqa.selenium.chrome.ChromeDriver.class);
+        when(browserUtilsMock.getWebDriverByConfig(any(JobConfig.class), any(RunStepConfig.class), any(DeviceConfig.class), eq(CHROME_HEADLESS))).thenReturn(chromeDriverMock);
+        when(chromeDriverMock.manage()).thenReturn(webDriverOptionsMock);
+        when(chromeDriverMock.getCurrentUrl()).thenReturn("https://www.otto.de/some/page?with=query");
+        when(chromeDriverMock.executeScript(startsWith("return (window.outerWidth"))).thenReturn("800,100");
+
+        //when
+        WebDriver first = testee.initializeWebDriver(deviceConfig(600, 100), CHROME_HEADLESS);
+        WebDriver second = testee.initializeWebDriver(deviceConfig(800, 100), CHROME_HEADLESS);
+
+        //then
+        assertThat(second, is(first));
+        verify(browserUtilsMock, times(1)).getWebDriverByConfig(any(JobConfig.class), any(RunStepConfig.class), any(DeviceConfig.class), eq(CHROME_HEADLESS));
+        verify(chromeDriverMock).get("about:blank");
+        verify(chromeDriverMock).executeCdpCommand("Network.clearBrowserCookies", Map.of());
+        verify(chromeDriverMock).executeCdpCommand("Storage.clearDataForOrigin", Map.of("origin", "https://www.otto.de", "storageTypes", "all"));
+        verify(chromeDriverMock).executeCdpCommand("Network.clearBrowserCache", Map.of());
+        verify(webDriverWindowMock).setSize(new Dimension(800, 100));
+    }
+
+    @Test
+    void shouldLaunchNewBrowserForAnotherDeviceIfBrowserCantClearItsStorage() {
+        //given
+        JobConfig jobConfig = jobConfigBuilder()
+                .withBrowser(FIREFOX_HEADLESS)
+                .withReuseBrowsers(true)
+                .build();
+
+        testee.close();
+        testee = new Browser(runStepConfig, jobConfig, fileService, browserUtilsMock);
+
+        //when
+        testee.initializeWebDriver(deviceConfig(600, 100), FIREFOX_HEADLESS);
+        testee.initializeWebDriver(deviceConfig(800, 100), FIREFOX_HEADLESS);
+
+        //then
+        verify(browserUtilsMock, times(2)).getWebDriverByConfig(any(JobConfig.class), any(RunStepConfig.class), any(DeviceConfig.class), eq(FIREFOX_HEADLESS));
+        verify(browserUtilsMock).releaseWebDriver(eq(webDriverMock), anySet());
+    }
+
+    @Test
+    void shouldDetermineOriginOfUrl() {
+        assertThat(origin("https://www.otto.de/some/page?with=query"), is("https://www.otto.de"));
+        assertThat(origin("http://localhost:8080/"), is("http://localhost:8080"));
+        assertThat(origin("about:blank"), is((String) null));
+        assertThat(origin(null), is((String) null));
+    }
+
+    @Test
+    void shouldOnlySwitchDevicesThatDontNeedANewBrowser() {
+        //given
+        DeviceConfig desktop = deviceConfig(800, 600);
+        DeviceConfig mobile = DeviceConfig.deviceConfigBuilder().withDeviceName("MOBILE").withWidth(400).withHeight(800).withPixelRatio(2f).withTouch(true).build();
+        DeviceConfig iPhone = DeviceConfig.deviceConfigBuilder().withDeviceName("iPhone X").build();
+        WebDriver chromeDriver = mock(org.openqa.selenium.chrome.ChromeDriver.class);
+
+        //when
+        WebDriverDevice chromeOnDesktop = new WebDriverDevice(CHROME_HEADLESS, desktop, desktop);
+        WebDriverDevice firefoxOnDesktop = new WebDriverDevice(FIREFOX_HEADLESS, desktop, desktop);
+        WebDriverDevice chromeLaunchedOnMobile = new WebDriverDevice(CHROME_HEADLESS, mobile, mobile);
+
+        //then
+        assertThat(canSwitchDevice(chromeDriver, chromeOnDesktop, mobile, CHROME_HEADLESS), is(true));
+        assertThat(canSwitchDevice(chromeDriver, chromeOnDesktop, deviceConfig(1200, 600), CHROME_HEADLESS), is(true));
+        assertThat(canSwitchDevice(chromeDriver, chromeOnDesktop, iPhone, CHROME_HEADLESS), is(false));
+        assertThat(canSwitchDevice(chromeDriver, chromeLaunchedOnMobile, desktop, CHROME_HEADLESS), is(false));
+        assertThat(canSwitchDevice(chromeDriver, chromeOnDesktop, desktop, FIREFOX_HEADLESS), is(false));
+        assertThat(canSwitchDevice(webDriverMock, firefoxOnDesktop, deviceConfig(1200, 600), FIREFOX_HEADLESS), is(false));
+        assertThat(canSwitchDevice(webDriverMock, firefoxOnDesktop, desktop, FIREFOX_HEADLESS), is(false));
+        assertThat(canSwitchDevice(webDriverMock, firefoxOnDesktop, mobile, FIREFOX_HEADLESS), is(false));
+        assertThat(canSwitchDevice(webDriverMock, null, desktop, FIREFOX_HEADLESS), is(false));
+    }
+
     @Test
     void shouldExecuteSpecialJLineupJS() throws Exception {
         //given
@@ -527,10 +692,8 @@ class BrowserTest {
 
         ScreenshotContext screenshotContext = ScreenshotContext.of("testurl", "/", deviceConfig(600, 100), before, urlConfig);
 
-        when(webDriverMock.executeScript(JS_DOCUMENT_HEIGHT_CALL)).thenReturn(pageHeight);
-        when(webDriverMock.executeScript(JS_CLIENT_VIEWPORT_HEIGHT_CALL)).thenReturn(viewportHeight);
-        when(webDriverMock.executeScript(JS_GET_DEVICE_PIXEL_RATIO_CALL)).thenReturn(1d);
-        when(webDriverMock.getScreenshotAs(OutputType.FILE)).thenReturn(new File(getFilePath("screenshots/test_image_750x500.png")));
+        mockPageMetrics(pageHeight, viewportHeight, 1d);
+        when(webDriverMock.getScreenshotAs(OutputType.BYTES)).thenReturn(Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_750x500.png"))));
 
         //when
         testee.takeScreenshots(ImmutableList.of(screenshotContext));
@@ -544,14 +707,52 @@ class BrowserTest {
 
     }
 
+    @Test
+    void shouldDecodeScreenshotsInMemory() throws Exception {
+        //given
+        byte[] png = Files.readAllBytes(Path.of(getFilePath("screenshots/test_image_750x500.png")));
+
+        //when
+        BufferedImage screenshot = decodeScreenshot(png);
+
+        //then
+        assertThat(screenshot.getWidth(), is(750));
+        assertThat(screenshot.getHeight(), is(500));
+        assertThrows(IOException.class, () -> decodeScreenshot(new byte[]{1, 2, 3}));
+    }
+
     @Test
     @Disabled
     void shouldGrepChromeDrivers() throws Exception {
         testee.grepChromedrivers();
     }
 
+    private void mockPageMetrics(long pageHeight, long viewportHeight, double devicePixelRatio) {
+        when(webDriverMock.executeAsyncScript(eq(JS_SCROLL_AND_MEASURE_CALL), any())).thenAnswer(invocation ->
+                List.of(((Integer) invocation.getArgument(1)).longValue(), pageHeight, 600L, viewportHeight, devicePixelRatio));
+    }
+
     private URI getFilePath(String fileName) throws URISyntaxException {
         return Objects.requireNonNull(getClass().getClassLoader().getResource(fileName)).toURI();
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void shouldCheckAccessibilityOnlyOnceForContextsThatOnlyDifferInDeviceOrBrowser() {
+        //given
+        UrlConfig urlConfig = urlConfigBuilder().withUrl("http://testurl").build();
+        List<Cookie> cookies = ImmutableList.of(new Cookie("testcookiename", "testcookievalue"));
+        ScreenshotContext desktop = ScreenshotContext.of("http://testurl", "/", deviceConfig(1200, 100), before, urlConfig, cookies, CHROME_HEADLESS);
+        ScreenshotContext small = ScreenshotContext.of("http://testurl", "/", deviceConfig(600, 100), before, urlConfig, cookies, FIREFOX_HEADLESS);
+        ScreenshotContext otherCookies = ScreenshotContext.of("http://testurl", "/", deviceConfig(1200, 100), before, urlConfig, ImmutableList.of(new Cookie("testcookiename", "othervalue")), CHROME_HEADLESS);
+        ScreenshotContext otherPath = ScreenshotContext.of("http://testurl", "/other", deviceConfig(1200, 100), before, urlConfig, cookies, CHROME_HEADLESS);
+
+        //when
+        AccessibilityCheck check = AccessibilityCheck.of(desktop);
+
+        //then
+        assertThat(AccessibilityCheck.of(small), is(check));
+        assertFalse(AccessibilityCheck.of(otherCookies).equals(check));
+        assertFalse(AccessibilityCheck.of(otherPath).equals(check));
+    }
+}
@@ -4,17 +4,24 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import de.otto.jlineup.RunStepConfig;
 import de.otto.jlineup.config.Cookie;
+import de.otto.jlineup.config.DeviceConfig;
 import de.otto.jlineup.config.JobConfig;
 import de.otto.jlineup.config.RunStep;
 import de.otto.jlineup.config.UrlConfig;
+import de.otto.jlineup.file.ContextTiming;
 import org.junit.jupiter.api.Test;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -23,12 +30,14 @@ import static de.otto.jlineup.browser.Browser.Type.*;
 import static de.otto.jlineup.browser.BrowserStep.before;
 import static de.otto.jlineup.browser.BrowserUtils.buildUrl;
 import static de.otto.jlineup.config.DeviceConfig.deviceConfig;
+import static de.otto.jlineup.config.DeviceConfig.deviceConfigBuilder;
 import static de.otto.jlineup.config.JobConfig.DEFAULT_WINDOW_HEIGHT;
 import static de.otto.jlineup.config.JobConfig.jobConfigBuilder;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
 
 public class BrowserUtilsTest {
 
@@ -46,6 +55,137 @@ public class BrowserUtilsTest {
         assertThat(urlThree, is("http://mega.replacementOne.otto.de/"));
     }
 
+    @Test
+    void shouldOrderContextsLongestFirst() {
+        //given
+        UrlConfig urlConfig = UrlConfig.urlConfigBuilder().build();
+        ScreenshotContext fast = ScreenshotContext.of("https://www.otto.de", "/", deviceConfig(600, 800), before, urlConfig);
+        ScreenshotContext slow = ScreenshotContext.of("https://www.otto.de", "/", deviceConfig(800, 800), before, urlConfig);
+        ScreenshotContext unknown = ScreenshotContext.of("https://www.otto.de", "/", deviceConfig(1200, 800), before, urlConfig);
+        Map<String, ContextTiming> contextTimings = Map.of(
+                fast.contextHash(), new ContextTiming(1000L, 2000L, 0L),
+                slow.contextHash(), new ContextTiming(5000L, 10000L, 0L));
+
+        //when
+        List<ScreenshotContext> ordered = BrowserUtils.orderLongestFirst(List.of(fast, unknown, slow), contextTimings);
+
+        //then
+        assertThat(ordered, is(List.of(slow, unknown, fast)));
+    }
+
+    @Test
+    void shouldKeepConfigOrderWithoutContextTimings() {
+        //given
+        UrlConfig urlConfig = UrlConfig.urlConfigBuilder().build();
+        List<ScreenshotContext> contexts = List.of(
+                ScreenshotContext.of("https://www.otto.de", "/", deviceConfig(600, 800), before, urlConfig),
+                ScreenshotContext.of("https://www.otto.de", "/", deviceConfig(800, 800), before, urlConfig));
+
+        //when
+        List<ScreenshotContext> ordered = BrowserUtils.orderLongestFirst(contexts, Map.of());
+
+        //then
+        assertThat(ordered, is(contexts));
+    }
+
+    @Test
+    void shouldShareBrowserCacheDirectoriesBetweenRunSteps() {
+        //given
+        RunStepConfig before = runStepConfigBuilder().withWorkingDirectory("/tmp/jlineup-test").withStep(RunStep.before).build();
+        RunStepConfig after = runStepConfigBuilder().withWorkingDirectory("/tmp/jlineup-test").withStep(RunStep.after).build();
+
+        //when
+        String cacheDirectoryBefore = BrowserUtils.browserCacheDirectory(before, "chrome", 1);
+        String cacheDirectoryAfter = BrowserUtils.browserCacheDirectory(after, "chrome", 1);
+
+        //then
+        assertThat(cacheDirectoryBefore, is("/tmp/jlineup-test/browser-cache/chrome-1"));
+        assertThat(cacheDirectoryAfter, is(cacheDirectoryBefore));
+    }
+
+    @Test
+    void shouldLockBrowserCacheDirectoryWhileItIsUsed() throws IOException {
+        //given
+        Path workingDirectory = Files.createTempDirectory("jlineup-browser-cache");
+        RunStepConfig runStepConfig = runStepConfigBuilder().withWorkingDirectory(workingDirectory.toString()).build();
+
+        //when
+        BrowserUtils.BrowserCacheSlot first = BrowserUtils.leaseBrowserCacheSlot(runStepConfig, "chrome");
+        BrowserUtils.BrowserCacheSlot second = BrowserUtils.leaseBrowserCacheSlot(runStepConfig, "chrome");
+        first.release();
+        BrowserUtils.BrowserCacheSlot third = BrowserUtils.leaseBrowserCacheSlot(runStepConfig, "chrome");
+
+        //then
+        assertThat(first.directory().toString(), is(BrowserUtils.browserCacheDirectory(runStepConfig, "chrome", 0)));
+        assertThat(second.directory().toString(), is(BrowserUtils.browserCacheDirectory(runStepConfig, "chrome", 1)));
+        assertThat(third.directory(), is(first.directory()));
+        assertTrue(Files.isRegularFile(workingDirectory.resolve("browser-cache/chrome-0.lock")));
+
+        second.release();
+        third.release();
+    }
+
+    @Test
+    void shouldHostIsolatedContextsInSharedChromeProcesses() {
+        //given
+        JobConfig jobConfig = jobConfigBuilder().withContextsPerBrowser(2).build();
+        RunStepConfig runStepConfig = runStepConfigBuilder().build();
+        List<WebDriver> hosts = new ArrayList<>();
+        List<String> attachedTo = new ArrayList<>();
+        BrowserUtils testee = new BrowserUtils() {
+            @Override
+            WebDriver launchSharedChrome(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type browserType) {
+                ChromeDriver host = mock(ChromeDriver.class, RETURNS_DEEP_STUBS);
+                when(host.getCapabilities().getCapability("goog:chromeOptions")).thenReturn(Map.of("debuggerAddress", "localhost:" + (9222 + hosts.size())));
+                hosts.add(host);
+                return host;
+            }
+
+            @Override
+            ChromeDriver attachToChrome(ChromeOptions options) {
+                attachedTo.add((String) ((Map<?, ?>) options.asMap().get(ChromeOptions.CAPABILITY)).get("debuggerAddress"));
+                String targetId = "TARGET" + attachedTo.size();
+                ChromeDriver driver = mock(ChromeDriver.class, RETURNS_DEEP_STUBS);
+                when(driver.executeCdpCommand(eq("Target.createBrowserContext"), any())).thenReturn(Map.of("browserContextId", "CONTEXT" + attachedTo.size()));
+                when(driver.executeCdpCommand(eq("Target.createTarget"), any())).thenReturn(Map.of("targetId", targetId));
+                when(driver.getWindowHandles()).thenReturn(Set.of("OTHER", targetId));
+                return driver;
+            }
+        };
+
+        //when
+        WebDriver first = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+        WebDriver second = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(1200, 600), CHROME_HEADLESS);
+        WebDriver third = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+
+        //then
+        assertThat(hosts.size(), is(2));
+        assertThat(attachedTo, is(List.of("localhost:9222", "localhost:9222", "localhost:9223")));
+        verify(first.switchTo()).window("TARGET1");
+        verify((ChromeDriver) second).executeCdpCommand("Target.createTarget", Map.of("url", "about:blank", "browserContextId", "CONTEXT2", "newWindow", true, "width", 1200, "height", 600));
+
+        testee.releaseWebDriver(first);
+        verify((ChromeDriver) first).executeCdpCommand("Target.disposeBrowserContext", Map.of("browserContextId", "CONTEXT1"));
+        verify(first).quit();
+        verify(hosts.get(0), never()).quit();
+
+        testee.releaseWebDriver(second);
+        testee.releaseWebDriver(third);
+        verify(hosts.get(0)).quit();
+        verify(hosts.get(1)).quit();
+    }
+
+    @Test
+    void shouldHostIsolatedContextsOnlyForHeadlessChromeOnDesktop() {
+        JobConfig jobConfig = jobConfigBuilder().withContextsPerBrowser(4).build();
+
+        assertThat(BrowserUtils.hostsIsolatedContexts(jobConfig, deviceConfig(800, 600), CHROME_HEADLESS), is(true));
+        assertThat(BrowserUtils.hostsIsolatedContexts(jobConfig, deviceConfig(800, 600), CHROME), is(false));
+        assertThat(BrowserUtils.hostsIsolatedContexts(jobConfig, deviceConfig(800, 600), FIREFOX_HEADLESS), is(false));
+        assertThat(BrowserUtils.hostsIsolatedContexts(jobConfig, deviceConfigBuilder().withDeviceName("MOBILE").build(), CHROME_HEADLESS), is(false));
+        assertThat(BrowserUtils.hostsIsolatedContexts(jobConfigBuilder().build(), deviceConfig(800, 600), CHROME_HEADLESS), is(false));
+    }
+
     @Test
     void shouldBuildUrl() {
         final String url = buildUrl("url", "path");
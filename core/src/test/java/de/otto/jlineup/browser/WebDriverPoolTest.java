@@ -0,0 +1,198 @@
+package de.otto.jlineup.browser;
+
+import de.otto.jlineup.RunStepConfig;
+import de.otto.jlineup.config.DeviceConfig;
+import de.otto.jlineup.config.JobConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static de.otto.jlineup.RunStepConfig.runStepConfigBuilder;
+import static de.otto.jlineup.browser.Browser.Type.CHROME_HEADLESS;
+import static de.otto.jlineup.browser.Browser.Type.FIREFOX_HEADLESS;
+import static de.otto.jlineup.config.DeviceConfig.deviceConfig;
+import static de.otto.jlineup.config.JobConfig.jobConfigBuilder;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+
+class WebDriverPoolTest {
+
+    private final JobConfig jobConfig = jobConfigBuilder().build();
+    private final RunStepConfig runStepConfig = runStepConfigBuilder().build();
+    private final List<WebDriver> launchedDrivers = new ArrayList<>();
+
+    private WebDriverPool testee;
+
+    @AfterEach
+    void cleanup() {
+        if (testee != null) {
+            testee.close();
+        }
+    }
+
+    @Test
+    void shouldLeaseReturnedWebDriverAgain() {
+        //given
+        testee = pool(2, Duration.ofMinutes(5));
+        WebDriver driver = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+
+        //when
+        testee.releaseWebDriver(driver, Set.of("https://www.otto.de"));
+        WebDriver leasedAgain = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+
+        //then
+        assertThat(leasedAgain, is(driver));
+        assertThat(launchedDrivers.size(), is(1));
+        ChromeDriver chromeDriver = (ChromeDriver) driver;
+        verify(chromeDriver).get("about:blank");
+        verify(chromeDriver).executeCdpCommand("Network.clearBrowserCookies", Map.of());
+        verify(chromeDriver).executeCdpCommand("Storage.clearDataForOrigin", Map.of("origin", "https://www.otto.de", "storageTypes", "all"));
+        verify(chromeDriver).executeCdpCommand("Network.clearBrowserCache", Map.of());
+        verify(driver, never()).quit();
+    }
+
+    @Test
+    void shouldKeepSharedBrowserCacheOnReset() {
+        //given
+        testee = pool(2, Duration.ofMinutes(5));
+        JobConfig sharingJobConfig = jobConfigBuilder().withShareBrowserCache(true).build();
+        WebDriver driver = testee.getWebDriverByConfig(sharingJobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+
+        //when
+        testee.releaseWebDriver(driver);
+        WebDriver notSharing = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+        WebDriver sharing = testee.getWebDriverByConfig(sharingJobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+
+        //then
+        verify((ChromeDriver) driver, never()).executeCdpCommand("Network.clearBrowserCache", Map.of());
+        assertThat(notSharing, is(not(driver)));
+        assertThat(sharing, is(driver));
+    }
+
+    @Test
+    void shouldQuitReturnedWebDriversThatCantClearTheirStorage() {
+        //given
+        testee = pool(2, Duration.ofMinutes(5), WebDriver.class);
+        WebDriver driver = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), FIREFOX_HEADLESS);
+
+        //when
+        testee.releaseWebDriver(driver);
+
+        //then
+        verify(driver).quit();
+        assertThat(testee.idleDriverCount(), is(0));
+    }
+
+    @Test
+    void shouldNotShareWebDriversWithDifferentLaunchParameters() {
+        //given
+        testee = pool(4, Duration.ofMinutes(5));
+        WebDriver driver = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+        testee.releaseWebDriver(driver);
+
+        //when
+        WebDriver otherDevice = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(1200, 600), CHROME_HEADLESS);
+        WebDriver otherBrowser = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), FIREFOX_HEADLESS);
+        WebDriver otherParameters = testee.getWebDriverByConfig(jobConfig, runStepConfigBuilder().withChromeParameters(List.of("--bwsi")).build(), deviceConfig(800, 600), CHROME_HEADLESS);
+
+        //then
+        assertThat(otherDevice, is(not(driver)));
+        assertThat(otherBrowser, is(not(driver)));
+        assertThat(otherParameters, is(not(driver)));
+        assertThat(launchedDrivers.size(), is(4));
+        assertThat(testee.idleDriverCount(), is(1));
+    }
+
+    @Test
+    void shouldDropUnresponsiveWebDriversOnLease() {
+        //given
+        testee = pool(2, Duration.ofMinutes(5));
+        WebDriver driver = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+        testee.releaseWebDriver(driver);
+        when(driver.getWindowHandle()).thenThrow(new WebDriverException("Browser crashed"));
+
+        //when
+        WebDriver leased = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+
+        //then
+        assertThat(leased, is(not(driver)));
+        verify(driver).quit();
+    }
+
+    @Test
+    void shouldQuitLongestIdleWebDriverWhenPoolIsFull() throws InterruptedException {
+        //given
+        testee = pool(2, Duration.ofMinutes(5));
+        WebDriver first = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+        WebDriver second = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(1000, 600), CHROME_HEADLESS);
+        testee.releaseWebDriver(first);
+        Thread.sleep(10);
+        testee.releaseWebDriver(second);
+
+        //when
+        testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(1200, 600), CHROME_HEADLESS);
+
+        //then
+        verify(first).quit();
+        verify(second, never()).quit();
+        assertThat(testee.idleDriverCount(), is(1));
+    }
+
+    @Test
+    void shouldQuitWebDriversIdleLongerThanMaxIdleTime() {
+        //given
+        testee = pool(2, Duration.ZERO);
+        WebDriver driver = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+        testee.releaseWebDriver(driver);
+
+        //when
+        testee.evictIdleDrivers();
+
+        //then
+        verify(driver).quit();
+        assertThat(testee.idleDriverCount(), is(0));
+    }
+
+    @Test
+    void shouldQuitReturnedWebDriversAfterClose() {
+        //given
+        testee = pool(2, Duration.ofMinutes(5));
+        WebDriver idle = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+        WebDriver leased = testee.getWebDriverByConfig(jobConfig, runStepConfig, deviceConfig(800, 600), CHROME_HEADLESS);
+        testee.releaseWebDriver(idle);
+
+        //when
+        testee.close();
+        testee.releaseWebDriver(leased);
+
+        //then
+        verify(idle).quit();
+        verify(leased).quit();
+    }
+
+    private WebDriverPool pool(int maxDrivers, Duration maxIdleTime) {
+        return pool(maxDrivers, maxIdleTime, ChromeDriver.class);
+    }
+
+    private WebDriverPool pool(int maxDrivers, Duration maxIdleTime, Class<? extends WebDriver> driverClass) {
+        return new WebDriverPool(maxDrivers, maxIdleTime) {
+            @Override
+            WebDriver launchWebDriver(JobConfig jobConfig, RunStepConfig runStepConfig, DeviceConfig device, Browser.Type browserType) {
+                WebDriver driver = mock(driverClass, RETURNS_DEEP_STUBS);
+                when(driver.getWindowHandle()).thenReturn("window-" + launchedDrivers.size());
+                launchedDrivers.add(driver);
+                return driver;
+            }
+        };
+    }
+}
@@ -79,4 +79,36 @@ class JobConfigValidatorTest {
         assertThat(e.getMessage(), containsString("overridden"));
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldDenyInvalidPngCompressionLevel() {
+        // given
+        JobConfig jobConfig = jobConfigBuilder()
+                .addUrlConfig("someUrl", urlConfigBuilder().build())
+                .withPngCompressionLevel(10)
+                .build();
+
+        // when
+        ValidationError e = assertThrows(ValidationError.class, () ->
+            JobConfigValidator.validateJobConfig(jobConfig));
+
+        // then
+        assertThat(e.getMessage(), containsString("PNG compression level"));
+    }
+
+    @Test
+    void shouldDenyNegativeRampUpDelay() {
+        // given
+        JobConfig jobConfig = jobConfigBuilder()
+                .addUrlConfig("someUrl", urlConfigBuilder().build())
+                .withRampUpDelay(-1)
+                .build();
+
+        // when
+        ValidationError e = assertThrows(ValidationError.class, () ->
+            JobConfigValidator.validateJobConfig(jobConfig));
+
+        // then
+        assertThat(e.getMessage(), containsString("ramp up"));
+    }
+
+}
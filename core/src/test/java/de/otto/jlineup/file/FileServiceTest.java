@@ -8,6 +8,7 @@ import de.otto.jlineup.config.DeviceConfig;
 import de.otto.jlineup.config.JobConfig;
 import de.otto.jlineup.config.RunStep;
 import de.otto.jlineup.config.UrlConfig;
+import de.otto.jlineup.image.ImageHashes;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +19,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 import static de.otto.jlineup.RunStepConfig.runStepConfigBuilder;
@@ -82,7 +84,10 @@ class FileServiceTest {
     @Test
     void shouldWriteJsonReport() throws Exception {
 
-        testee.writeJsonReport("[{\"toll\":\"mega\"}]");
+        try (AtomicFileOutput jsonReport = testee.openJsonReport()) {
+            jsonReport.outputStream().write("[{\"toll\":\"mega\"}]".getBytes());
+            jsonReport.commit();
+        }
 
         Path reportFilePath = Paths.get(writeScreenshotTestPath + "/report/report.json");
         assertThat(Files.exists(reportFilePath), is(true));
@@ -90,6 +95,24 @@ class FileServiceTest {
         assertThat(reportFileContents.get(0), is("[{\"toll\":\"mega\"}]"));
     }
 
+    @Test
+    void shouldKeepJsonReportIfNewReportIsNotCommitted() throws Exception {
+        //given
+        Path reportFilePath = Paths.get(writeScreenshotTestPath + "/report/report.json");
+        Files.writeString(reportFilePath, "[{\"toll\":\"mega\"}]");
+
+        //when
+        try (AtomicFileOutput jsonReport = testee.openJsonReport()) {
+            jsonReport.outputStream().write("[{\"trunc".getBytes());
+        }
+
+        //then
+        assertThat(Files.readString(reportFilePath), is("[{\"toll\":\"mega\"}]"));
+        try (var reportDirectoryFiles = Files.list(reportFilePath.getParent())) {
+            assertThat(reportDirectoryFiles.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")), is(true));
+        }
+    }
+
     @Test
     void shouldGenerateFullPathToPngFile() {
         final String fullFileNameWithPath = testee.getScreenshotPath("testurl", "/", 1001, 2002, "step");
@@ -182,4 +205,125 @@ class FileServiceTest {
         assertThat("Context should be found by hash " + contextHash, ctxTracker, is(notNullValue()));
         assertThat("browserType should survive round-trip", ctxTracker.screenshotContext.browserType, is(Browser.Type.CHROME_HEADLESS));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRecordHashesOfWrittenScreenshotsInFileTracker() throws Exception {
+        //given
+        ScreenshotContext context = ScreenshotContext.of("https://example.com", "/", DeviceConfig.deviceConfig(1000, 1001), before, UrlConfig.urlConfigBuilder().build());
+        BufferedImage bufferedImage = new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB);
+        bufferedImage.setRGB(3, 4, 0xFF00FF);
+
+        //when
+        testee.writeScreenshot(context, bufferedImage, 0);
+        testee.writeFileTrackerData();
+
+        //then
+        FileTracker deserialized = JacksonWrapper.readFileTrackerFile(Paths.get(writeScreenshotTestPath, "report", "files.json").toFile());
+        ImageHashes imageHashes = deserialized.getHashesForContext(context.contextHash()).get(0).get(before);
+        assertThat(imageHashes, is(ImageHashes.of(bufferedImage).withoutRowHashes()));
+        String fileName = deserialized.getScreenshotsForContext(context.contextHash()).get(0).get(before);
+        assertThat(testee.readRowHashes(fileName), is(ImageHashes.of(bufferedImage).rowHashes()));
+    }
+
+    @Test
+    void shouldRebuildFileTrackerFromSnapshotAndJournal() throws Exception {
+        //given
+        ScreenshotContext context = ScreenshotContext.of("https://example.com", "/", DeviceConfig.deviceConfig(1000, 1001), before, UrlConfig.urlConfigBuilder().build());
+        ScreenshotContext otherContext = ScreenshotContext.of("https://example.com", "/other", DeviceConfig.deviceConfig(1000, 1001), before, UrlConfig.urlConfigBuilder().build());
+        BufferedImage bufferedImage = new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB);
+        testee.writeScreenshot(context, bufferedImage, 0);
+        testee.writeFileTrackerData();
+
+        //when
+        testee.writeScreenshot(context, bufferedImage, 20);
+        testee.writeScreenshot(otherContext, bufferedImage, 0);
+        testee.setBrowserAndVersion(context, "Chrome 130");
+        FileService afterStep = new FileService(runStepConfigBuilder()
+                .withWorkingDirectory(writeScreenshotTestPath)
+                .withScreenshotsDirectory("screenshots")
+                .withReportDirectory("report")
+                .withStep(RunStep.after)
+                .build(), jobConfig);
+
+        //then
+        Path journalPath = Paths.get(writeScreenshotTestPath, "report", "files_journal.jsonl");
+        assertThat(Files.readAllLines(journalPath).size(), is(4));
+        FileTracker fileTracker = afterStep.getFileTracker();
+        assertThat(fileTracker.getScreenshotsForContext(context.contextHash()).keySet(), Matchers.contains(0, 20));
+        assertThat(fileTracker.getScreenshotsForContext(otherContext.contextHash()).keySet(), Matchers.contains(0));
+        assertThat(fileTracker.getScreenshotContextFileTracker(otherContext.contextHash()).screenshotContext.urlSubPath, is("/other"));
+        assertThat(fileTracker.getBrowsers().get(before), Matchers.contains("Chrome 130"));
+
+        //and the next snapshot contains everything and removes the journal
+        afterStep.writeFileTrackerData();
+        assertThat(Files.exists(journalPath), is(false));
+        FileTracker snapshot = JacksonWrapper.readFileTrackerFile(Paths.get(writeScreenshotTestPath, "report", "files.json").toFile());
+        assertThat(snapshot.getScreenshotsForContext(context.contextHash()).keySet(), Matchers.contains(0, 20));
+    }
+
+    @Test
+    void shouldMergeContextFileTrackersWithTheirJournals() throws Exception {
+        //given
+        ScreenshotContext context = ScreenshotContext.of("https://example.com", "/", DeviceConfig.deviceConfig(1000, 1001), before, UrlConfig.urlConfigBuilder().build());
+        BufferedImage bufferedImage = new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB);
+        //Lambdas write a file tracker per context
+        FileService contextFileService = new FileService(runStepConfig, jobConfig, "files_before_" + context.contextHash() + ".json");
+        contextFileService.writeScreenshot(context, bufferedImage, 0);
+        contextFileService.writeFileTrackerData();
+        contextFileService.writeScreenshot(context, bufferedImage, 20);
+
+        //when
+        testee.mergeContextFileTrackersIntoFileTracker(Paths.get(writeScreenshotTestPath, "report"), (dir, name) -> name.startsWith("files_") && name.endsWith(".json"));
+
+        //then
+        assertThat(testee.getFileTracker().getScreenshotsForContext(context.contextHash()).keySet(), Matchers.contains(0, 20));
+        FileTracker snapshot = JacksonWrapper.readFileTrackerFile(Paths.get(writeScreenshotTestPath, "report", "files.json").toFile());
+        assertThat(snapshot.getScreenshotsForContext(context.contextHash()).keySet(), Matchers.contains(0, 20));
+    }
+
+    @Test
+    void shouldWriteScreenshotsWithConfiguredPngCompressionLevel() throws Exception {
+        //given
+        testee = new FileService(runStepConfig, JobConfig.copyOfBuilder(jobConfig).withPngCompressionLevel(1).build());
+        ScreenshotContext context = ScreenshotContext.of("https://example.com", "/", DeviceConfig.deviceConfig(1000, 1001), before, UrlConfig.urlConfigBuilder().build());
+        BufferedImage bufferedImage = new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB);
+        bufferedImage.setRGB(3, 4, 0xFF00FF);
+
+        //when
+        String fileName = testee.writeScreenshot(context, bufferedImage, 0);
+
+        //then
+        BufferedImage written = testee.readScreenshot(fileName);
+        assertThat(written.getRGB(3, 4), is(0xFFFF00FF));
+        assertThat(written.getRGB(4, 4), is(0xFF000000));
+    }
+
+    @Test
+    void shouldNotifyListenersAboutWrittenScreenshots() throws Exception {
+        //given
+        ScreenshotContext context = ScreenshotContext.of("https://example.com", "/", DeviceConfig.deviceConfig(1000, 1001), before, UrlConfig.urlConfigBuilder().build());
+        BufferedImage bufferedImage = new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB);
+        List<String> writtenFileNames = new ArrayList<>();
+        testee.addScreenshotWrittenListener((screenshotContext, fileName, yPosition, image) -> writtenFileNames.add(fileName));
+
+        //when
+        String fileName = testee.writeScreenshot(context, bufferedImage, 0);
+
+        //then
+        assertThat(writtenFileNames, is(List.of(fileName)));
+    }
+
+    @Test
+    void shouldReadContextTimingsOfFormerRun() throws Exception {
+        //given
+        ScreenshotContext context = ScreenshotContext.of("https://example.com", "/", DeviceConfig.deviceConfig(1000, 1001), before, UrlConfig.urlConfigBuilder().build());
+        testee.recordContextTiming(context, 1234L, 5000L, 300L);
+        testee.writeContextTimings();
+
+        //when
+        FileService nextRun = new FileService(runStepConfig, jobConfig);
+
+        //then
+        assertThat(nextRun.getContextTimings().get(context.contextHash()), is(new ContextTiming(1234L, 5000L, 300L)));
+    }
+}
@@ -0,0 +1,128 @@
+package de.otto.jlineup.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PngEncoderTest {
+
+    @ParameterizedTest
+    @EnumSource(PngEncoder.Filter.class)
+    void shouldWriteImagesThatDecodeToTheSamePixels(PngEncoder.Filter filter) throws IOException {
+        //given
+        BufferedImage image = randomImage(BufferedImage.TYPE_INT_RGB, 300, 200);
+        PngEncoder testee = new PngEncoder(6, filter, 1);
+
+        //when
+        BufferedImage decoded = encodeAndDecode(testee, image);
+
+        //then
+        assertSamePixels(decoded, image);
+    }
+
+    @Test
+    void shouldKeepAlphaChannel() throws IOException {
+        //given
+        BufferedImage image = randomImage(BufferedImage.TYPE_INT_ARGB, 100, 50);
+        PngEncoder testee = new PngEncoder(1, PngEncoder.Filter.UP, 1);
+
+        //when
+        BufferedImage decoded = encodeAndDecode(testee, image);
+
+        //then
+        assertThat(decoded.getColorModel().hasAlpha(), is(true));
+        assertSamePixels(decoded, image);
+    }
+
+    @Test
+    void shouldCompressBlocksInParallel() throws IOException {
+        //given
+        //big enough for more than one block per thread
+        BufferedImage image = randomImage(BufferedImage.TYPE_3BYTE_BGR, 1000, 1000);
+        PngEncoder testee = new PngEncoder(9, PngEncoder.Filter.ADAPTIVE, 4);
+
+        //when
+        BufferedImage decoded = encodeAndDecode(testee, image);
+
+        //then
+        assertSamePixels(decoded, image);
+    }
+
+    @Test
+    void shouldCombineAdler32Checksums() {
+        //given
+        byte[] first = new byte[100_000];
+        byte[] second = new byte[70_000];
+        Random random = new Random(42);
+        random.nextBytes(first);
+        random.nextBytes(second);
+        Adler32 expected = new Adler32();
+        expected.update(first);
+        expected.update(second);
+
+        //when
+        long combined = PngEncoder.combineAdler32(adler32(first), adler32(second), second.length);
+
+        //then
+        assertThat(combined, is(expected.getValue()));
+    }
+
+    @Test
+    void shouldDenyInvalidCompressionLevel() {
+        assertThrows(IllegalArgumentException.class, () -> new PngEncoder(10, PngEncoder.Filter.UP, 1));
+    }
+
+    @Test
+    void shouldUseImageIOForDefaultCompressionLevel() {
+        assertThat(ScreenshotEncoder.forCompressionLevel(ScreenshotEncoder.IMAGE_IO_COMPRESSION_LEVEL), instanceOf(ImageIOScreenshotEncoder.class));
+        assertThat(ScreenshotEncoder.forCompressionLevel(1), instanceOf(PngEncoder.class));
+    }
+
+    private static BufferedImage encodeAndDecode(ScreenshotEncoder encoder, BufferedImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        encoder.write(image, outputStream);
+        return ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+
+    //screenshot-like content: flat areas with some noise
+    private static BufferedImage randomImage(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(width * 31L + height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = random.nextInt(10) == 0 ? random.nextInt() : 0x80FFFFFF - (y / 10) * 0x010101;
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage actual, BufferedImage expected) {
+        assertThat(actual.getWidth(), is(expected.getWidth()));
+        assertThat(actual.getHeight(), is(expected.getHeight()));
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertThat(actual.getRGB(x, y), is(expected.getRGB(x, y)));
+            }
+        }
+    }
+
+    private static long adler32(byte[] bytes) {
+        Adler32 adler32 = new Adler32();
+        adler32.update(bytes);
+        return adler32.getValue();
+    }
+}
@@ -0,0 +1,104 @@
+package de.otto.jlineup.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static de.otto.jlineup.image.ImageService.ANTI_ALIAS_DETECTED_COLOR;
+import static de.otto.jlineup.image.ImageService.DIFFERENT_SIZE_COLOR;
+import static de.otto.jlineup.image.ImageService.HIGHLIGHT_COLOR;
+import static de.otto.jlineup.image.ImageService.LOOK_SAME_COLOR;
+import static de.otto.jlineup.image.ImageService.SAME_COLOR;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class DifferenceMaskTest {
+
+    @Test
+    void shouldMergeNeighbouringPixelsOfSameClassIntoOneRun() {
+        //given
+        DifferenceMask testee = new DifferenceMask(10);
+
+        //when
+        testee.add(3, HIGHLIGHT_COLOR);
+        testee.add(4, HIGHLIGHT_COLOR);
+        testee.add(5, SAME_COLOR);
+        testee.add(6, HIGHLIGHT_COLOR);
+        testee.add(7, ANTI_ALIAS_DETECTED_COLOR);
+
+        //then
+        assertThat(testee.getRunCount(), is(3));
+        assertThat(testee.countPixels(DifferenceMask.DIFFERENT), is(3));
+        assertThat(testee.countPixels(DifferenceMask.ANTI_ALIASED), is(1));
+    }
+
+    @Test
+    void shouldRenderSameImageAsWrittenPixels() {
+        //given
+        DifferenceMask testee = new DifferenceMask(4);
+        int[] colors = {SAME_COLOR, HIGHLIGHT_COLOR, LOOK_SAME_COLOR | 0x120000, LOOK_SAME_COLOR | 0xFF0000,
+                ANTI_ALIAS_DETECTED_COLOR, SAME_COLOR, DIFFERENT_SIZE_COLOR, DIFFERENT_SIZE_COLOR};
+
+        //when
+        for (int i = 0; i < colors.length; i++) {
+            testee.add(i, colors[i]);
+        }
+        BufferedImage image = testee.render(2);
+
+        //then
+        for (int i = 0; i < colors.length; i++) {
+            assertThat(image.getRGB(i % 4, i / 4), is(colors[i]));
+        }
+    }
+
+    @Test
+    void shouldAppendMaskOfFollowingRows() {
+        //given
+        DifferenceMask upper = new DifferenceMask(10);
+        upper.add(9, LOOK_SAME_COLOR | 0x330000);
+        DifferenceMask lower = new DifferenceMask(10);
+        lower.add(10, LOOK_SAME_COLOR | 0x440000);
+
+        //when
+        BufferedImage image = upper.append(lower).render(2);
+
+        //then
+        assertThat(image.getRGB(9, 0), is(LOOK_SAME_COLOR | 0x330000));
+        assertThat(image.getRGB(0, 1), is(LOOK_SAME_COLOR | 0x440000));
+    }
+
+    @Test
+    void shouldGroupCloseDifferencesIntoRegions() {
+        //given
+        DifferenceMask testee = new DifferenceMask(100);
+
+        //when
+        testee.add(10 * 100 + 10, HIGHLIGHT_COLOR);
+        testee.add(12 * 100 + 40, HIGHLIGHT_COLOR);
+        testee.add(13 * 100 + 15, HIGHLIGHT_COLOR);
+        testee.add(50 * 100 + 20, HIGHLIGHT_COLOR);
+
+        //then
+        assertThat(testee.regions(), is(List.of(
+                new ImageDifference.DifferenceRegion(10, 10, 6, 4),
+                new ImageDifference.DifferenceRegion(40, 12, 1, 1),
+                new ImageDifference.DifferenceRegion(20, 50, 1, 1))));
+    }
+
+    @Test
+    void shouldSplitRunsOverRowBoundariesIntoRegions() {
+        //given
+        DifferenceMask testee = new DifferenceMask(100);
+
+        //when
+        testee.addRun(95, 10, DifferenceMask.DIFFERENT_SIZE);
+        testee.addRun(50 * 100 + 50, 300, DifferenceMask.DIFFERENT_SIZE);
+
+        //then
+        assertThat(testee.regions(), is(List.of(
+                new ImageDifference.DifferenceRegion(95, 0, 5, 1),
+                new ImageDifference.DifferenceRegion(0, 1, 5, 1),
+                new ImageDifference.DifferenceRegion(0, 50, 100, 4))));
+    }
+}
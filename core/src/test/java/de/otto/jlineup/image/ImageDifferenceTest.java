@@ -0,0 +1,47 @@
+package de.otto.jlineup.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class ImageDifferenceTest {
+
+    @Test
+    void shouldKeepLargestRegionsSortedFromTopToBottom() {
+        //given
+        final List<ImageDifference.DifferenceRegion> regions = List.of(
+                new ImageDifference.DifferenceRegion(0, 0, 1, 1),
+                new ImageDifference.DifferenceRegion(50, 0, 10, 10),
+                new ImageDifference.DifferenceRegion(0, 20, 2, 2),
+                new ImageDifference.DifferenceRegion(0, 40, 5, 5));
+
+        //when
+        List<ImageDifference.DifferenceRegion> largestRegions = ImageDifference.largestRegions(regions, 2);
+
+        //then
+        assertThat(largestRegions, is(List.of(
+                new ImageDifference.DifferenceRegion(50, 0, 10, 10),
+                new ImageDifference.DifferenceRegion(0, 40, 5, 5))));
+    }
+
+    @Test
+    void shouldCapRegionsButCountAllOfThem() {
+        //given
+        final int regionCount = 2 * ImageDifference.MAX_REGIONS;
+        final int gap = 2 * DifferenceMask.REGION_MERGE_DISTANCE;
+        final DifferenceMask differenceMask = new DifferenceMask(regionCount * gap);
+        for (int i = 0; i < regionCount; i++) {
+            differenceMask.addRun(i * gap, 1, DifferenceMask.DIFFERENT);
+        }
+
+        //when
+        ImageDifference imageDifference = ImageDifference.of(differenceMask, 1);
+
+        //then
+        assertThat(imageDifference.regionCount(), is(regionCount));
+        assertThat(imageDifference.regions().size(), is(ImageDifference.MAX_REGIONS));
+    }
+}
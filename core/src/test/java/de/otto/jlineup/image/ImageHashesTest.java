@@ -0,0 +1,101 @@
+package de.otto.jlineup.image;
+
+import de.otto.jlineup.JacksonWrapper;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class ImageHashesTest {
+
+    private static final String BEFORE_IMAGE = "src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_before.png";
+
+    @Test
+    void shouldHaveSameHashesForSamePixelsInDifferentImageTypes() throws IOException {
+        //given
+        BufferedImage image = ImageIO.read(new File(BEFORE_IMAGE));
+        BufferedImage intImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        intImage.getGraphics().drawImage(image, 0, 0, null);
+
+        //when
+        ImageHashes hashes = ImageHashes.of(image);
+        ImageHashes intHashes = ImageHashes.of(intImage);
+
+        //then
+        assertThat(hashes.isSameImage(intHashes), is(true));
+        assertThat(hashes, is(intHashes));
+        assertThat(hashes.differingRows(intHashes).isEmpty(), is(true));
+    }
+
+    @Test
+    void shouldFindDifferingRows() throws IOException {
+        //given
+        BufferedImage image = ImageIO.read(new File(BEFORE_IMAGE));
+        BufferedImage changedImage = ImageIO.read(new File(BEFORE_IMAGE));
+        changedImage.setRGB(0, 3, 0xFFFF0000);
+        changedImage.setRGB(5, 7, 0xFF00FF00);
+        changedImage.setRGB(6, 7, 0xFF0000FF);
+        BitSet expectedRows = new BitSet();
+        expectedRows.set(3);
+        expectedRows.set(7);
+
+        //when
+        ImageHashes hashes = ImageHashes.of(image);
+        ImageHashes changedHashes = ImageHashes.of(changedImage);
+
+        //then
+        assertThat(hashes.isSameImage(changedHashes), is(false));
+        assertThat(hashes.differingRows(changedHashes), is(expectedRows));
+    }
+
+    @Test
+    void shouldOnlyFindDifferingRowsWithinHeightOfBothImages() throws IOException {
+        //given
+        BufferedImage image = ImageIO.read(new File(BEFORE_IMAGE));
+        BufferedImage shorterImage = image.getSubimage(0, 0, image.getWidth(), 10);
+
+        //when
+        BitSet differingRows = ImageHashes.of(image).differingRows(ImageHashes.of(shorterImage));
+
+        //then
+        assertThat(differingRows.isEmpty(), is(true));
+        assertThat(ImageHashes.of(image).isSameImage(ImageHashes.of(shorterImage)), is(false));
+    }
+
+    @Test
+    void shouldNotFindDifferingRowsOfImagesWithDifferentWidths() throws IOException {
+        //given
+        BufferedImage image = ImageIO.read(new File(BEFORE_IMAGE));
+        BufferedImage narrowerImage = image.getSubimage(0, 0, image.getWidth() - 1, image.getHeight());
+
+        //when
+        BitSet differingRows = ImageHashes.of(image).differingRows(ImageHashes.of(narrowerImage));
+
+        //then
+        assertThat(differingRows, is(nullValue()));
+    }
+
+    @Test
+    void shouldSerializeAndDeserializeHashesWithoutRowHashes() throws IOException {
+        //given
+        ImageHashes hashes = ImageHashes.of(ImageIO.read(new File(BEFORE_IMAGE)));
+
+        //when
+        String json = JacksonWrapper.serializeObject(hashes);
+        ImageHashes deserialized = JacksonWrapper.jsonMapper().readValue(json, ImageHashes.class);
+
+        //then
+        assertThat(json.contains("row-hashes"), is(false));
+        assertThat(deserialized, is(hashes.withoutRowHashes()));
+        assertThat(deserialized.isSameImage(hashes), is(true));
+        assertThat(deserialized.imageHash, is(not(nullValue())));
+    }
+}
@@ -0,0 +1,113 @@
+package de.otto.jlineup.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class ImageRasterTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_BGR,
+            BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_4BYTE_ABGR_PRE, BufferedImage.TYPE_BYTE_INDEXED})
+    void shouldReadSamePixelsAsGetRGB(int imageType) throws IOException {
+        //given
+        final BufferedImage image = convert(ImageIO.read(new File("src/test/resources/screenshots/cases/otto_logo_before.png")), imageType);
+
+        //when
+        final ImageRaster raster = ImageRaster.of(image);
+
+        //then
+        assertSamePixels(image, raster);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR})
+    void shouldReadSamePixelsAsGetRGBFromSubImage(int imageType) throws IOException {
+        //given
+        final BufferedImage image = convert(ImageIO.read(new File("src/test/resources/screenshots/cases/otto_logo_before.png")), imageType);
+        final BufferedImage subImage = image.getSubimage(13, 27, 200, 100);
+
+        //when
+        final ImageRaster raster = ImageRaster.of(subImage);
+
+        //then
+        assertSamePixels(subImage, raster);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_INDEXED})
+    void shouldFindNextDifferingRow(int imageType) throws IOException {
+        //given
+        final BufferedImage image = convert(ImageIO.read(new File("src/test/resources/screenshots/cases/otto_logo_before.png")), imageType);
+        final BufferedImage changedImage = convert(image, imageType);
+        changedImage.setRGB(20, 42, 0xFF123456);
+        changedImage.setRGB(767, 100, 0xFF654321);
+
+        //when
+        final ImageRaster raster = ImageRaster.of(image);
+        final ImageRaster changedRaster = ImageRaster.of(changedImage);
+
+        //then
+        assertThat(raster.nextDifferingRow(changedRaster, 0, 150), is(42));
+        assertThat(raster.nextDifferingRow(changedRaster, 42, 150), is(42));
+        assertThat(raster.nextDifferingRow(changedRaster, 43, 150), is(100));
+        assertThat(raster.nextDifferingRow(changedRaster, 101, 150), is(150));
+        assertThat(raster.nextDifferingRow(changedRaster, 0, 42), is(42));
+    }
+
+    @Test
+    void shouldFindNextDifferingRowOfRastersWithDifferentLayouts() throws IOException {
+        //given
+        final BufferedImage image = ImageIO.read(new File("src/test/resources/screenshots/cases/otto_logo_before.png"));
+        final BufferedImage changedImage = convert(image, BufferedImage.TYPE_INT_ARGB);
+        changedImage.setRGB(20, 42, 0xFF123456);
+
+        //when
+        final ImageRaster raster = ImageRaster.of(image);
+        final ImageRaster changedRaster = ImageRaster.of(changedImage);
+
+        //then
+        assertThat(raster.nextDifferingRow(changedRaster, 0, 150), is(42));
+        assertThat(raster.nextDifferingRow(changedRaster, 43, 150), is(150));
+    }
+
+    @Test
+    void shouldFindNextDifferingRowOfSubImages() throws IOException {
+        //given
+        final BufferedImage image = ImageIO.read(new File("src/test/resources/screenshots/cases/otto_logo_before.png"));
+        final BufferedImage changedImage = convert(image, image.getType());
+        changedImage.setRGB(120, 80, 0xFF123456);
+
+        //when
+        final ImageRaster raster = ImageRaster.of(image.getSubimage(100, 50, 200, 100));
+        final ImageRaster changedRaster = ImageRaster.of(changedImage.getSubimage(100, 50, 200, 100));
+
+        //then
+        assertThat(raster.nextDifferingRow(changedRaster, 0, 100), is(30));
+        assertThat(raster.nextDifferingRow(changedRaster, 31, 100), is(100));
+    }
+
+    private static void assertSamePixels(BufferedImage image, ImageRaster raster) {
+        assertThat(raster.getWidth(), is(image.getWidth()));
+        assertThat(raster.getHeight(), is(image.getHeight()));
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertThat(raster.getARGB(x, y), is(image.getRGB(x, y)));
+            }
+        }
+    }
+
+    private static BufferedImage convert(BufferedImage image, int imageType) {
+        final BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), imageType);
+        converted.getGraphics().drawImage(image, 0, 0, null);
+        return converted;
+    }
+}
@@ -7,6 +7,7 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import static de.otto.jlineup.config.JobConfig.DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE;
 import static de.otto.jlineup.config.JobConfig.DEFAULT_MAX_COLOR_DISTANCE;
@@ -40,6 +41,28 @@ class ImageServiceTest {
         assertThat(bufferedImagesEqual(referenceImageBuffer, result.getDifferenceImage().orElse(null)), is(true));
     }
 
+    @Test
+    void shouldDescribeDifferencesByRegionsAndCounts() {
+        //given
+        final BufferedImage beforeImageBuffer = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        final BufferedImage afterImageBuffer = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        afterImageBuffer.setRGB(10, 10, 0xFFFFFF);
+        afterImageBuffer.setRGB(15, 12, 0xFFFFFF);
+        afterImageBuffer.setRGB(80, 80, 0xFF0000);
+
+        //when
+        ImageService.ImageComparisonResult result = testee.compareImages(beforeImageBuffer, afterImageBuffer, 100, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, true, DEFAULT_MAX_COLOR_DISTANCE);
+
+        //then
+        ImageDifference imageDifference = result.getImageDifference().orElse(null);
+        assertThat(imageDifference, is(new ImageDifference(100, 100, 3, 0, 0, 0, 2, List.of(
+                new ImageDifference.DifferenceRegion(10, 10, 6, 3),
+                new ImageDifference.DifferenceRegion(80, 80, 1, 1)))));
+        BufferedImage differenceImage = result.getDifferenceImage().orElse(null);
+        assertThat(differenceImage.getRGB(15, 12), is(ImageService.HIGHLIGHT_COLOR));
+        assertThat(differenceImage.getRGB(11, 10), is(ImageService.SAME_COLOR));
+    }
+
     @Test
     void shouldNotIgnoreSlightDifferencesInColorSpaceInStrictMode() throws IOException {
         //given
@@ -231,6 +254,58 @@ class ImageServiceTest {
         assertThat(result.getDifference(), is(0.475));
     }
 
+    @Test
+    void shouldProduceSameResultWhenComparingRowBandsInParallel() throws IOException {
+        //given
+        final int viewportHeight = 800;
+        final ImageService sequentialImageService = new ImageService(1);
+        final ImageService parallelImageService = new ImageService(4);
+        final BufferedImage beforeImageBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_before.png"));
+        final BufferedImage afterImageBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_after.png"));
+
+        //when
+        ImageService.ImageComparisonResult sequentialResult = sequentialImageService.compareImages(beforeImageBuffer, afterImageBuffer, viewportHeight, true, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE);
+        ImageService.ImageComparisonResult parallelResult = parallelImageService.compareImages(beforeImageBuffer, afterImageBuffer, viewportHeight, true, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE);
+
+        //then
+        assertThat(parallelImageService.getParallelism(), is(4));
+        assertThat(parallelResult.getDifference(), is(sequentialResult.getDifference()));
+        assertThat(parallelResult.getAcceptedDifferentPixels(), is(sequentialResult.getAcceptedDifferentPixels()));
+        assertThat(parallelResult.getMaxDetectedColorDistance(), is(sequentialResult.getMaxDetectedColorDistance()));
+        assertThat(bufferedImagesEqual(sequentialResult.getDifferenceImage().orElse(null), parallelResult.getDifferenceImage().orElse(null)), is(true));
+    }
+
+    @Test
+    void shouldNotCrashBecauseOfDifferentHeightsWhenComparingRowBandsInParallel() throws IOException {
+        //given
+        final int viewportHeight = 800;
+        final BufferedImage beforeImageBuffer = ImageIO.read(new File("src/test/resources/screenshots/less_height.png"));
+        final BufferedImage afterImageBuffer = ImageIO.read(new File("src/test/resources/screenshots/more_height.png"));
+
+        //when
+        ImageService.ImageComparisonResult result = new ImageService(3).compareImages(beforeImageBuffer, afterImageBuffer, viewportHeight, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, true, DEFAULT_MAX_COLOR_DISTANCE);
+
+        //then
+        assertThat(result.getDifference(), is(0.475));
+    }
+
+    @Test
+    void shouldCompareIntImagesLikeByteImages() throws IOException {
+        //given
+        final int viewportHeight = 800;
+        final BufferedImage beforeImageBuffer = ImageIO.read(new File("src/test/resources/screenshots/cases/otto_logo_before.png"));
+        final BufferedImage afterImageBuffer = ImageIO.read(new File("src/test/resources/screenshots/cases/otto_logo_after.png"));
+
+        //when
+        ImageService.ImageComparisonResult byteResult = testee.compareImages(beforeImageBuffer, afterImageBuffer, viewportHeight, true, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, true, DEFAULT_MAX_COLOR_DISTANCE);
+        ImageService.ImageComparisonResult intResult = testee.compareImages(toIntArgb(beforeImageBuffer), toIntArgb(afterImageBuffer), viewportHeight, true, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, true, DEFAULT_MAX_COLOR_DISTANCE);
+
+        //then
+        assertThat(intResult.getDifference(), is(byteResult.getDifference()));
+        assertThat(intResult.getAcceptedDifferentPixels(), is(byteResult.getAcceptedDifferentPixels()));
+        assertThat(bufferedImagesEqual(byteResult.getDifferenceImage().orElse(null), intResult.getDifferenceImage().orElse(null)), is(true));
+    }
+
     @Test
     void shouldSeeIdenticalByteImageBuffersAsEqualWithQuickCompare() {
         final BufferedImage image1 = new BufferedImage(100, 100, BufferedImage.TYPE_BYTE_INDEXED);
@@ -261,5 +336,9 @@ class ImageServiceTest {
         assertThat(result, is(false));
     }
 
-
-}
\ No newline at end of file
+    private static BufferedImage toIntArgb(BufferedImage image) {
+        final BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        converted.getGraphics().drawImage(image, 0, 0, null);
+        return converted;
+    }
+}
@@ -15,4 +15,24 @@ class LABTest {
 
         assertThat(v, is(3.533443206559));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldMapPackedRGBToSameValuesAsRGBTriple() {
+        double[] target = new double[4];
+
+        LAB.fromPackedRGB(0xFF372C21, target, 1);
+
+        LAB expected = LAB.fromRGB(0x37, 0x2C, 0x21, 0);
+        assertThat(target[1], is(expected.L));
+        assertThat(target[2], is(expected.a));
+        assertThat(target[3], is(expected.b));
+    }
+
+    @Test
+    void shouldCalculateCIEDE2000FromPlainValues() {
+        LAB lab1 = LAB.fromRGB(55,44,33, 0);
+        LAB lab2 = LAB.fromRGB(66,55,44, 0);
+
+        assertThat(LAB.ciede2000(lab1.L, lab1.a, lab1.b, lab2.L, lab2.a, lab2.b), is(LAB.ciede2000(lab1, lab2)));
+    }
+}
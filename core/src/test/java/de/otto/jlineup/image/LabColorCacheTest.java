@@ -0,0 +1,44 @@
+package de.otto.jlineup.image;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class LabColorCacheTest {
+
+    private final LabColorCache testee = new LabColorCache();
+
+    @Test
+    void shouldCalculateSameColorDistanceAsLAB() {
+        //given
+        double expected = Math.abs(LAB.ciede2000(LAB.fromRGB(55, 44, 33, 0), LAB.fromRGB(66, 55, 44, 0)));
+
+        //when
+        double uncached = testee.colorDistance(0xFF372C21, 0xFF42372C);
+        double cached = testee.colorDistance(0xFF372C21, 0xFF42372C);
+
+        //then
+        assertThat(uncached, is(expected));
+        assertThat(cached, is(expected));
+    }
+
+    @Test
+    void shouldIgnoreAlphaChannel() {
+        assertThat(testee.colorDistance(0x00372C21, 0xFF42372C), is(testee.colorDistance(0xFF372C21, 0x0042372C)));
+    }
+
+    @Test
+    void shouldCalculateDistanceOfBlack() {
+        assertThat(testee.colorDistance(0xFF000000, 0xFF000000), is(0d));
+        assertThat(testee.colorDistance(0xFF000000, 0xFFFFFFFF), is(Math.abs(LAB.ciede2000(LAB.fromRGB(0, 0, 0, 0), LAB.fromRGB(255, 255, 255, 0)))));
+    }
+
+    @Test
+    void shouldCalculateCorrectDistancesForAllColorsOfAChannel() {
+        for (int i = 0; i < 256; i++) {
+            double expected = Math.abs(LAB.ciede2000(LAB.fromRGB(i, 0, 255 - i, 0), LAB.fromRGB(0, i, 0, 0)));
+            assertThat(testee.colorDistance(0xFF000000 | i << 16 | (255 - i), 0xFF000000 | i << 8), is(expected));
+        }
+    }
+}
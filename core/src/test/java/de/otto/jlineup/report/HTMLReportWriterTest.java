@@ -13,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 
@@ -53,13 +54,13 @@ class HTMLReportWriterTest {
     }
 
     @Test
-    void shouldWriteReport() throws FileNotFoundException {
+    void shouldWriteReport() throws IOException {
         testee.writeReport(report);
         verify(fileServiceMock).writeHtmlReport(anyString(), anyString());
     }
 
     @Test
-    void shouldRenderReportWithoutTemplateVariables() throws FileNotFoundException {
+    void shouldRenderReportWithoutTemplateVariables() throws IOException {
         ArgumentCaptor<String> htmlCaptor = ArgumentCaptor.forClass(String.class);
         testee.writeReport(report);
         verify(fileServiceMock).writeHtmlReport(htmlCaptor.capture(), anyString());
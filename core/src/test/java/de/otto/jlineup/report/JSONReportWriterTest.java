@@ -4,16 +4,19 @@ import de.otto.jlineup.browser.BrowserStep;
 import de.otto.jlineup.browser.ScreenshotContext;
 import de.otto.jlineup.config.DeviceConfig;
 import de.otto.jlineup.config.UrlConfig;
+import de.otto.jlineup.file.AtomicFileOutput;
 import de.otto.jlineup.file.FileService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.skyscreamer.jsonassert.JSONAssert;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Set;
 
@@ -28,6 +31,9 @@ class JSONReportWriterTest {
     @Mock
     private FileService fileServiceMock;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     void setup() {
         testee = new JSONReportWriter(fileServiceMock);
@@ -188,11 +194,11 @@ class JSONReportWriterTest {
                 """;
 
 
-        testee.writeComparisonReportAsJson(report);
+        Path jsonReport = tempDir.resolve("report.json");
+        Mockito.when(fileServiceMock.openJsonReport()).thenReturn(new AtomicFileOutput(jsonReport));
 
-        ArgumentCaptor<String> jsonCaptor = ArgumentCaptor.forClass(String.class);
-        Mockito.verify(fileServiceMock).writeJsonReport(jsonCaptor.capture());
+        testee.writeComparisonReportAsJson(report);
 
-        JSONAssert.assertEquals(expectedJSON, jsonCaptor.getValue(), false);
+        JSONAssert.assertEquals(expectedJSON, Files.readString(jsonReport), false);
     }
 }
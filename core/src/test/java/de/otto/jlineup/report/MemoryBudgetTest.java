@@ -0,0 +1,37 @@
+package de.otto.jlineup.report;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class MemoryBudgetTest {
+
+    @Test
+    void shouldAcquireAndReleaseMemory() throws Exception {
+        //given
+        MemoryBudget testee = new MemoryBudget(10 * 1024);
+
+        //when
+        int permits = testee.acquire(3000);
+
+        //then
+        assertThat(testee.availableBytes(), is(7 * 1024L));
+        testee.release(permits);
+        assertThat(testee.availableBytes(), is(10 * 1024L));
+    }
+
+    @Test
+    void shouldGiveWholeBudgetToRequestsExceedingIt() throws Exception {
+        //given
+        MemoryBudget testee = new MemoryBudget(10 * 1024);
+
+        //when
+        int permits = testee.acquire(1024 * 1024);
+
+        //then
+        assertThat(testee.availableBytes(), is(0L));
+        testee.release(permits);
+        assertThat(testee.availableBytes(), is(10 * 1024L));
+    }
+}
@@ -0,0 +1,100 @@
+package de.otto.jlineup.report;
+
+import de.otto.jlineup.browser.ScreenshotContext;
+import de.otto.jlineup.config.DeviceConfig;
+import de.otto.jlineup.config.JobConfig;
+import de.otto.jlineup.config.UrlConfig;
+import de.otto.jlineup.file.FileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static de.otto.jlineup.browser.BrowserStep.after;
+import static de.otto.jlineup.browser.BrowserStep.before;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PaginatedReportWriterTest {
+
+    private PaginatedReportWriter testee;
+
+    @Mock
+    private FileService fileServiceMock;
+
+    private final Map<String, ByteArrayOutputStream> reportData = new HashMap<>();
+
+    @BeforeEach
+    void setup() {
+        testee = new PaginatedReportWriter(fileServiceMock);
+    }
+
+    @Test
+    void shouldWriteOneFragmentPerUrlWithThumbnails() throws IOException {
+        //given
+        when(fileServiceMock.openReportData(anyString())).thenAnswer(invocation -> reportData.computeIfAbsent(invocation.getArgument(0), name -> new ByteArrayOutputStream()));
+        when(fileServiceMock.readImageFromReportDirectory(anyString())).thenReturn(new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB));
+        Report report = new Report(new Summary(false, 0d, 0d, 0), JobConfig.exampleConfig(),
+                List.of(urlReport("https://www.otto.de"), urlReport("https://www.otto.de/other")),
+                Map.of(before, Set.of("SomeBrowser 1.2.3"), after, Set.of("SomeBrowser 1.2.3")));
+
+        //when
+        List<PaginatedReportWriter.UrlIndexEntry> index = testee.writeReportData(report);
+
+        //then
+        assertThat(index.size(), is(2));
+        assertThat(index.get(1).fragment(), is("report-data/url-1.js"));
+        String fragment = reportData.get("url-1.js").toString(StandardCharsets.UTF_8);
+        assertThat(fragment, startsWith("jlineupReportFragment(1, {"));
+        assertThat(fragment, endsWith("});\n"));
+        assertThat(fragment, containsString("\"before\":\"../screenshots/1887/before.png\""));
+        assertThat(fragment, containsString("\"before-thumbnail\":{\"path\":\"report-data/thumbnails/1887_before.png\",\"width\":320,\"height\":213}"));
+        verify(fileServiceMock).writeReportDataImage(eq("thumbnails/1887_after.png"), any(BufferedImage.class));
+    }
+
+    @Test
+    void shouldScaleScreenshotsToThumbnailWidth() {
+        //when
+        BufferedImage thumbnail = PaginatedReportWriter.scaleToThumbnail(new BufferedImage(1280, 960, BufferedImage.TYPE_INT_RGB));
+
+        //then
+        assertThat(thumbnail.getWidth(), is(320));
+        assertThat(thumbnail.getHeight(), is(240));
+    }
+
+    @Test
+    void shouldOnlyShowTopOfVeryLongScreenshotsInThumbnail() {
+        //when
+        BufferedImage thumbnail = PaginatedReportWriter.scaleToThumbnail(new BufferedImage(1280, 20000, BufferedImage.TYPE_INT_RGB));
+
+        //then
+        assertThat(thumbnail.getWidth(), is(320));
+        assertThat(thumbnail.getHeight(), is(PaginatedReportWriter.THUMBNAIL_MAX_HEIGHT));
+    }
+
+    private UrlReport urlReport(String url) {
+        ScreenshotComparisonResult result = new ScreenshotComparisonResult("1887", url, DeviceConfig.deviceConfig(1200, 800), 0, 0d, 0d,
+                "../screenshots/1887/before.png", "../screenshots/1887/after.png", null, 0);
+        ContextReport contextReport = new ContextReport("1887",
+                ScreenshotContext.of(url, "/", DeviceConfig.deviceConfig(1200, 800), before, UrlConfig.urlConfigBuilder().build()),
+                new Summary(false, 0d, 0d, 0), singletonList(result));
+        return new UrlReport(url, url, new Summary(false, 0d, 0d, 0), singletonList(contextReport));
+    }
+}
@@ -11,6 +11,7 @@ import de.otto.jlineup.config.RunStep;
 import de.otto.jlineup.config.UrlConfig;
 import de.otto.jlineup.file.FileService;
 import de.otto.jlineup.file.FileTracker;
+import de.otto.jlineup.image.ImageHashes;
 import de.otto.jlineup.image.ImageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,6 +22,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 
@@ -29,9 +32,17 @@ import static de.otto.jlineup.browser.BrowserStep.before;
 import static de.otto.jlineup.config.JobConfig.*;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.matches;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -148,11 +159,11 @@ class ScreenshotsComparatorTest {
                 afterBuffer2);
 
         BufferedImage differenceBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_DIFFERENCE_reference.png"));
-        when(imageService.compareImages(beforeBuffer, afterBuffer, WINDOW_HEIGHT, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE)).thenReturn(new ImageService.ImageComparisonResult(differenceBuffer, 0.1337d, 10, 0d));
+        when(imageService.compareImages(beforeBuffer, afterBuffer, WINDOW_HEIGHT, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE, null)).thenReturn(new ImageService.ImageComparisonResult(differenceBuffer, 0.1337d, 10, 0d));
         when(fileService.writeScreenshot(screenshotContext, differenceBuffer, 2002)).thenReturn("http_url_root_ff3c40c_1001_02002_compare.png");
 
         BufferedImage differenceBuffer2 = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_DIFFERENCE_reference.png"));
-        when(imageService.compareImages(beforeBuffer2, afterBuffer2, WINDOW_HEIGHT, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE)).thenReturn(new ImageService.ImageComparisonResult(differenceBuffer2, 0.1337d, 10, 0d));
+        when(imageService.compareImages(beforeBuffer2, afterBuffer2, WINDOW_HEIGHT, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE, null)).thenReturn(new ImageService.ImageComparisonResult(differenceBuffer2, 0.1337d, 10, 0d));
         when(fileService.writeScreenshot(screenshotContext2, differenceBuffer2, 2002)).thenReturn("http_url2_root_ff3c40c_1001_02002_compare.png");
 
         //when
@@ -160,5 +171,199 @@ class ScreenshotsComparatorTest {
 
         //then
         assertThat(comparisonResults, is(expectedResults));
+        verify(fileService).writeFileTrackerData();
+    }
+
+    @Test
+    void shouldNotReadScreenshotsWithEqualHashes() throws Exception {
+        //given
+        ScreenshotContext screenshotContext = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(0);
+        ScreenshotContext screenshotContext2 = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(1);
+        DeviceConfig givenDeviceConfig = DeviceConfig.deviceConfig(100, WINDOW_HEIGHT);
+        ImageHashes imageHashes = ImageHashes.of(ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_before.png")));
+
+        when(fileService.getFileTracker()).thenReturn(fileTracker);
+        when(fileService.getRelativePathFromReportDirToScreenshotsDir()).thenReturn("screenshots/");
+        when(fileTracker.getScreenshotsForContext(screenshotContext.contextHash())).thenReturn(
+                ImmutableMap.of(2002, ImmutableMap.of(before, "http_url_root_ff3c40c_1001_02002_before.png",
+                        after, "http_url_root_ff3c40c_1001_02002_after.png")));
+        when(fileTracker.getScreenshotsForContext(screenshotContext2.contextHash())).thenReturn(
+                ImmutableMap.of(2002, ImmutableMap.of(before, "http_url2_root_ff3c40c_1001_02002_before.png",
+                        after, "http_url2_root_ff3c40c_1001_02002_after.png")));
+        when(fileTracker.getHashesForContext(screenshotContext.contextHash())).thenReturn(
+                ImmutableMap.of(2002, ImmutableMap.of(before, imageHashes, after, imageHashes)));
+        when(fileTracker.getHashesForContext(screenshotContext2.contextHash())).thenReturn(
+                ImmutableMap.of(2002, ImmutableMap.of(before, imageHashes, after, imageHashes)));
+
+        //when
+        Map<String, List<ScreenshotComparisonResult>> comparisonResults = testee.compare();
+
+        //then
+        assertThat(comparisonResults.get("http://url"), is(ImmutableList.of(new ScreenshotComparisonResult(
+                screenshotContext.contextHash(),
+                "http://url/",
+                givenDeviceConfig,
+                2002,
+                0d,
+                0d, "screenshots/http_url_root_ff3c40c_1001_02002_before.png",
+                "screenshots/http_url_root_ff3c40c_1001_02002_after.png",
+                null,
+                0))));
+        verify(fileService, never()).readScreenshot(any());
+        verifyNoInteractions(imageService);
+    }
+
+    @Test
+    void shouldOnlyCompareRowsWithDifferentHashes() throws Exception {
+        //given
+        ScreenshotContext screenshotContext = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(0);
+        ScreenshotContext screenshotContext2 = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(1);
+
+        BufferedImage beforeBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_before.png"));
+        BufferedImage afterBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_before.png"));
+        afterBuffer.setRGB(3, 5, 0xFF00FF00);
+        BitSet expectedRowsToCompare = new BitSet();
+        expectedRowsToCompare.set(5);
+
+        when(fileService.getFileTracker()).thenReturn(fileTracker);
+        when(fileTracker.getScreenshotsForContext(screenshotContext.contextHash())).thenReturn(
+                ImmutableMap.of(2002, ImmutableMap.of(before, "http_url_root_ff3c40c_1001_02002_before.png",
+                        after, "http_url_root_ff3c40c_1001_02002_after.png")));
+        when(fileTracker.getScreenshotsForContext(screenshotContext2.contextHash())).thenReturn(ImmutableMap.of());
+        when(fileTracker.getHashesForContext(screenshotContext.contextHash())).thenReturn(
+                ImmutableMap.of(2002, ImmutableMap.of(before, ImageHashes.of(beforeBuffer).withoutRowHashes(), after, ImageHashes.of(afterBuffer).withoutRowHashes())));
+        when(fileService.readRowHashes("http_url_root_ff3c40c_1001_02002_before.png")).thenReturn(ImageHashes.of(beforeBuffer).rowHashes());
+        when(fileService.readRowHashes("http_url_root_ff3c40c_1001_02002_after.png")).thenReturn(ImageHashes.of(afterBuffer).rowHashes());
+        when(fileService.readScreenshot("http_url_root_ff3c40c_1001_02002_before.png")).thenReturn(beforeBuffer);
+        when(fileService.readScreenshot("http_url_root_ff3c40c_1001_02002_after.png")).thenReturn(afterBuffer);
+        when(imageService.compareImages(beforeBuffer, afterBuffer, WINDOW_HEIGHT, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE, expectedRowsToCompare))
+                .thenReturn(new ImageService.ImageComparisonResult(null, 0d, 0, 0d));
+
+        //when
+        Map<String, List<ScreenshotComparisonResult>> comparisonResults = testee.compare();
+
+        //then
+        assertThat(comparisonResults.get("http://url").size(), is(1));
+    }
+
+    @Test
+    void shouldNotWriteDifferenceImagesIfSkipped() throws Exception {
+        //given
+        jobConfig = copyOfBuilder(jobConfig).withSkipDifferenceImages(true).build();
+        testee = new ScreenshotsComparator(runStepConfig, jobConfig, fileService, imageService);
+        ScreenshotContext screenshotContext = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(0);
+        ScreenshotContext screenshotContext2 = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(1);
+
+        BufferedImage beforeBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_before.png"));
+        BufferedImage afterBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_after.png"));
+        BufferedImage differenceBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_DIFFERENCE_reference.png"));
+
+        when(fileService.getFileTracker()).thenReturn(fileTracker);
+        when(fileService.getRelativePathFromReportDirToScreenshotsDir()).thenReturn("screenshots/");
+        when(fileTracker.getScreenshotsForContext(screenshotContext.contextHash())).thenReturn(
+                ImmutableMap.of(2002, ImmutableMap.of(before, "http_url_root_ff3c40c_1001_02002_before.png",
+                        after, "http_url_root_ff3c40c_1001_02002_after.png")));
+        when(fileTracker.getScreenshotsForContext(screenshotContext2.contextHash())).thenReturn(ImmutableMap.of());
+        when(fileService.readScreenshot("http_url_root_ff3c40c_1001_02002_before.png")).thenReturn(beforeBuffer);
+        when(fileService.readScreenshot("http_url_root_ff3c40c_1001_02002_after.png")).thenReturn(afterBuffer);
+        when(imageService.compareImages(beforeBuffer, afterBuffer, WINDOW_HEIGHT, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE, null))
+                .thenReturn(new ImageService.ImageComparisonResult(differenceBuffer, 0.1337d, 10, 0d));
+
+        //when
+        Map<String, List<ScreenshotComparisonResult>> comparisonResults = testee.compare();
+
+        //then
+        assertThat(comparisonResults.get("http://url").get(0).difference(), is(0.1337d));
+        assertThat(comparisonResults.get("http://url").get(0).differenceImageFileName(), is(nullValue()));
+        verify(fileService, never()).writeScreenshot(any(), any(), anyInt());
+    }
+
+    @Test
+    void shouldCompareAllPositionsWithSingleThreadedStagesAndSmallMemoryBudget() throws Exception {
+        //given
+        jobConfig = copyOfBuilder(jobConfig)
+                .withCompareDecodeThreads(1)
+                .withParallelComparisons(1)
+                .withCompareEncodeThreads(1)
+                .withCompareMemoryBudget(1)
+                .build();
+        testee = new ScreenshotsComparator(runStepConfig, jobConfig, fileService, imageService);
+        ScreenshotContext screenshotContext = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(0);
+        ScreenshotContext screenshotContext2 = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(1);
+
+        BufferedImage beforeBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_before.png"));
+        BufferedImage afterBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_after.png"));
+        BufferedImage differenceBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_DIFFERENCE_reference.png"));
+
+        when(fileService.getFileTracker()).thenReturn(fileTracker);
+        when(fileTracker.getScreenshotsForContext(screenshotContext.contextHash())).thenReturn(
+                ImmutableMap.of(
+                        3003, ImmutableMap.of(before, "before.png", after, "after.png"),
+                        0, ImmutableMap.of(before, "before.png", after, "after.png"),
+                        1001, ImmutableMap.of(before, "before.png", after, "after.png"),
+                        2002, ImmutableMap.of(before, "before.png", after, "after.png")));
+        when(fileTracker.getScreenshotsForContext(screenshotContext2.contextHash())).thenReturn(ImmutableMap.of());
+        when(fileService.readScreenshot("before.png")).thenReturn(beforeBuffer);
+        when(fileService.readScreenshot("after.png")).thenReturn(afterBuffer);
+        when(imageService.compareImages(beforeBuffer, afterBuffer, WINDOW_HEIGHT, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE, null))
+                .thenReturn(new ImageService.ImageComparisonResult(differenceBuffer, 0.1337d, 10, 0d));
+        when(fileService.writeScreenshot(eq(screenshotContext), eq(differenceBuffer), anyInt())).thenReturn("compare.png");
+
+        //when
+        Map<String, List<ScreenshotComparisonResult>> comparisonResults = testee.compare();
+
+        //then
+        assertThat(comparisonResults.get("http://url").stream().map(ScreenshotComparisonResult::verticalScrollPosition).toList(), is(List.of(0, 1001, 2002, 3003)));
+        assertThat(comparisonResults.get("http://url").get(3).differenceImageFileName(), is("compare.png"));
+    }
+
+    @Test
+    void shouldPassOnExceptionsOfPipelineStages() throws Exception {
+        //given
+        ScreenshotContext screenshotContext = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(0);
+        ScreenshotContext screenshotContext2 = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(1);
+
+        when(fileService.getFileTracker()).thenReturn(fileTracker);
+        when(fileTracker.getScreenshotsForContext(screenshotContext.contextHash())).thenReturn(
+                ImmutableMap.of(2002, ImmutableMap.of(before, "before.png", after, "after.png")));
+        when(fileTracker.getScreenshotsForContext(screenshotContext2.contextHash())).thenReturn(ImmutableMap.of());
+        when(fileService.readScreenshot("before.png")).thenThrow(new IOException("disk on fire"));
+
+        //when
+        IOException e = assertThrows(IOException.class, () -> testee.compare());
+
+        //then
+        assertThat(e.getMessage(), is("disk on fire"));
+    }
+
+    @Test
+    void shouldUseComparisonsStartedWhileCapturing() throws Exception {
+        //given
+        ScreenshotContext screenshotContext = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(0);
+        ScreenshotContext screenshotContext2 = BrowserUtils.buildScreenshotContextListFromConfigAndState(runStepConfig, jobConfig).get(1);
+        ScreenshotContext afterScreenshotContext = ScreenshotContext.copyOfBuilder(screenshotContext).withStep(after).build();
+
+        BufferedImage beforeBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_before.png"));
+        BufferedImage afterBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_after.png"));
+        BufferedImage differenceBuffer = ImageIO.read(new File("src/test/resources/screenshots/http_url_root_ff3c40c_1001_02002_DIFFERENCE_reference.png"));
+
+        when(fileService.getFileTracker()).thenReturn(fileTracker);
+        when(fileService.getRelativePathFromReportDirToScreenshotsDir()).thenReturn("screenshots/");
+        when(fileTracker.getScreenshotsForContext(screenshotContext.contextHash())).thenReturn(
+                ImmutableMap.of(2002, ImmutableMap.of(before, "before.png", after, "after.png")));
+        when(fileTracker.getScreenshotsForContext(screenshotContext2.contextHash())).thenReturn(ImmutableMap.of());
+        when(fileService.readScreenshot("before.png")).thenReturn(beforeBuffer);
+        when(imageService.compareImages(beforeBuffer, afterBuffer, WINDOW_HEIGHT, false, DEFAULT_MAX_ANTI_ALIAS_COLOR_DISTANCE, false, DEFAULT_MAX_COLOR_DISTANCE, null))
+                .thenReturn(new ImageService.ImageComparisonResult(differenceBuffer, 0.1337d, 10, 0d));
+        when(fileService.writeScreenshot(screenshotContext, differenceBuffer, 2002)).thenReturn("compare.png");
+
+        //when
+        testee.compareWrittenScreenshot(afterScreenshotContext, "after.png", 2002, afterBuffer);
+        Map<String, List<ScreenshotComparisonResult>> comparisonResults = testee.compare();
+
+        //then
+        assertThat(comparisonResults.get("http://url").get(0).difference(), is(0.1337d));
+        assertThat(comparisonResults.get("http://url").get(0).differenceImageFileName(), is("screenshots/compare.png"));
+        verify(fileService, never()).readScreenshot("after.png");
     }
 }
@@ -74,6 +74,13 @@ public class LambdaRunner {
             throw new RuntimeException(exception);
         }
 
+        try {
+            //Screenshots were journaled, the lambda browser merges the snapshot of every context
+            fileService.writeFileTrackerData();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
         LOG.info("JLineup run finished for context '{}'", screenshotContext);
         MDC.remove(REPORT_LOG_NAME_KEY);
         return retries;
@@ -36,8 +36,8 @@ public class Housekeeper {
     @Scheduled(fixedRate = ONE_HOUR_IN_MILLIS)
     public void deleteOldFiles() throws IOException {
         this.deleteReportsOlderThan(Duration.ofDays(DELETE_REPORTS_AFTER_DAYS));
-        // in case the jlineup server is permanently running the screenshots taken by selenium within the tmp dir
-        // will not be removed after the webdriver.close, that is why the screenshots must be removed using this job
+        // screenshots are taken in memory now, but older versions let selenium write them to the tmp dir, where they
+        // were not removed after the webdriver.close - this job cleans up what they left behind
         this.deleteSeleniumScreenshotsOlderThan(Duration.ofDays(DELETE_SCREENSHOTS_AFTER_DAYS));
     }
 
@@ -2,6 +2,8 @@ package de.otto.jlineup.web;
 
 import de.otto.jlineup.JLineupRunner;
 import de.otto.jlineup.RunStepConfig;
+import de.otto.jlineup.browser.BrowserUtils;
+import de.otto.jlineup.browser.WebDriverPool;
 import de.otto.jlineup.config.JobConfig;
 import de.otto.jlineup.config.RunStep;
 import de.otto.jlineup.config.UrlConfig;
@@ -14,6 +16,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static de.otto.jlineup.browser.BrowserUtils.RANDOM_FOLDER_PLACEHOLDER;
@@ -22,10 +25,16 @@ import static de.otto.jlineup.browser.BrowserUtils.RANDOM_FOLDER_PLACEHOLDER;
 public class JLineupRunnerFactory {
 
     private final JLineupWebProperties properties;
+    private final WebDriverPool webDriverPool;
 
-    @Autowired
     public JLineupRunnerFactory(JLineupWebProperties properties) {
+        this(properties, Optional.empty());
+    }
+
+    @Autowired
+    public JLineupRunnerFactory(JLineupWebProperties properties, Optional<WebDriverPool> webDriverPool) {
         this.properties = properties;
+        this.webDriverPool = webDriverPool.orElse(null);
     }
 
     public JLineupRunner createBeforeRun(String id, JobConfig jobConfig) throws Exception {
@@ -59,9 +68,11 @@ public class JLineupRunnerFactory {
                         .map(param -> param.replace("{id}", id))
                         .map(param -> param.startsWith("-profile ") || param.startsWith("-P ") ? param + "/" + RANDOM_FOLDER_PLACEHOLDER : param)
                         .collect(Collectors.toList()))
-                .withCleanupProfile(properties.isCleanupProfile())
+                //Pooled browsers keep using their profile directories after the run
+                .withCleanupProfile(properties.isCleanupProfile() && webDriverPool == null)
                 .withStep(step)
-                .build());
+                .build(),
+                webDriverPool != null ? webDriverPool : new BrowserUtils());
     }
 
     JobConfig sanitizeJobConfig(final JobConfig jobConfig) throws BrowserNotInstalledException, IllegalArgumentException {
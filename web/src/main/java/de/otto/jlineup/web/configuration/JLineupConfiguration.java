@@ -1,10 +1,13 @@
 package de.otto.jlineup.web.configuration;
 
+import de.otto.jlineup.browser.WebDriverPool;
 import de.otto.jlineup.service.Housekeeper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.nio.file.Paths;
+import java.time.Duration;
 
 @Configuration
 public class JLineupConfiguration {
@@ -14,4 +17,12 @@ public class JLineupConfiguration {
         return new Housekeeper(Paths.get(properties.getWorkingDirectory()));
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = "jlineup", name = "web-driver-pool-enabled", havingValue = "true")
+    public WebDriverPool webDriverPool(JLineupWebProperties properties) {
+        //Every thread of every parallel job holds one browser at a time
+        return new WebDriverPool(properties.getMaxParallelJobs() * properties.getMaxThreadsPerJob(),
+                Duration.ofSeconds(properties.getWebDriverPoolMaxIdleSeconds()));
+    }
+
 }
@@ -18,6 +18,7 @@ public class JLineupWebProperties {
     public static final int DEFAULT_MAX_PARALLEL_JOBS = 1;
     public static final int DEFAULT_MAX_THREADS_PER_JOB = 4;
     public static final int DEFAULT_MAX_PERSISTED_RUNS = 100;
+    public static final int DEFAULT_WEB_DRIVER_POOL_MAX_IDLE_SECONDS = 300;
 
     private String workingDirectory = "/tmp/jlineup/";
     private String screenshotsDirectory = "report-{id}";
@@ -25,6 +26,8 @@ public class JLineupWebProperties {
     private boolean cleanupProfile = true;
     private int maxParallelJobs = DEFAULT_MAX_PARALLEL_JOBS;
     private int maxThreadsPerJob = DEFAULT_MAX_THREADS_PER_JOB;
+    private boolean webDriverPoolEnabled = false;
+    private int webDriverPoolMaxIdleSeconds = DEFAULT_WEB_DRIVER_POOL_MAX_IDLE_SECONDS;
     private List<String> chromeLaunchParameters = emptyList();
 
     private List<String> firefoxLaunchParameters = emptyList();
@@ -42,6 +45,8 @@ public class JLineupWebProperties {
                 ", cleanupProfile=" + cleanupProfile +
                 ", maxParallelJobs=" + maxParallelJobs +
                 ", maxThreadsPerJob=" + maxThreadsPerJob +
+                ", webDriverPoolEnabled=" + webDriverPoolEnabled +
+                ", webDriverPoolMaxIdleSeconds=" + webDriverPoolMaxIdleSeconds +
                 ", chromeLaunchParameters=" + chromeLaunchParameters +
                 ", firefoxLaunchParameters=" + firefoxLaunchParameters +
                 ", installedBrowsers=" + installedBrowsers +
@@ -56,12 +61,12 @@ public class JLineupWebProperties {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         JLineupWebProperties that = (JLineupWebProperties) o;
-        return cleanupProfile == that.cleanupProfile && maxParallelJobs == that.maxParallelJobs && maxThreadsPerJob == that.maxThreadsPerJob && maxPersistedRuns == that.maxPersistedRuns && Objects.equals(workingDirectory, that.workingDirectory) && Objects.equals(screenshotsDirectory, that.screenshotsDirectory) && Objects.equals(reportDirectory, that.reportDirectory) && Objects.equals(chromeLaunchParameters, that.chromeLaunchParameters) && Objects.equals(firefoxLaunchParameters, that.firefoxLaunchParameters) && Objects.equals(installedBrowsers, that.installedBrowsers) && Objects.equals(allowedUrlPrefixes, that.allowedUrlPrefixes) && Objects.equals(lambda, that.lambda);
+        return cleanupProfile == that.cleanupProfile && maxParallelJobs == that.maxParallelJobs && maxThreadsPerJob == that.maxThreadsPerJob && webDriverPoolEnabled == that.webDriverPoolEnabled && webDriverPoolMaxIdleSeconds == that.webDriverPoolMaxIdleSeconds && maxPersistedRuns == that.maxPersistedRuns && Objects.equals(workingDirectory, that.workingDirectory) && Objects.equals(screenshotsDirectory, that.screenshotsDirectory) && Objects.equals(reportDirectory, that.reportDirectory) && Objects.equals(chromeLaunchParameters, that.chromeLaunchParameters) && Objects.equals(firefoxLaunchParameters, that.firefoxLaunchParameters) && Objects.equals(installedBrowsers, that.installedBrowsers) && Objects.equals(allowedUrlPrefixes, that.allowedUrlPrefixes) && Objects.equals(lambda, that.lambda);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(workingDirectory, screenshotsDirectory, reportDirectory, cleanupProfile, maxParallelJobs, maxThreadsPerJob, chromeLaunchParameters, firefoxLaunchParameters, installedBrowsers, allowedUrlPrefixes, maxPersistedRuns, lambda);
+        return Objects.hash(workingDirectory, screenshotsDirectory, reportDirectory, cleanupProfile, maxParallelJobs, maxThreadsPerJob, webDriverPoolEnabled, webDriverPoolMaxIdleSeconds, chromeLaunchParameters, firefoxLaunchParameters, installedBrowsers, allowedUrlPrefixes, maxPersistedRuns, lambda);
     }
 
     private List<String> allowedUrlPrefixes = emptyList();
@@ -118,6 +123,22 @@ public class JLineupWebProperties {
         this.maxThreadsPerJob = maxThreadsPerJob;
     }
 
+    public boolean isWebDriverPoolEnabled() {
+        return webDriverPoolEnabled;
+    }
+
+    public void setWebDriverPoolEnabled(boolean webDriverPoolEnabled) {
+        this.webDriverPoolEnabled = webDriverPoolEnabled;
+    }
+
+    public int getWebDriverPoolMaxIdleSeconds() {
+        return webDriverPoolMaxIdleSeconds;
+    }
+
+    public void setWebDriverPoolMaxIdleSeconds(int webDriverPoolMaxIdleSeconds) {
+        this.webDriverPoolMaxIdleSeconds = webDriverPoolMaxIdleSeconds;
+    }
+
     public List<String> getChromeLaunchParameters() {
         return chromeLaunchParameters;
     }